@@ -0,0 +1,45 @@
+package sudoku.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import sudoku.PuzzleReader;
+
+/**
+ * Puzzle corpora bundled under {@code /corpora} on the classpath.
+ */
+public final class Corpus {
+
+    private Corpus() {
+    }
+
+    /**
+     * Loads every puzzle of a bundled corpus.
+     *
+     * @param name corpus name without extension: {@code easy}, {@code minimal17},
+     *             {@code hardest} or {@code invalid}
+     * @return the puzzles in file order
+     */
+    public static int[][][] load(String name) {
+        String resource = "/corpora/" + name + ".txt";
+        InputStream in = Corpus.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalArgumentException("Unknown corpus \"" + name + "\"");
+        }
+        List<int[][]> puzzles = new ArrayList<>();
+        try (PuzzleReader reader = new PuzzleReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            int[][] puzzle;
+            while ((puzzle = reader.next()) != null) {
+                puzzles.add(puzzle);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read " + resource, ex);
+        }
+        return puzzles.toArray(new int[0][][]);
+    }
+}
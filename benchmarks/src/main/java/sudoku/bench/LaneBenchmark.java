@@ -0,0 +1,97 @@
+package sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import sudoku.LaneSolver;
+import sudoku.SolveResult;
+import sudoku.SudokuSolver;
+
+/**
+ * Bulk solving with the lane-parallel engine against the scalar MRV engine.
+ * <p>
+ * Each invocation solves {@value #BULK} puzzles (the corpus repeated), either
+ * one at a time with MRV on a preallocated working copy or all at once with
+ * {@link LaneSolver#solveAll(int[][][])}, so the throughput is in puzzles per
+ * second for both. The invalid corpus is left out: the lane engine rejects a
+ * bulk containing an invalid puzzle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LaneBenchmark {
+
+    private static final int SIZE = SudokuSolver.SIZE;
+    private static final int BULK = 1024;
+
+    @Param({"easy", "minimal17", "hardest"})
+    public String corpus;
+
+    private final SudokuSolver scalar = new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV);
+    private final LaneSolver lanes = new LaneSolver();
+    private int[][][] puzzles;
+    private final int[][] board = new int[SIZE][SIZE];
+
+    @Setup
+    public void setUp() {
+        int[][][] corpus = Corpus.load(this.corpus);
+        puzzles = new int[BULK][][];
+        for (int i = 0; i < BULK; i++) {
+            puzzles[i] = corpus[i % corpus.length];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK)
+    public int scalar() {
+        int solved = 0;
+        for (int[][] puzzle : puzzles) {
+            for (int r = 0; r < SIZE; r++) {
+                System.arraycopy(puzzle[r], 0, board[r], 0, SIZE);
+            }
+            if (scalar.solve(board, null)) {
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK)
+    public int lanes() {
+        int solved = 0;
+        for (SolveResult result : lanes.solveAll(puzzles)) {
+            if (result.isSolved()) {
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    /** Runs the lane benchmarks. */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LaneBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
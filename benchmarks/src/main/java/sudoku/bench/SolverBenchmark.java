@@ -0,0 +1,86 @@
+package sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import sudoku.SudokuEngine;
+import sudoku.SudokuEngines;
+import sudoku.SudokuSolver;
+
+/**
+ * Solves the bundled corpora with every registered engine.
+ * <p>
+ * Each invocation solves the next puzzle of the corpus (round robin) on a
+ * preallocated working copy, so the measured cost is the engine's own,
+ * including any allocation it does per solve. Throughput gives ops/s,
+ * sample time gives the per-solve latency distribution, and the GC profiler
+ * (enabled by {@link #main(String[])}, or {@code -prof gc} on the command
+ * line) reports the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+    private static final int SIZE = SudokuSolver.SIZE;
+
+    @Param({"bbcp", "mrv", "dlx", "propagate", "iterative", "learn", "variant"})
+    public String engine;
+
+    @Param({"easy", "minimal17", "hardest", "invalid"})
+    public String corpus;
+
+    private SudokuEngine solver;
+    private int[][][] puzzles;
+    private final int[][] board = new int[SIZE][SIZE];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        solver = SudokuEngines.create(engine);
+        puzzles = Corpus.load(corpus);
+        next = 0;
+    }
+
+    @Benchmark
+    public boolean solve() {
+        int[][] puzzle = puzzles[next];
+        next = next + 1 == puzzles.length ? 0 : next + 1;
+        for (int r = 0; r < SIZE; r++) {
+            System.arraycopy(puzzle[r], 0, board[r], 0, SIZE);
+        }
+        try {
+            return solver.solve(board, null);
+        } catch (IllegalArgumentException invalid) {
+            return false;
+        }
+    }
+
+    /** Runs all solver benchmarks with the GC profiler attached. */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SolverBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
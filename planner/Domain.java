@@ -0,0 +1,133 @@
+package planner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lifted PDDL domain: type hierarchy, constants, predicates and action schemas.
+ * Created by {@link PddlParser#parseDomain}.
+ */
+public final class Domain {
+
+    /** Root of the type hierarchy; untyped objects and types belong to it. */
+    public static final String OBJECT = "object";
+
+    /** Action schema with typed parameters, a precondition and a conjunctive effect. */
+    public static final class Action {
+
+        private final String name;
+        private final String[] parameters;
+        private final String[] parameterTypes;
+        private final Formula precondition;
+        private final Formula effect;
+
+        Action(String name, String[] parameters, String[] parameterTypes, Formula precondition, Formula effect) {
+            this.name = name;
+            this.parameters = parameters;
+            this.parameterTypes = parameterTypes;
+            this.precondition = precondition;
+            this.effect = effect;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Parameter variables, including the leading {@code ?}. */
+        public String[] getParameters() {
+            return parameters.clone();
+        }
+
+        public String[] getParameterTypes() {
+            return parameterTypes.clone();
+        }
+
+        public Formula getPrecondition() {
+            return precondition;
+        }
+
+        /** Conjunction of atoms (add effects) and negated atoms (delete effects). */
+        public Formula getEffect() {
+            return effect;
+        }
+
+        String[] parameters() {
+            return parameters;
+        }
+
+        String[] parameterTypes() {
+            return parameterTypes;
+        }
+    }
+
+    private final String name;
+    private final List<String> requirements;
+    private final Map<String, String> parentTypes;
+    private final Map<String, String> constants;
+    private final Map<String, String[]> predicates;
+    private final List<Action> actions;
+
+    Domain(String name, List<String> requirements, Map<String, String> parentTypes, Map<String, String> constants,
+           Map<String, String[]> predicates, List<Action> actions) {
+        this.name = name;
+        this.requirements = List.copyOf(requirements);
+        this.parentTypes = Collections.unmodifiableMap(new LinkedHashMap<>(parentTypes));
+        this.constants = Collections.unmodifiableMap(new LinkedHashMap<>(constants));
+        this.predicates = Collections.unmodifiableMap(new LinkedHashMap<>(predicates));
+        this.actions = List.copyOf(actions);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getRequirements() {
+        return requirements;
+    }
+
+    /** Maps each declared type to its parent type. */
+    public Map<String, String> getParentTypes() {
+        return parentTypes;
+    }
+
+    /** Maps each domain constant to its type. */
+    public Map<String, String> getConstants() {
+        return constants;
+    }
+
+    /** Maps each predicate name to its parameter types. */
+    public Map<String, String[]> getPredicates() {
+        return predicates;
+    }
+
+    public List<Action> getActions() {
+        return actions;
+    }
+
+    /** Returns true if {@code type} is {@code ancestor} or one of its subtypes. */
+    public boolean isSubtype(String type, String ancestor) {
+        for (String t = type; t != null; t = parentTypes.get(t)) {
+            if (t.equals(ancestor)) {
+                return true;
+            }
+            if (t.equals(OBJECT)) {
+                break;
+            }
+        }
+        return ancestor.equals(OBJECT);
+    }
+
+    /** Returns the objects of {@code type} (including subtypes), in declaration order. */
+    public List<String> objectsOfType(Map<String, String> objects, String type) {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, String> e : objects.entrySet()) {
+            if (isSubtype(e.getValue(), type)) {
+                result.add(e.getKey());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package planner;
+
+import java.util.List;
+
+/**
+ * Lifted PDDL formula of the supported subset: conjunctions, negations,
+ * universal quantifiers over a typed variable, and atoms (including
+ * equality, written as the predicate {@code =}).
+ */
+public final class Formula {
+
+    /** Node types of a formula tree. */
+    public enum Kind {
+        TRUE,
+        ATOM,
+        NOT,
+        AND,
+        FORALL
+    }
+
+    static final Formula TRUE = new Formula(Kind.TRUE, null, null, List.of(), null, null);
+
+    private final Kind kind;
+    private final String predicate;
+    private final String[] args;
+    private final List<Formula> children;
+    private final String variable;
+    private final String type;
+
+    private Formula(Kind kind, String predicate, String[] args, List<Formula> children, String variable, String type) {
+        this.kind = kind;
+        this.predicate = predicate;
+        this.args = args;
+        this.children = children;
+        this.variable = variable;
+        this.type = type;
+    }
+
+    static Formula atom(String predicate, String... args) {
+        return new Formula(Kind.ATOM, predicate, args, List.of(), null, null);
+    }
+
+    static Formula not(Formula child) {
+        return new Formula(Kind.NOT, null, null, List.of(child), null, null);
+    }
+
+    static Formula and(List<Formula> children) {
+        return new Formula(Kind.AND, null, null, List.copyOf(children), null, null);
+    }
+
+    static Formula forall(String variable, String type, Formula body) {
+        return new Formula(Kind.FORALL, null, null, List.of(body), variable, type);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** Predicate name of an atom. */
+    public String getPredicate() {
+        return predicate;
+    }
+
+    /** Arguments of an atom: variables (starting with {@code ?}) or object names. */
+    public String[] getArgs() {
+        return args.clone();
+    }
+
+    /** Operand of a negation, body of a quantifier, or conjuncts. */
+    public List<Formula> getChildren() {
+        return children;
+    }
+
+    /** Quantified variable of a {@code forall}. */
+    public String getVariable() {
+        return variable;
+    }
+
+    /** Type of the quantified variable of a {@code forall}. */
+    public String getType() {
+        return type;
+    }
+
+    String[] args() {
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case TRUE:
+                return "()";
+            case ATOM:
+                return "(" + predicate + (args.length == 0 ? "" : " " + String.join(" ", args)) + ")";
+            case NOT:
+                return "(not " + children.get(0) + ")";
+            case FORALL:
+                return "(forall (" + variable + " - " + type + ") " + children.get(0) + ")";
+            default:
+                StringBuilder sb = new StringBuilder("(and");
+                for (Formula child : children) {
+                    sb.append(' ').append(child);
+                }
+                return sb.append(')').toString();
+        }
+    }
+}
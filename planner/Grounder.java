@@ -0,0 +1,464 @@
+package planner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Instantiates the action schemas of a domain with the objects of a problem.
+ * <ul>
+ *     <li>Static predicates (never in an effect, e.g. {@code connected}) are
+ *     decided from the initial state while parameters are being bound, so
+ *     bindings such as moves between unconnected locations are cut off
+ *     before the remaining parameters are enumerated, and static atoms never
+ *     become facts. Equality atoms are decided the same way.</li>
+ *     <li>Universal preconditions are expanded over the objects of their type.</li>
+ *     <li>Negative preconditions and goals are compiled into positive
+ *     complement facts, so the operators of the task only have positive
+ *     preconditions.</li>
+ *     <li>A relaxed reachability fixpoint from the initial state (delete
+ *     effects ignored) then drops operators that can
+ *     never become applicable and facts that can never become true.</li>
+ * </ul>
+ */
+public final class Grounder {
+
+    private final Domain domain;
+    private final Map<String, String> objects = new LinkedHashMap<>();
+    private final Set<String> staticPredicates = new HashSet<>();
+    private final Set<String> staticFacts = new HashSet<>();
+    private final Map<String, Integer> factIds = new HashMap<>();
+    private final List<String> factNames = new ArrayList<>();
+
+    private Grounder(Domain domain, Problem problem) {
+        this.domain = domain;
+        objects.putAll(domain.getConstants());
+        objects.putAll(problem.getObjects());
+        for (Map.Entry<String, String> e : objects.entrySet()) {
+            if (!domain.getParentTypes().containsKey(e.getValue())) {
+                throw new IllegalArgumentException("Object " + e.getKey() + " has unknown type " + e.getValue() + ".");
+            }
+        }
+        staticPredicates.addAll(domain.getPredicates().keySet());
+        for (Domain.Action action : domain.getActions()) {
+            removeEffectPredicates(action.getEffect());
+        }
+    }
+
+    private void removeEffectPredicates(Formula effect) {
+        if (effect.getKind() == Formula.Kind.ATOM) {
+            staticPredicates.remove(effect.getPredicate());
+        }
+        for (Formula child : effect.getChildren()) {
+            removeEffectPredicates(child);
+        }
+    }
+
+    /**
+     * Grounds a problem.
+     *
+     * @throws IllegalArgumentException if the problem does not match the domain
+     */
+    public static Task ground(Domain domain, Problem problem) {
+        if (problem.getDomainName() != null && !problem.getDomainName().equals(domain.getName())) {
+            throw new IllegalArgumentException("Problem " + problem.getName() + " is for domain "
+                    + problem.getDomainName() + ", not " + domain.getName() + ".");
+        }
+        Grounder g = new Grounder(domain, problem);
+
+        Set<Integer> init = new LinkedHashSet<>();
+        for (String[] atom : problem.getInit()) {
+            String[] args = new String[atom.length - 1];
+            System.arraycopy(atom, 1, args, 0, args.length);
+            if (g.staticPredicates.contains(atom[0])) {
+                g.staticFacts.add(g.atomName(atom[0], args, Map.of()));
+            } else {
+                init.add(g.fact(atom[0], args, Map.of()));
+            }
+        }
+
+        Set<Integer> goal = new LinkedHashSet<>();
+        Set<Integer> goalNeg = new LinkedHashSet<>();
+        if (!g.literals(problem.getGoal(), Map.of(), false, goal, goalNeg)) {
+            throw new IllegalArgumentException("The goal of " + problem.getName() + " is unsatisfiable.");
+        }
+
+        List<Task.Operator> operators = new ArrayList<>();
+        for (Domain.Action action : domain.getActions()) {
+            g.groundAction(action, operators);
+        }
+        operators = g.compileNegations(init, goal, goalNeg, operators);
+        return g.prune(init, goal, operators);
+    }
+
+    /**
+     * Replaces each fact used in a negative precondition or goal by a positive
+     * complement fact {@code (not ...)}, kept in sync by the operators. The
+     * relaxation then respects negative preconditions, e.g. a sample collected
+     * by the wrong rover is a dead end. {@code goalNeg} is merged into
+     * {@code goal} and {@code init} gets the complements of false facts.
+     */
+    private List<Task.Operator> compileNegations(Set<Integer> init, Set<Integer> goal, Set<Integer> goalNeg,
+                                                 List<Task.Operator> operators) {
+        Map<Integer, Integer> complement = new HashMap<>();
+        for (Task.Operator op : operators) {
+            for (int f : op.preNeg) {
+                complement.computeIfAbsent(f, this::complementFact);
+            }
+        }
+        for (int f : goalNeg) {
+            complement.computeIfAbsent(f, this::complementFact);
+        }
+        for (Map.Entry<Integer, Integer> e : complement.entrySet()) {
+            if (!init.contains(e.getKey())) {
+                init.add(e.getValue());
+            }
+        }
+        for (int f : goalNeg) {
+            goal.add(complement.get(f));
+        }
+
+        List<Task.Operator> result = new ArrayList<>(operators.size());
+        for (Task.Operator op : operators) {
+            Set<Integer> pre = toSet(op.pre);
+            Set<Integer> add = toSet(op.add);
+            Set<Integer> del = toSet(op.del);
+            for (int f : op.preNeg) {
+                pre.add(complement.get(f));
+            }
+            for (int f : op.add) {
+                Integer c = complement.get(f);
+                if (c != null) {
+                    del.add(c);
+                }
+            }
+            for (int f : op.del) {
+                Integer c = complement.get(f);
+                if (c != null) {
+                    add.add(c);
+                }
+            }
+            result.add(new Task.Operator(op.name, toArray(pre), new int[0], toArray(add), toArray(del)));
+        }
+        return result;
+    }
+
+    private int complementFact(int fact) {
+        String name = "(not " + factNames.get(fact) + ")";
+        int id = factNames.size();
+        factIds.put(name, id);
+        factNames.add(name);
+        return id;
+    }
+
+    /**
+     * Keeps the operators and facts reachable from the initial state in the
+     * delete relaxation and renumbers the facts densely.
+     */
+    private Task prune(Set<Integer> init, Set<Integer> goal, List<Task.Operator> candidates) {
+        int facts = factNames.size();
+        List<List<Integer>> preOf = new ArrayList<>();
+        for (int f = 0; f < facts; f++) {
+            preOf.add(new ArrayList<>());
+        }
+        int[] unsatisfied = new int[candidates.size()];
+        boolean[] reached = new boolean[facts];
+        boolean[] usable = new boolean[candidates.size()];
+        int[] queue = new int[facts];
+        int head = 0;
+        int tail = 0;
+        for (int f : init) {
+            reached[f] = true;
+            queue[tail++] = f;
+        }
+        for (int o = 0; o < candidates.size(); o++) {
+            for (int f : candidates.get(o).pre) {
+                preOf.get(f).add(o);
+            }
+            unsatisfied[o] = candidates.get(o).pre.length;
+        }
+        for (int o = 0; o < candidates.size(); o++) {
+            if (unsatisfied[o] == 0) {
+                tail = reach(candidates.get(o), usable, o, reached, queue, tail);
+            }
+        }
+        while (head < tail) {
+            for (int o : preOf.get(queue[head++])) {
+                if (--unsatisfied[o] == 0) {
+                    tail = reach(candidates.get(o), usable, o, reached, queue, tail);
+                }
+            }
+        }
+
+        // Unreachable goal facts stay, so that the goal remains unreachable
+        for (int f : goal) {
+            reached[f] = true;
+        }
+        int[] newId = new int[facts];
+        List<String> names = new ArrayList<>();
+        for (int f = 0; f < facts; f++) {
+            newId[f] = reached[f] ? names.size() : -1;
+            if (reached[f]) {
+                names.add(factNames.get(f));
+            }
+        }
+
+        List<Task.Operator> operators = new ArrayList<>();
+        for (int o = 0; o < candidates.size(); o++) {
+            if (usable[o]) {
+                Task.Operator op = candidates.get(o);
+                operators.add(new Task.Operator(op.name, renumber(op.pre, newId), renumber(op.preNeg, newId),
+                        renumber(op.add, newId), renumber(op.del, newId)));
+            }
+        }
+        return new Task(names.toArray(new String[0]), renumber(toArray(init), newId),
+                renumber(toArray(goal), newId), new int[0], operators);
+    }
+
+    private static int reach(Task.Operator op, boolean[] usable, int o, boolean[] reached, int[] queue, int tail) {
+        usable[o] = true;
+        for (int f : op.add) {
+            if (!reached[f]) {
+                reached[f] = true;
+                queue[tail++] = f;
+            }
+        }
+        return tail;
+    }
+
+    /** Maps fact ids, dropping facts that can never be true (harmless in negative literals and deletes). */
+    private static int[] renumber(int[] ids, int[] newId) {
+        int n = 0;
+        int[] result = new int[ids.length];
+        for (int f : ids) {
+            if (newId[f] >= 0) {
+                result[n++] = newId[f];
+            }
+        }
+        return n == ids.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Enumerates the parameter tuples of a schema by backtracking; static and
+     * equality literals at the top level of the precondition are checked as
+     * soon as their last parameter is bound.
+     */
+    private void groundAction(Domain.Action action, List<Task.Operator> out) {
+        String[] params = action.parameters();
+        List<List<String>> domains = new ArrayList<>();
+        for (String type : action.parameterTypes()) {
+            List<String> candidates = domain.objectsOfType(objects, type);
+            if (candidates.isEmpty()) {
+                return;
+            }
+            domains.add(candidates);
+        }
+
+        // Static literals by the parameter position that completes them
+        List<List<Formula>> checks = new ArrayList<>();
+        for (int i = 0; i <= params.length; i++) {
+            checks.add(new ArrayList<>());
+        }
+        List<Formula> top = new ArrayList<>();
+        flatten(action.getPrecondition(), top);
+        for (Formula literal : top) {
+            Formula atom = literal.getKind() == Formula.Kind.NOT ? literal.getChildren().get(0) : literal;
+            if (atom.getKind() != Formula.Kind.ATOM
+                    || !(atom.getPredicate().equals("=") || staticPredicates.contains(atom.getPredicate()))) {
+                continue;
+            }
+            int last = -1;
+            for (String arg : atom.args()) {
+                for (int i = 0; i < params.length; i++) {
+                    if (params[i].equals(arg)) {
+                        last = Math.max(last, i);
+                    }
+                }
+            }
+            checks.get(last + 1).add(literal);
+        }
+
+        Map<String, String> binding = new HashMap<>();
+        if (holds(checks.get(0), binding)) {
+            bind(action, domains, checks, 0, binding, out);
+        }
+    }
+
+    private void bind(Domain.Action action, List<List<String>> domains, List<List<Formula>> checks, int index,
+                      Map<String, String> binding, List<Task.Operator> out) {
+        String[] params = action.parameters();
+        if (index == params.length) {
+            Task.Operator op = instantiate(action, binding);
+            if (op != null) {
+                out.add(op);
+            }
+            return;
+        }
+        for (String obj : domains.get(index)) {
+            binding.put(params[index], obj);
+            if (holds(checks.get(index + 1), binding)) {
+                bind(action, domains, checks, index + 1, binding, out);
+            }
+        }
+        binding.remove(params[index]);
+    }
+
+    private boolean holds(List<Formula> literals, Map<String, String> binding) {
+        for (Formula literal : literals) {
+            if (!literals(literal, binding, false, null, null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void flatten(Formula f, List<Formula> out) {
+        if (f.getKind() == Formula.Kind.AND) {
+            for (Formula child : f.getChildren()) {
+                flatten(child, out);
+            }
+        } else {
+            out.add(f);
+        }
+    }
+
+    /** Grounds one binding; null if the precondition is contradictory. */
+    private Task.Operator instantiate(Domain.Action action, Map<String, String> binding) {
+        Set<Integer> pre = new LinkedHashSet<>();
+        Set<Integer> preNeg = new LinkedHashSet<>();
+        if (!literals(action.getPrecondition(), binding, false, pre, preNeg)) {
+            return null;
+        }
+        for (int f : pre) {
+            if (preNeg.contains(f)) {
+                return null;
+            }
+        }
+        Set<Integer> add = new LinkedHashSet<>();
+        Set<Integer> del = new LinkedHashSet<>();
+        literals(action.getEffect(), binding, false, add, del);
+        del.removeAll(add);
+
+        StringBuilder name = new StringBuilder("(").append(action.getName());
+        for (String p : action.parameters()) {
+            name.append(' ').append(binding.get(p));
+        }
+        return new Task.Operator(name.append(')').toString(), toArray(pre), toArray(preNeg), toArray(add), toArray(del));
+    }
+
+    /**
+     * Collects the ground fluent literals of a conjunctive formula into
+     * {@code pos} and {@code neg}. Static and equality atoms are decided on the
+     * spot; returns false if one of them makes the formula false. With null
+     * sets only those are checked.
+     */
+    private boolean literals(Formula f, Map<String, String> binding, boolean negated, Set<Integer> pos, Set<Integer> neg) {
+        switch (f.getKind()) {
+            case TRUE:
+                return !negated;
+            case ATOM: {
+                String predicate = f.getPredicate();
+                if (predicate.equals("=")) {
+                    String[] args = f.args();
+                    boolean equal = resolve(args[0], binding).equals(resolve(args[1], binding));
+                    return equal != negated;
+                }
+                if (staticPredicates.contains(predicate)) {
+                    return staticFacts.contains(atomName(predicate, f.args(), binding)) != negated;
+                }
+                if (pos != null) {
+                    (negated ? neg : pos).add(fact(predicate, f.args(), binding));
+                }
+                return true;
+            }
+            case NOT:
+                if (negated || f.getChildren().get(0).getKind() != Formula.Kind.ATOM) {
+                    throw new IllegalArgumentException("Negation is only supported on atoms: " + f);
+                }
+                return literals(f.getChildren().get(0), binding, true, pos, neg);
+            case AND:
+                for (Formula child : f.getChildren()) {
+                    if (!literals(child, binding, negated, pos, neg)) {
+                        return false;
+                    }
+                }
+                return true;
+            case FORALL: {
+                Map<String, String> inner = new HashMap<>(binding);
+                for (String obj : domain.objectsOfType(objects, f.getType())) {
+                    inner.put(f.getVariable(), obj);
+                    if (!literals(f.getChildren().get(0), inner, negated, pos, neg)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported formula " + f);
+        }
+    }
+
+    private int fact(String predicate, String[] args, Map<String, String> binding) {
+        String key = atomName(predicate, args, binding);
+        Integer id = factIds.get(key);
+        if (id == null) {
+            id = factNames.size();
+            factIds.put(key, id);
+            factNames.add(key);
+        }
+        return id;
+    }
+
+    private String atomName(String predicate, String[] args, Map<String, String> binding) {
+        String[] declared = domain.getPredicates().get(predicate);
+        if (declared == null) {
+            throw new IllegalArgumentException("Unknown predicate " + predicate + ".");
+        }
+        if (declared.length != args.length) {
+            throw new IllegalArgumentException("Predicate " + predicate + " takes " + declared.length
+                    + " arguments, not " + args.length + ".");
+        }
+        StringBuilder name = new StringBuilder("(").append(predicate);
+        for (String a : args) {
+            name.append(' ').append(resolve(a, binding));
+        }
+        return name.append(')').toString();
+    }
+
+    private String resolve(String arg, Map<String, String> binding) {
+        if (arg.startsWith("?")) {
+            String value = binding.get(arg);
+            if (value == null) {
+                throw new IllegalArgumentException("Unbound variable " + arg + ".");
+            }
+            return value;
+        }
+        if (!objects.containsKey(arg)) {
+            throw new IllegalArgumentException("Unknown object " + arg + ".");
+        }
+        return arg;
+    }
+
+    private static Set<Integer> toSet(int[] values) {
+        Set<Integer> set = new LinkedHashSet<>();
+        for (int v : values) {
+            set.add(v);
+        }
+        return set;
+    }
+
+    private static int[] toArray(Set<Integer> set) {
+        int[] result = new int[set.size()];
+        int i = 0;
+        for (int v : set) {
+            result[i++] = v;
+        }
+        return result;
+    }
+}
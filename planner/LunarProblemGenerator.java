@@ -0,0 +1,208 @@
+package planner;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random problems for {@code PDDL/domain-ext.pddl} in the shape of
+ * Mission 3, scaled up: one lander, rover and stationed astronaut per crew,
+ * a random connected map of waypoints (two-way spanning tree plus one-way
+ * shortcuts), and image, scan and sample tasks at random waypoints. About
+ * half of the rovers start deployed at their lander and each astronaut starts
+ * in the docking bay or the control room. A rover can carry one sample in its
+ * lifetime and a lander stores one, so sample {@code i} must end in lander
+ * {@code i} and there are at most as many samples as crews; every generated
+ * problem is solvable.
+ */
+public final class LunarProblemGenerator {
+
+    private final int locations;
+    private final int crews;
+    private final int images;
+    private final int scans;
+    private final int samples;
+
+    /**
+     * @param locations waypoints, at least 1
+     * @param crews     landers, each with one rover and one astronaut, at least 1
+     * @param images    image tasks
+     * @param scans     scan tasks
+     * @param samples   sample tasks, at most {@code crews}
+     */
+    public LunarProblemGenerator(int locations, int crews, int images, int scans, int samples) {
+        if (locations < 1 || crews < 1 || images < 0 || scans < 0 || samples < 0) {
+            throw new IllegalArgumentException("Counts must be non-negative, with at least one location and crew.");
+        }
+        if (samples > crews) {
+            throw new IllegalArgumentException("At most one sample per crew (rover and lander) is solvable.");
+        }
+        this.locations = locations;
+        this.crews = crews;
+        this.images = images;
+        this.scans = scans;
+        this.samples = samples;
+    }
+
+    /** Returns the PDDL text of a problem named {@code name}. */
+    public String generate(String name, Random random) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("; Generated: %d locations, %d crews, %d images, %d scans, %d samples%n",
+                locations, crews, images, scans, samples));
+        sb.append("(define (problem ").append(name).append(")\n");
+        sb.append("    (:domain lunar-extended)\n\n");
+
+        sb.append("    (:objects\n");
+        objects(sb, "wp", locations, "location");
+        objects(sb, "rover", crews, "rover");
+        objects(sb, "lander", crews, "lander");
+        objects(sb, "image", images, "image_data");
+        objects(sb, "scan", scans, "scan_data");
+        objects(sb, "sample", samples, "sample");
+        objects(sb, "astronaut", crews, "astronaut");
+        sb.append("    )\n\n");
+
+        sb.append("    (:init\n");
+        for (int c = 1; c <= crews; c++) {
+            int wp = 1 + random.nextInt(locations);
+            fact(sb, "lander_at lander" + c + " wp" + wp);
+            fact(sb, "lander_associated rover" + c + " lander" + c);
+            if (random.nextBoolean()) {
+                fact(sb, "deployed rover" + c);
+                fact(sb, "at rover" + c + " wp" + wp);
+                fact(sb, "rover_data_available rover" + c);
+                fact(sb, "rover_sample_available rover" + c);
+                fact(sb, "lander_storage_free lander" + c);
+            }
+            fact(sb, "astronaut_stationed astronaut" + c + " lander" + c);
+            fact(sb, (random.nextBoolean() ? "astronaut_in_docking_bay lander" : "astronaut_in_control_room lander") + c);
+        }
+        for (String edge : edges(random)) {
+            fact(sb, edge);
+        }
+        for (int i = 1; i <= images; i++) {
+            fact(sb, "image_required_at image" + i + " wp" + (1 + random.nextInt(locations)));
+        }
+        for (int i = 1; i <= scans; i++) {
+            fact(sb, "scan_required_at scan" + i + " wp" + (1 + random.nextInt(locations)));
+        }
+        for (int i = 1; i <= samples; i++) {
+            fact(sb, "sample_required_at sample" + i + " wp" + (1 + random.nextInt(locations)));
+        }
+        sb.append("    )\n\n");
+
+        sb.append("    (:goal (and\n");
+        for (int i = 1; i <= images; i++) {
+            fact(sb, "data_transmitted image" + i);
+        }
+        for (int i = 1; i <= scans; i++) {
+            fact(sb, "data_transmitted scan" + i);
+        }
+        for (int i = 1; i <= samples; i++) {
+            fact(sb, "sample_stored sample" + i + " lander" + i);
+        }
+        sb.append("    ))\n)\n");
+        return sb.toString();
+    }
+
+    /** Two-way spanning tree edges, then {@code locations / 4} one-way shortcuts. */
+    private List<String> edges(Random random) {
+        List<String> edges = new ArrayList<>();
+        for (int wp = 2; wp <= locations; wp++) {
+            int other = 1 + random.nextInt(wp - 1);
+            edges.add("connected wp" + wp + " wp" + other);
+            edges.add("connected wp" + other + " wp" + wp);
+        }
+        for (int i = 0; i < locations / 4; i++) {
+            int from = 1 + random.nextInt(locations);
+            int to = 1 + random.nextInt(locations);
+            String edge = "connected wp" + from + " wp" + to;
+            if (from != to && !edges.contains(edge)) {
+                edges.add(edge);
+            }
+        }
+        return edges;
+    }
+
+    private static void objects(StringBuilder sb, String prefix, int count, String type) {
+        if (count == 0) {
+            return;
+        }
+        sb.append("       ");
+        for (int i = 1; i <= count; i++) {
+            sb.append(' ').append(prefix).append(i);
+        }
+        sb.append(" - ").append(type).append('\n');
+    }
+
+    private static void fact(StringBuilder sb, String atom) {
+        sb.append("        (").append(atom).append(")\n");
+    }
+
+    /**
+     * Writes {@code -n} problems {@code <prefix>1.pddl, <prefix>2.pddl, ...}
+     * into the directory given by {@code -o} (default: current directory).
+     */
+    public static void main(String[] args) throws IOException {
+        int locations = 20;
+        int crews = 3;
+        int images = 5;
+        int scans = 5;
+        int samples = 3;
+        int count = 1;
+        long seed = 1;
+        String prefix = "lunar";
+        Path dir = Path.of(".");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-l":
+                    locations = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-r":
+                    crews = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-i":
+                    images = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-c":
+                    scans = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-m":
+                    samples = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-n":
+                    count = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-S":
+                    seed = Long.parseLong(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-p":
+                    prefix = CommandLine.requireValue(args, ++i);
+                    break;
+                case "-o":
+                    dir = Path.of(CommandLine.requireValue(args, ++i));
+                    break;
+                default:
+                    System.err.println("Usage: java planner.LunarProblemGenerator [-l locations] [-r crews] [-i images]"
+                            + " [-c scans] [-m samples] [-n count] [-S seed] [-p prefix] [-o dir]");
+                    System.exit(2);
+            }
+        }
+
+        LunarProblemGenerator generator = new LunarProblemGenerator(locations, crews, images, scans, samples);
+        Random random = new Random(seed);
+        Files.createDirectories(dir);
+        for (int k = 1; k <= count; k++) {
+            Path file = dir.resolve(prefix + k + ".pddl");
+            try (PrintStream out = new PrintStream(file.toFile(), StandardCharsets.UTF_8)) {
+                out.print(generator.generate(prefix + "-" + k, random));
+            }
+            System.err.println("Wrote " + file);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package planner;
+
+import java.util.Arrays;
+
+/** Binary min-heap of (key, state id) pairs in two primitive arrays. */
+final class OpenList {
+
+    private long[] keys = new long[1024];
+    private int[] ids = new int[1024];
+    private int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Bytes held by the key and id arrays. */
+    long bytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    void push(long key, int id) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            keys[i] = keys[parent];
+            ids[i] = ids[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        ids[i] = id;
+    }
+
+    /** Key of the minimum entry. */
+    long peekKey() {
+        return keys[0];
+    }
+
+    /** Removes the minimum entry and returns its id. */
+    int pop() {
+        int result = ids[0];
+        long lastKey = keys[--size];
+        int lastId = ids[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+            if (lastKey <= keys[child]) break;
+            keys[i] = keys[child];
+            ids[i] = ids[child];
+            i = child;
+        }
+        if (size > 0) {
+            keys[i] = lastKey;
+            ids[i] = lastId;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,342 @@
+package planner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parser for the PDDL subset used by the lunar missions:
+ * {@code :strips :typing :negative-preconditions :universal-preconditions}
+ * (plus {@code :equality}). Names are case-insensitive and returned in
+ * lower case; comments start with {@code ;}. Anything outside the subset
+ * ({@code or}, {@code exists}, conditional effects, ...) is rejected with
+ * an {@link IllegalArgumentException}.
+ */
+public final class PddlParser {
+
+    private static final Set<String> SUPPORTED_REQUIREMENTS = Set.of(
+            ":strips", ":typing", ":negative-preconditions", ":universal-preconditions", ":equality");
+
+    private PddlParser() {
+    }
+
+    public static Domain parseDomain(Path file) throws IOException {
+        return parseDomain(Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    public static Problem parseProblem(Path file) throws IOException {
+        return parseProblem(Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    /** Parses a {@code (define (domain ...) ...)} expression. */
+    public static Domain parseDomain(String text) {
+        List<Object> define = list(read(text), "domain definition");
+        expectHead(define, "define");
+        String name = header(define, "domain");
+
+        List<String> requirements = new ArrayList<>();
+        Map<String, String> parentTypes = new LinkedHashMap<>();
+        Map<String, String> constants = new LinkedHashMap<>();
+        Map<String, String[]> predicates = new LinkedHashMap<>();
+        List<Domain.Action> actions = new ArrayList<>();
+        parentTypes.put(Domain.OBJECT, null);
+
+        for (int i = 2; i < define.size(); i++) {
+            List<Object> section = list(define.get(i), "domain section");
+            String key = symbol(section.get(0));
+            List<Object> body = section.subList(1, section.size());
+            switch (key) {
+                case ":requirements":
+                    for (Object r : body) {
+                        String req = symbol(r);
+                        if (!SUPPORTED_REQUIREMENTS.contains(req)) {
+                            throw new IllegalArgumentException("Unsupported requirement " + req + ".");
+                        }
+                        requirements.add(req);
+                    }
+                    break;
+                case ":types":
+                    typedList(body, (type, parent) -> {
+                        if (!type.equals(Domain.OBJECT)) {
+                            parentTypes.put(type, parent);
+                        }
+                    });
+                    parentTypes.putIfAbsent(Domain.OBJECT, null);
+                    break;
+                case ":constants":
+                    typedList(body, constants::put);
+                    break;
+                case ":predicates":
+                    for (Object p : body) {
+                        List<Object> decl = list(p, "predicate");
+                        List<String> types = new ArrayList<>();
+                        typedList(decl.subList(1, decl.size()), (v, t) -> types.add(t));
+                        predicates.put(symbol(decl.get(0)), types.toArray(new String[0]));
+                    }
+                    break;
+                case ":action":
+                    actions.add(action(body));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported domain section " + key + ".");
+            }
+        }
+        for (Map.Entry<String, String> e : parentTypes.entrySet()) {
+            if (e.getValue() != null && !parentTypes.containsKey(e.getValue())) {
+                throw new IllegalArgumentException("Unknown parent type " + e.getValue() + " of " + e.getKey() + ".");
+            }
+        }
+        return new Domain(name, requirements, parentTypes, constants, predicates, actions);
+    }
+
+    /** Parses a {@code (define (problem ...) ...)} expression. */
+    public static Problem parseProblem(String text) {
+        List<Object> define = list(read(text), "problem definition");
+        expectHead(define, "define");
+        String name = header(define, "problem");
+
+        String domainName = null;
+        Map<String, String> objects = new LinkedHashMap<>();
+        List<String[]> init = new ArrayList<>();
+        Formula goal = null;
+        for (int i = 2; i < define.size(); i++) {
+            List<Object> section = list(define.get(i), "problem section");
+            String key = symbol(section.get(0));
+            List<Object> body = section.subList(1, section.size());
+            switch (key) {
+                case ":domain":
+                    domainName = symbol(body.get(0));
+                    break;
+                case ":objects":
+                    typedList(body, objects::put);
+                    break;
+                case ":init":
+                    for (Object fact : body) {
+                        Formula f = formula(fact);
+                        if (f.getKind() == Formula.Kind.ATOM) {
+                            String[] atom = new String[f.args().length + 1];
+                            atom[0] = f.getPredicate();
+                            System.arraycopy(f.args(), 0, atom, 1, f.args().length);
+                            init.add(atom);
+                        } else if (f.getKind() != Formula.Kind.NOT
+                                || f.getChildren().get(0).getKind() != Formula.Kind.ATOM) {
+                            throw new IllegalArgumentException("Initial state may only contain literals: " + f);
+                        }
+                        // negated init atoms are implied by the closed-world assumption
+                    }
+                    break;
+                case ":goal":
+                    goal = formula(body.get(0));
+                    break;
+                case ":requirements":
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported problem section " + key + ".");
+            }
+        }
+        if (goal == null) {
+            throw new IllegalArgumentException("Problem " + name + " has no goal.");
+        }
+        return new Problem(name, domainName, objects, init, goal);
+    }
+
+    private static Domain.Action action(List<Object> body) {
+        String name = symbol(body.get(0));
+        List<String> params = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        Formula precondition = Formula.TRUE;
+        Formula effect = Formula.TRUE;
+        for (int i = 1; i + 1 < body.size(); i += 2) {
+            String key = symbol(body.get(i));
+            Object value = body.get(i + 1);
+            switch (key) {
+                case ":parameters":
+                    typedList(list(value, "parameters"), (v, t) -> {
+                        params.add(v);
+                        types.add(t);
+                    });
+                    break;
+                case ":precondition":
+                    precondition = formula(value);
+                    break;
+                case ":effect":
+                    effect = formula(value);
+                    checkEffect(effect, name);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported action field " + key + " in " + name + ".");
+            }
+        }
+        return new Domain.Action(name, params.toArray(new String[0]), types.toArray(new String[0]),
+                precondition, effect);
+    }
+
+    /** Effects must be conjunctions of literals. */
+    private static void checkEffect(Formula effect, String action) {
+        switch (effect.getKind()) {
+            case TRUE:
+            case ATOM:
+                return;
+            case NOT:
+                if (effect.getChildren().get(0).getKind() == Formula.Kind.ATOM) {
+                    return;
+                }
+                break;
+            case AND:
+                for (Formula child : effect.getChildren()) {
+                    checkEffect(child, action);
+                }
+                return;
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("Unsupported effect in " + action + ": " + effect);
+    }
+
+    private static Formula formula(Object expr) {
+        List<Object> l = list(expr, "formula");
+        if (l.isEmpty()) {
+            return Formula.TRUE;
+        }
+        String head = symbol(l.get(0));
+        switch (head) {
+            case "and": {
+                List<Formula> children = new ArrayList<>();
+                for (int i = 1; i < l.size(); i++) {
+                    children.add(formula(l.get(i)));
+                }
+                return Formula.and(children);
+            }
+            case "not":
+                if (l.size() != 2) {
+                    throw new IllegalArgumentException("'not' takes one operand: " + l);
+                }
+                return Formula.not(formula(l.get(1)));
+            case "forall": {
+                List<String[]> vars = new ArrayList<>();
+                typedList(list(l.get(1), "forall variables"), (v, t) -> vars.add(new String[]{v, t}));
+                Formula body = formula(l.get(2));
+                for (int i = vars.size() - 1; i >= 0; i--) {
+                    body = Formula.forall(vars.get(i)[0], vars.get(i)[1], body);
+                }
+                return body;
+            }
+            case "or":
+            case "imply":
+            case "exists":
+            case "when":
+                throw new IllegalArgumentException("Unsupported PDDL construct '" + head + "'.");
+            default: {
+                String[] args = new String[l.size() - 1];
+                for (int i = 1; i < l.size(); i++) {
+                    args[i - 1] = symbol(l.get(i));
+                }
+                return Formula.atom(head, args);
+            }
+        }
+    }
+
+    /** Typed list {@code a b - t c - u d}: untyped names belong to {@code object}. */
+    private static void typedList(List<Object> items, java.util.function.BiConsumer<String, String> sink) {
+        List<String> pending = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            String s = symbol(items.get(i));
+            if (s.equals("-")) {
+                if (i + 1 >= items.size()) {
+                    throw new IllegalArgumentException("Missing type after '-'.");
+                }
+                Object type = items.get(++i);
+                if (type instanceof List) {
+                    throw new IllegalArgumentException("Unsupported type expression " + type + ".");
+                }
+                for (String name : pending) {
+                    sink.accept(name, symbol(type));
+                }
+                pending.clear();
+            } else {
+                pending.add(s);
+            }
+        }
+        for (String name : pending) {
+            sink.accept(name, Domain.OBJECT);
+        }
+    }
+
+    private static String header(List<Object> define, String kind) {
+        List<Object> h = list(define.get(1), kind + " header");
+        expectHead(h, kind);
+        return symbol(h.get(1));
+    }
+
+    private static void expectHead(List<Object> l, String head) {
+        if (l.isEmpty() || !head.equals(l.get(0))) {
+            throw new IllegalArgumentException("Expected (" + head + " ...) but found " + l + ".");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> list(Object o, String what) {
+        if (!(o instanceof List)) {
+            throw new IllegalArgumentException("Expected a list for " + what + " but found " + o + ".");
+        }
+        return (List<Object>) o;
+    }
+
+    private static String symbol(Object o) {
+        if (!(o instanceof String)) {
+            throw new IllegalArgumentException("Expected a name but found " + o + ".");
+        }
+        return (String) o;
+    }
+
+    /** Reads one S-expression; nested lists become {@code List<Object>}, names lower-case strings. */
+    private static Object read(String text) {
+        List<List<Object>> stack = new ArrayList<>();
+        Object result = null;
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == ';') {
+                while (i < n && text.charAt(i) != '\n') i++;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(') {
+                stack.add(new ArrayList<>());
+                i++;
+            } else if (c == ')') {
+                if (stack.isEmpty()) {
+                    throw new IllegalArgumentException("Unbalanced ')' at offset " + i + ".");
+                }
+                List<Object> done = stack.remove(stack.size() - 1);
+                if (stack.isEmpty()) {
+                    if (result != null) {
+                        throw new IllegalArgumentException("More than one expression in input.");
+                    }
+                    result = done;
+                } else {
+                    stack.get(stack.size() - 1).add(done);
+                }
+                i++;
+            } else {
+                int start = i;
+                while (i < n && !Character.isWhitespace(text.charAt(i)) && "();".indexOf(text.charAt(i)) < 0) i++;
+                if (stack.isEmpty()) {
+                    throw new IllegalArgumentException("Unexpected token outside parentheses: " + text.substring(start, i));
+                }
+                stack.get(stack.size() - 1).add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            }
+        }
+        if (!stack.isEmpty() || result == null) {
+            throw new IllegalArgumentException("Unbalanced '(' in input.");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,115 @@
+package planner;
+
+import java.util.List;
+
+/** Result of a {@link Planner} run: the plan (if found) and search statistics. */
+public final class Plan {
+
+    /** How a search ended. */
+    public enum Status {
+        /** A plan was found. */
+        SOLVED,
+        /** The reachable state space was exhausted; the task has no plan. */
+        UNSOLVABLE,
+        /** {@link Planner#cancel()} was called. */
+        CANCELLED,
+        /** The expansion or time budget ran out before the search finished. */
+        BUDGET_EXCEEDED
+    }
+
+    private final Status status;
+    private final List<Task.Operator> steps;
+    private final long expanded;
+    private final long generated;
+    private final long evaluated;
+    private final long states;
+    private final long storeBytes;
+    private final long openBytes;
+    private final long nanos;
+
+    Plan(Status status, List<Task.Operator> steps, long expanded, long generated, long evaluated, long states,
+         long storeBytes, long openBytes, long nanos) {
+        if ((status == Status.SOLVED) != (steps != null)) {
+            throw new IllegalArgumentException("Steps must be given exactly for SOLVED results.");
+        }
+        this.status = status;
+        this.steps = steps == null ? null : List.copyOf(steps);
+        this.expanded = expanded;
+        this.generated = generated;
+        this.evaluated = evaluated;
+        this.states = states;
+        this.storeBytes = storeBytes;
+        this.openBytes = openBytes;
+        this.nanos = nanos;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** Returns true if a plan was found. */
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    /** Returns the operators of the plan in order, or null if none was found. */
+    public List<Task.Operator> getSteps() {
+        return steps;
+    }
+
+    public int getLength() {
+        return steps == null ? -1 : steps.size();
+    }
+
+    public long getExpanded() {
+        return expanded;
+    }
+
+    public long getGenerated() {
+        return generated;
+    }
+
+    /** Number of heuristic evaluations. */
+    public long getEvaluated() {
+        return evaluated;
+    }
+
+    /** Number of distinct states stored in the closed list. */
+    public long getStates() {
+        return states;
+    }
+
+    /** Memory held by the closed list (records and hash table) at the end of the search. */
+    public long getStoreBytes() {
+        return storeBytes;
+    }
+
+    /** Memory held by the open list's arrays at the end of the search. */
+    public long getOpenBytes() {
+        return openBytes;
+    }
+
+    /**
+     * Peak memory of the search structures: closed and open list only grow,
+     * so their final size is their peak.
+     */
+    public long getPeakBytes() {
+        return storeBytes + openBytes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    /** Returns the plan in IPC format, one {@code (action args)} per line. */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        if (steps != null) {
+            for (Task.Operator op : steps) {
+                sb.append(op.getName()).append('\n');
+            }
+            sb.append("; cost = ").append(steps.size()).append(" (unit cost)\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,297 @@
+package planner;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Forward state-space planner for grounded {@link Task}s.
+ * <ul>
+ *     <li>{@code GBFS} — greedy best-first search on h, ties broken first in first out;
+ *     states are goal-tested when generated and never reopened</li>
+ *     <li>{@code ASTAR} — A* on g + h with reopening; optimal with {@code MAX},
+ *     which is admissible, while {@code ADD} and {@code FF} trade optimality for speed</li>
+ * </ul>
+ * With {@code EAGER} evaluation every new successor is evaluated with a
+ * {@link RelaxedHeuristic} and states the relaxation proves dead are pruned;
+ * with {@code LAZY} evaluation successors are queued with their parent's
+ * estimate (A*: minus one, a lower bound for the consistent h_max) and a
+ * state is evaluated only when it is expanded, which saves evaluations on
+ * the many successors that are never expanded. Lazy A* remembers every
+ * computed h by state id and requeues a state whose real f exceeds its key. States are packed {@code long[]} bitsets
+ * kept in a {@link StateStore} and referenced by id from a primitive
+ * {@link OpenList}, so a generated state costs a few dozen bytes. A running
+ * search can be stopped from another thread with {@link #cancel()}, and
+ * {@link #setBudget} bounds expansions and time.
+ */
+public final class Planner {
+
+    /** Search algorithms. */
+    public enum Search {
+        GBFS,
+        ASTAR
+    }
+
+    /** When successors are evaluated. */
+    public enum Evaluation {
+        EAGER,
+        LAZY
+    }
+
+    private final Task task;
+    private final Search search;
+    private final Evaluation evaluation;
+    private final RelaxedHeuristic heuristic;
+    private final boolean offHeap;
+
+    private long maxExpansions = Long.MAX_VALUE;
+    private long timeoutNanos = Long.MAX_VALUE;
+    private volatile boolean cancelled;
+
+    public Planner(Task task, Search search, RelaxedHeuristic.Kind heuristic) {
+        this(task, search, heuristic, Evaluation.EAGER, false);
+    }
+
+    public Planner(Task task, Search search, RelaxedHeuristic.Kind heuristic, boolean offHeap) {
+        this(task, search, heuristic, Evaluation.EAGER, offHeap);
+    }
+
+    /**
+     * @param offHeap keep the closed list's state records in direct buffers
+     *                outside the Java heap
+     */
+    public Planner(Task task, Search search, RelaxedHeuristic.Kind heuristic, Evaluation evaluation,
+                   boolean offHeap) {
+        this.task = task;
+        this.search = search;
+        this.evaluation = evaluation;
+        this.heuristic = new RelaxedHeuristic(task, heuristic);
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Bounds the next searches; the result is {@code BUDGET_EXCEEDED} when a
+     * bound is hit. Non-positive values mean unbounded.
+     */
+    public void setBudget(long maxExpansions, long timeoutMillis) {
+        this.maxExpansions = maxExpansions > 0 ? maxExpansions : Long.MAX_VALUE;
+        this.timeoutNanos = timeoutMillis > 0 ? timeoutMillis * 1_000_000L : Long.MAX_VALUE;
+    }
+
+    /** Stops a running search (from any thread); it returns {@code CANCELLED}. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /** Runs the search; the result holds the plan, or the reason why there is none. */
+    public Plan solve() {
+        long start = System.nanoTime();
+        long deadline = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : start + timeoutNanos;
+        long expanded = 0;
+        long generated = 0;
+        long evaluated = 1;
+        long order = 0;
+        boolean gbfs = search == Search.GBFS;
+        boolean lazy = evaluation == Evaluation.LAZY;
+        int[] known = lazy && !gbfs ? new int[1024] : null;  // h + 1 by state id, 0 if not evaluated
+
+        // GBFS orders by h, then first in first out; A* by f, then h. A* keys
+        // also record the g at push time, so stale entries can be skipped.
+        StateStore store = new StateStore(task.words, offHeap);
+        OpenList open = new OpenList();
+        long[] current = task.initialState();
+        long[] next = new long[task.words];
+
+        int h0 = heuristic.evaluate(current);
+        int root = store.insert(current, -1, -1, 0);
+        if (h0 == RelaxedHeuristic.DEAD_END) {
+            return result(Plan.Status.UNSOLVABLE, -1, expanded, generated, evaluated, store, open, start);
+        }
+        if (task.isGoal(current)) {
+            return result(Plan.Status.SOLVED, root, expanded, generated, evaluated, store, open, start);
+        }
+        open.push(gbfs ? key(h0, order++) : key(h0, h0), root);
+
+        while (!open.isEmpty()) {
+            if (cancelled) {
+                return result(Plan.Status.CANCELLED, -1, expanded, generated, evaluated, store, open, start);
+            }
+            if (expanded >= maxExpansions || ((expanded & 63) == 0 && deadline != Long.MAX_VALUE
+                    && System.nanoTime() - deadline > 0)) {
+                return result(Plan.Status.BUDGET_EXCEEDED, -1, expanded, generated, evaluated, store, open, start);
+            }
+            long key = open.peekKey();
+            int id = open.pop();
+            int g = store.g(id);
+            int h = gbfs ? (int) (key >>> 32) : (int) key;
+            if (!gbfs && (int) (key >>> 32) - h != g) {
+                continue;  // a cheaper path to this state was found later
+            }
+            store.load(id, current);
+            if (!gbfs && task.isGoal(current)) {
+                return result(Plan.Status.SOLVED, id, expanded, generated, evaluated, store, open, start);
+            }
+            if (lazy && id != root) {
+                int real;
+                if (known != null && id < known.length && known[id] != 0) {
+                    real = known[id] - 1;
+                } else {
+                    real = heuristic.evaluate(current);
+                    evaluated++;
+                    if (known != null && real != RelaxedHeuristic.DEAD_END) {
+                        if (id >= known.length) {
+                            known = Arrays.copyOf(known, Math.max(id + 1, known.length * 2));
+                        }
+                        known[id] = real + 1;
+                    }
+                }
+                if (real == RelaxedHeuristic.DEAD_END) {
+                    continue;
+                }
+                if (!gbfs && real > h) {
+                    open.push(key(g + real, real), id);  // its estimate was too low
+                    continue;
+                }
+                h = real;
+            }
+            expanded++;
+
+            for (int o = 0; o < task.operators.length; o++) {
+                Task.Operator op = task.operators[o];
+                if (!task.isApplicable(op, current)) continue;
+                task.apply(op, current, next);
+                generated++;
+                int child = store.insert(next, id, o, g + 1);
+                if (child < 0) {
+                    child = ~child;
+                    if (gbfs || store.g(child) <= g + 1) {
+                        continue;
+                    }
+                    store.update(child, id, o, g + 1);  // reopened by A*
+                }
+                int hc;
+                if (lazy) {
+                    hc = gbfs ? h : Math.max(h - 1, 0);
+                    if (known != null && child < known.length && known[child] != 0) {
+                        hc = known[child] - 1;
+                    }
+                } else {
+                    hc = heuristic.evaluate(next);
+                    evaluated++;
+                    if (hc == RelaxedHeuristic.DEAD_END) {
+                        continue;
+                    }
+                }
+                if (gbfs) {
+                    if (task.isGoal(next)) {
+                        return result(Plan.Status.SOLVED, child, expanded, generated, evaluated, store, open, start);
+                    }
+                    open.push(key(hc, order++), child);
+                } else {
+                    open.push(key(g + 1 + hc, hc), child);
+                }
+            }
+        }
+        return result(Plan.Status.UNSOLVABLE, -1, expanded, generated, evaluated, store, open, start);
+    }
+
+    private static long key(int primary, long secondary) {
+        return ((long) primary << 32) | secondary;
+    }
+
+    private Plan result(Plan.Status status, int goal, long expanded, long generated, long evaluated,
+                        StateStore store, OpenList open, long start) {
+        List<Task.Operator> steps = null;
+        if (goal >= 0) {
+            steps = new ArrayList<>();
+            for (int id = goal; store.parent(id) >= 0; id = store.parent(id)) {
+                steps.add(task.operators[store.op(id)]);
+            }
+            Collections.reverse(steps);
+        }
+        return new Plan(status, steps, expanded, generated, evaluated, store.size(), store.bytes(), open.bytes(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Parses, grounds and solves a PDDL problem, writing the plan to standard
+     * output (or {@code -o file}) and statistics to standard error. With
+     * {@code -d} the closed list is kept off-heap; {@code -t} limits the
+     * search time in seconds.
+     */
+    public static void main(String[] args) throws IOException {
+        Search search = Search.GBFS;
+        RelaxedHeuristic.Kind kind = RelaxedHeuristic.Kind.FF;
+        Evaluation evaluation = Evaluation.EAGER;
+        long timeoutMillis = 0;
+        String output = null;
+        boolean offHeap = false;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-s":
+                    search = Search.valueOf(CommandLine.requireValue(args, ++i).toUpperCase(Locale.ROOT));
+                    break;
+                case "-H":
+                    kind = RelaxedHeuristic.Kind.valueOf(CommandLine.requireValue(args, ++i).toUpperCase(Locale.ROOT));
+                    break;
+                case "-e":
+                    evaluation = Evaluation.valueOf(CommandLine.requireValue(args, ++i).toUpperCase(Locale.ROOT));
+                    break;
+                case "-t":
+                    timeoutMillis = Math.round(Double.parseDouble(CommandLine.requireValue(args, ++i)) * 1000);
+                    break;
+                case "-o":
+                    output = CommandLine.requireValue(args, ++i);
+                    break;
+                case "-d":
+                    offHeap = true;
+                    break;
+                default:
+                    files.add(args[i]);
+            }
+        }
+        if (files.size() != 2) {
+            System.err.println("Usage: java planner.Planner [-s gbfs|astar] [-H ff|add|max] [-e eager|lazy] [-t seconds] [-o plan.txt] [-d] domain.pddl problem.pddl");
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        Domain domain = PddlParser.parseDomain(Path.of(files.get(0)));
+        Problem problem = PddlParser.parseProblem(Path.of(files.get(1)));
+        Task task = Grounder.ground(domain, problem);
+        long groundNanos = System.nanoTime() - start;
+
+        Planner planner = new Planner(task, search, kind, evaluation, offHeap);
+        planner.setBudget(0, timeoutMillis);
+        Plan plan = planner.solve();
+        if (plan.isSolved()) {
+            String error = task.validate(plan.getSteps());
+            if (error != null) {
+                throw new IllegalStateException("Invalid plan: " + error);
+            }
+            try (PrintStream out = output == null ? null : new PrintStream(output, StandardCharsets.UTF_8)) {
+                (out == null ? System.out : out).print(plan.toText());
+            }
+        }
+        System.err.printf("Facts: %d | Operators: %d | Grounding: %.1f ms%n",
+                task.getFactCount(), task.getOperatorCount(), groundNanos / 1e6);
+        System.err.printf("%s/%s/%s: %s | Plan length: %d | Expanded: %d | Generated: %d | Evaluated: %d | %.1f ms%n",
+                search.name().toLowerCase(Locale.ROOT), kind.name().toLowerCase(Locale.ROOT),
+                evaluation.name().toLowerCase(Locale.ROOT), plan.getStatus().name().toLowerCase(Locale.ROOT),
+                plan.getLength(), plan.getExpanded(),
+                plan.getGenerated(), plan.getEvaluated(), plan.getNanos() / 1e6);
+        System.err.printf("States: %d | State store: %.1f MB%s | Open list: %.1f MB | %d bytes per record%n",
+                plan.getStates(), plan.getStoreBytes() / 1e6, offHeap ? " off-heap" : "", plan.getOpenBytes() / 1e6,
+                Long.BYTES * (task.getStateWords() + 2));
+        if (!plan.isSolved()) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package planner;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs several planner configurations on the same task concurrently, one
+ * {@link Planner} per configuration on a fixed pool (by default one thread
+ * per core). In {@code FIRST} mode the first plan found wins and the other
+ * searches are cancelled; in {@code BEST} mode every search runs to its end
+ * or budget and the shortest plan wins. Either way the remaining searches
+ * are cancelled as soon as nothing better can come: an A* search with h_max
+ * proved its plan optimal, or a complete search proved the task unsolvable.
+ * Every run records its status, plan length, expansions, time, the peak size
+ * of its open and closed lists and the bytes its thread allocated.
+ */
+public final class PlannerPortfolio {
+
+    /** Which plan wins. */
+    public enum Mode {
+        FIRST,
+        BEST
+    }
+
+    /** One search configuration, written {@code search-heuristic-evaluation}, e.g. {@code gbfs-ff-lazy}. */
+    public static final class Config {
+
+        final Planner.Search search;
+        final RelaxedHeuristic.Kind heuristic;
+        final Planner.Evaluation evaluation;
+
+        public Config(Planner.Search search, RelaxedHeuristic.Kind heuristic, Planner.Evaluation evaluation) {
+            this.search = search;
+            this.heuristic = heuristic;
+            this.evaluation = evaluation;
+        }
+
+        /** Parses {@code search-heuristic[-evaluation]}; the evaluation defaults to eager. */
+        public static Config parse(String text) {
+            String[] parts = text.trim().toUpperCase(Locale.ROOT).split("-");
+            if (parts.length < 2 || parts.length > 3) {
+                throw new IllegalArgumentException("Expected search-heuristic[-evaluation]: " + text);
+            }
+            try {
+                return new Config(Planner.Search.valueOf(parts[0]), RelaxedHeuristic.Kind.valueOf(parts[1]),
+                        parts.length == 3 ? Planner.Evaluation.valueOf(parts[2]) : Planner.Evaluation.EAGER);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown configuration: " + text, e);
+            }
+        }
+
+        /** A* with the admissible h_max: its plans are optimal. */
+        public boolean isOptimal() {
+            return search == Planner.Search.ASTAR && heuristic == RelaxedHeuristic.Kind.MAX;
+        }
+
+        @Override
+        public String toString() {
+            return (search + "-" + heuristic + "-" + evaluation).toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Outcome of one configuration. */
+    public static final class Run {
+
+        private final Config config;
+        private final Plan plan;
+        private final long allocatedBytes;
+
+        Run(Config config, Plan plan, long allocatedBytes) {
+            this.config = config;
+            this.plan = plan;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public Config getConfig() {
+            return config;
+        }
+
+        public Plan getPlan() {
+            return plan;
+        }
+
+        /** Bytes allocated on the Java heap by the search thread, or -1 if the JVM cannot tell. */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    /** Outcome of a portfolio solve: every run in completion order and the winner. */
+    public static final class Result {
+
+        private final List<Run> runs;
+        private final Run winner;
+        private final long nanos;
+
+        Result(List<Run> runs, Run winner, long nanos) {
+            this.runs = List.copyOf(runs);
+            this.winner = winner;
+            this.nanos = nanos;
+        }
+
+        public List<Run> getRuns() {
+            return runs;
+        }
+
+        /** The run whose plan won, or null if no configuration found one. */
+        public Run getWinner() {
+            return winner;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    private final List<Config> configs;
+    private final Mode mode;
+    private final int threads;
+    private long maxExpansions;
+    private long timeoutMillis;
+
+    /**
+     * @param threads pool size; at most one thread per configuration is used
+     */
+    public PlannerPortfolio(List<Config> configs, Mode mode, int threads) {
+        if (configs.isEmpty()) {
+            throw new IllegalArgumentException("At least one configuration is required.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.configs = List.copyOf(configs);
+        this.mode = mode;
+        this.threads = Math.min(threads, configs.size());
+    }
+
+    /** GBFS and A* with the FF and additive/max heuristics, each eager and lazy. */
+    public static List<Config> defaultConfigs() {
+        List<Config> configs = new ArrayList<>();
+        for (String text : new String[] {"gbfs-ff", "gbfs-add", "astar-ff", "astar-max"}) {
+            for (Planner.Evaluation evaluation : Planner.Evaluation.values()) {
+                Config base = Config.parse(text);
+                configs.add(new Config(base.search, base.heuristic, evaluation));
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * Bounds every configuration's search (time counts from its own start).
+     * Non-positive values mean unbounded.
+     */
+    public void setBudget(long maxExpansions, long timeoutMillis) {
+        this.maxExpansions = maxExpansions;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /** Runs all configurations on {@code task}; plans are validated before they can win. */
+    public Result solve(Task task) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Planner> planners = new ArrayList<>();
+        for (Config config : configs) {
+            Planner planner = new Planner(task, config.search, config.heuristic, config.evaluation, false);
+            planner.setBudget(maxExpansions, timeoutMillis);
+            planners.add(planner);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "planner-portfolio");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Run> runs = new ArrayList<>();
+        Run winner = null;
+        try {
+            CompletionService<Run> done = new ExecutorCompletionService<>(pool);
+            for (int i = 0; i < configs.size(); i++) {
+                Config config = configs.get(i);
+                Planner planner = planners.get(i);
+                done.submit(() -> {
+                    long allocated = allocatedBytes();
+                    Plan plan = planner.solve();
+                    return new Run(config, plan, allocated < 0 ? -1 : allocatedBytes() - allocated);
+                });
+            }
+            for (int i = 0; i < configs.size(); i++) {
+                Run run = done.take().get();
+                runs.add(run);
+                Plan plan = run.plan;
+                boolean stop = false;
+                if (plan.isSolved()) {
+                    String error = task.validate(plan.getSteps());
+                    if (error != null) {
+                        throw new IllegalStateException("Invalid plan from " + run.config + ": " + error);
+                    }
+                    if (winner == null || plan.getLength() < winner.plan.getLength()) {
+                        winner = run;
+                    }
+                    stop = mode == Mode.FIRST || run.config.isOptimal();
+                } else if (plan.getStatus() == Plan.Status.UNSOLVABLE) {
+                    stop = true;
+                }
+                if (stop) {
+                    planners.forEach(Planner::cancel);
+                }
+            }
+        } catch (ExecutionException e) {
+            planners.forEach(Planner::cancel);
+            throw new IllegalStateException("Planner run failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Result(runs, winner, System.nanoTime() - start);
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Runs the portfolio over a suite of problems and writes a JSON report to
+     * standard output (or {@code -o file}), with a summary on standard error.
+     * Each {@code -D domain.pddl} applies to the problem files after it, so
+     * one call can cover {@code domain.pddl} and {@code domain-ext.pddl}
+     * problems. With {@code -P dir} the winning plans are written as
+     * {@code <problem>.plan}.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<Config> configs = defaultConfigs();
+        Mode mode = Mode.FIRST;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long timeoutMillis = 0;
+        long maxExpansions = 0;
+        String output = null;
+        Path planDir = null;
+        Path domainFile = null;
+        List<Path[]> suite = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-c":
+                    configs = new ArrayList<>();
+                    for (String text : CommandLine.requireValue(args, ++i).split(",")) {
+                        configs.add(Config.parse(text));
+                    }
+                    break;
+                case "-m":
+                    mode = Mode.valueOf(CommandLine.requireValue(args, ++i).toUpperCase(Locale.ROOT));
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-t":
+                    timeoutMillis = Math.round(Double.parseDouble(CommandLine.requireValue(args, ++i)) * 1000);
+                    break;
+                case "-x":
+                    maxExpansions = Long.parseLong(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-o":
+                    output = CommandLine.requireValue(args, ++i);
+                    break;
+                case "-P":
+                    planDir = Path.of(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-D":
+                    domainFile = Path.of(CommandLine.requireValue(args, ++i));
+                    break;
+                default:
+                    if (domainFile == null) {
+                        throw new IllegalArgumentException("No domain (-D) given before problem " + args[i]);
+                    }
+                    suite.add(new Path[] {domainFile, Path.of(args[i])});
+            }
+        }
+        if (suite.isEmpty()) {
+            System.err.println("Usage: java planner.PlannerPortfolio [-c gbfs-ff-lazy,astar-max,...] [-m first|best]"
+                    + " [-j threads] [-t seconds] [-x expansions] [-o report.json] [-P plan-dir]"
+                    + " -D domain.pddl problem.pddl... [-D domain.pddl problem.pddl...]");
+            System.exit(2);
+        }
+
+        PlannerPortfolio portfolio = new PlannerPortfolio(configs, mode, threads);
+        portfolio.setBudget(maxExpansions, timeoutMillis);
+        if (planDir != null) {
+            Files.createDirectories(planDir);
+        }
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"mode\": ").append(quote(mode.name().toLowerCase(Locale.ROOT)))
+                .append(",\n  \"threads\": ").append(portfolio.threads)
+                .append(",\n  \"timeoutMs\": ").append(timeoutMillis)
+                .append(",\n  \"maxExpansions\": ").append(maxExpansions)
+                .append(",\n  \"problems\": [");
+        int solved = 0;
+        for (int p = 0; p < suite.size(); p++) {
+            Path domainPath = suite.get(p)[0];
+            Path problemPath = suite.get(p)[1];
+            long start = System.nanoTime();
+            Domain domain = PddlParser.parseDomain(domainPath);
+            Problem problem = PddlParser.parseProblem(problemPath);
+            Task task = Grounder.ground(domain, problem);
+            long groundNanos = System.nanoTime() - start;
+
+            List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                    heapPools.add(pool);
+                }
+            }
+            Result result = portfolio.solve(task);
+            long heapPeak = 0;
+            for (MemoryPoolMXBean pool : heapPools) {
+                heapPeak += pool.getPeakUsage().getUsed();
+            }
+
+            Run winner = result.getWinner();
+            if (winner != null) {
+                solved++;
+                if (planDir != null) {
+                    String name = problemPath.getFileName().toString().replaceFirst("\\.pddl$", "");
+                    Files.writeString(planDir.resolve(name + ".plan"), winner.plan.toText(), StandardCharsets.UTF_8);
+                }
+            }
+            System.err.printf("%s: %s | Facts: %d | Operators: %d | Grounding: %.1f ms | Portfolio: %.1f ms%n",
+                    problemPath, winner == null ? "no plan" : winner.config + ", plan length " + winner.plan.getLength(),
+                    task.getFactCount(), task.getOperatorCount(), groundNanos / 1e6, result.getNanos() / 1e6);
+
+            json.append(p == 0 ? "\n" : ",\n").append("    {\n")
+                    .append("      \"domain\": ").append(quote(domainPath.toString())).append(",\n")
+                    .append("      \"problem\": ").append(quote(problemPath.toString())).append(",\n")
+                    .append("      \"facts\": ").append(task.getFactCount()).append(",\n")
+                    .append("      \"operators\": ").append(task.getOperatorCount()).append(",\n")
+                    .append("      \"groundingMs\": ").append(millis(groundNanos)).append(",\n")
+                    .append("      \"portfolioMs\": ").append(millis(result.getNanos())).append(",\n")
+                    .append("      \"heapPeakBytes\": ").append(heapPeak).append(",\n")
+                    .append("      \"winner\": ").append(winner == null ? "null" : quote(winner.config.toString()))
+                    .append(",\n")
+                    .append("      \"planLength\": ").append(winner == null ? -1 : winner.plan.getLength())
+                    .append(",\n")
+                    .append("      \"runs\": [");
+            for (int r = 0; r < result.getRuns().size(); r++) {
+                Run run = result.getRuns().get(r);
+                Plan plan = run.plan;
+                json.append(r == 0 ? "\n" : ",\n").append("        {")
+                        .append("\"config\": ").append(quote(run.config.toString()))
+                        .append(", \"search\": ").append(quote(run.config.search.name().toLowerCase(Locale.ROOT)))
+                        .append(", \"heuristic\": ").append(quote(run.config.heuristic.name().toLowerCase(Locale.ROOT)))
+                        .append(", \"evaluation\": ")
+                        .append(quote(run.config.evaluation.name().toLowerCase(Locale.ROOT)))
+                        .append(", \"status\": ").append(quote(plan.getStatus().name().toLowerCase(Locale.ROOT)))
+                        .append(", \"planLength\": ").append(plan.getLength())
+                        .append(", \"expanded\": ").append(plan.getExpanded())
+                        .append(", \"generated\": ").append(plan.getGenerated())
+                        .append(", \"evaluated\": ").append(plan.getEvaluated())
+                        .append(", \"states\": ").append(plan.getStates())
+                        .append(", \"timeMs\": ").append(millis(plan.getNanos()))
+                        .append(", \"peakSearchBytes\": ").append(plan.getPeakBytes())
+                        .append(", \"allocatedBytes\": ").append(run.allocatedBytes)
+                        .append('}');
+                System.err.printf("    %-16s %-15s length %4d | expanded %8d | %9.1f ms | %7.1f MB search%n",
+                        run.config, plan.getStatus().name().toLowerCase(Locale.ROOT), plan.getLength(),
+                        plan.getExpanded(), plan.getNanos() / 1e6, plan.getPeakBytes() / 1e6);
+            }
+            json.append("\n      ]\n    }");
+        }
+        json.append("\n  ]\n}\n");
+
+        try (PrintStream out = output == null ? null : new PrintStream(output, StandardCharsets.UTF_8)) {
+            (out == null ? System.out : out).print(json);
+        }
+        System.err.printf("Solved %d of %d problems%n", solved, suite.size());
+        if (solved < suite.size()) {
+            System.exit(1);
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String quote(String text) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,49 @@
+package planner;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PDDL problem: objects, initial atoms (closed world, so negated init atoms
+ * are dropped) and goal. Created by {@link PddlParser#parseProblem}.
+ */
+public final class Problem {
+
+    private final String name;
+    private final String domainName;
+    private final Map<String, String> objects;
+    private final List<String[]> init;
+    private final Formula goal;
+
+    Problem(String name, String domainName, Map<String, String> objects, List<String[]> init, Formula goal) {
+        this.name = name;
+        this.domainName = domainName;
+        this.objects = Collections.unmodifiableMap(new LinkedHashMap<>(objects));
+        this.init = List.copyOf(init);
+        this.goal = goal;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDomainName() {
+        return domainName;
+    }
+
+    /** Maps each object to its type, in declaration order. */
+    public Map<String, String> getObjects() {
+        return objects;
+    }
+
+    /** Initial atoms as (predicate, args...) arrays. */
+    public List<String[]> getInit() {
+        return init;
+    }
+
+    public Formula getGoal() {
+        return goal;
+    }
+}
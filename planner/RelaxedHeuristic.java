@@ -0,0 +1,220 @@
+package planner;
+
+/**
+ * Delete-relaxation heuristics for unit-cost tasks: h_add, h_max and the
+ * FF heuristic (size of a relaxed plan extracted from the h_add best
+ * supporters). Negative preconditions and negative goals are ignored by the
+ * relaxation. One evaluation is a generalized Dijkstra over facts with
+ * precondition counters per operator; all buffers are allocated once, so an
+ * instance is not thread-safe.
+ */
+public final class RelaxedHeuristic {
+
+    /** Value for states from which the goal is unreachable even when relaxed. */
+    public static final int DEAD_END = Integer.MAX_VALUE;
+
+    /** Supported heuristics. */
+    public enum Kind {
+        ADD,
+        MAX,
+        FF
+    }
+
+    private static final int INF = Integer.MAX_VALUE;
+
+    private final Task task;
+    private final Kind kind;
+
+    /** Operators having each fact as a positive precondition. */
+    private final int[][] preOf;
+
+    private final int[] factCost;
+    private final int[] supporter;
+    private final int[] opCost;
+    private final int[] unsatisfied;
+
+    /** Binary heap of (cost << 32 | fact) entries; stale entries are skipped when popped. */
+    private final long[] heap;
+    private int heapSize;
+
+    // Relaxed plan extraction
+    private final int[] opMark;
+    private final int[] factMark;
+    private final int[] stack;
+    private int stamp;
+
+    public RelaxedHeuristic(Task task, Kind kind) {
+        this.task = task;
+        this.kind = kind;
+        int facts = task.getFactCount();
+        int ops = task.getOperatorCount();
+
+        int[] count = new int[facts];
+        long pushes = facts;
+        for (Task.Operator op : task.operators) {
+            for (int f : op.pre) {
+                count[f]++;
+            }
+            pushes += op.add.length;
+        }
+        preOf = new int[facts][];
+        for (int f = 0; f < facts; f++) {
+            preOf[f] = new int[count[f]];
+            count[f] = 0;
+        }
+        for (int o = 0; o < ops; o++) {
+            for (int f : task.operators[o].pre) {
+                preOf[f][count[f]++] = o;
+            }
+        }
+
+        factCost = new int[facts];
+        supporter = new int[facts];
+        opCost = new int[ops];
+        unsatisfied = new int[ops];
+        heap = new long[(int) Math.min(Integer.MAX_VALUE - 8, pushes + 1)];
+        opMark = new int[ops];
+        factMark = new int[facts];
+        stack = new int[facts];
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** Returns the heuristic value of a state, or {@link #DEAD_END}. */
+    public int evaluate(long[] state) {
+        int facts = factCost.length;
+        for (int f = 0; f < facts; f++) {
+            factCost[f] = INF;
+            supporter[f] = -1;
+        }
+        heapSize = 0;
+        for (int w = 0; w < state.length; w++) {
+            for (long bits = state[w]; bits != 0; bits &= bits - 1) {
+                int f = (w << 6) + Long.numberOfTrailingZeros(bits);
+                factCost[f] = 0;
+                push(0, f);
+            }
+        }
+        Task.Operator[] ops = task.operators;
+        for (int o = 0; o < ops.length; o++) {
+            unsatisfied[o] = ops[o].pre.length;
+            opCost[o] = 0;
+            if (unsatisfied[o] == 0) {
+                fire(o);
+            }
+        }
+
+        int goalsLeft = task.goal.length;
+        for (int f : task.goal) {
+            factMark[f] = -1;  // marks goal facts while exploring
+        }
+        while (heapSize > 0 && goalsLeft > 0) {
+            long top = pop();
+            int cost = (int) (top >>> 32);
+            int f = (int) top;
+            if (cost > factCost[f]) {
+                continue;  // stale entry
+            }
+            if (factMark[f] == -1) {
+                factMark[f] = 0;
+                goalsLeft--;
+            }
+            for (int o : preOf[f]) {
+                opCost[o] = kind == Kind.MAX ? Math.max(opCost[o], cost) : saturatedAdd(opCost[o], cost);
+                if (--unsatisfied[o] == 0) {
+                    fire(o);
+                }
+            }
+        }
+        for (int f : task.goal) {
+            factMark[f] = 0;
+        }
+        if (goalsLeft > 0) {
+            return DEAD_END;
+        }
+
+        int h = 0;
+        for (int f : task.goal) {
+            h = kind == Kind.MAX ? Math.max(h, factCost[f]) : saturatedAdd(h, factCost[f]);
+        }
+        return kind == Kind.FF ? relaxedPlanLength() : h;
+    }
+
+    /** An operator became applicable in the relaxation: relax its add effects. */
+    private void fire(int o) {
+        int cost = saturatedAdd(opCost[o], 1);
+        for (int g : task.operators[o].add) {
+            if (cost < factCost[g]) {
+                factCost[g] = cost;
+                supporter[g] = o;
+                push(cost, g);
+            }
+        }
+    }
+
+    /** Counts the distinct best supporters needed to reach the goals. */
+    private int relaxedPlanLength() {
+        stamp++;
+        int top = 0;
+        int length = 0;
+        for (int f : task.goal) {
+            if (factMark[f] != stamp) {
+                factMark[f] = stamp;
+                stack[top++] = f;
+            }
+        }
+        while (top > 0) {
+            int f = stack[--top];
+            int o = supporter[f];
+            if (o < 0 || opMark[o] == stamp) {
+                continue;  // true in the state, or already in the relaxed plan
+            }
+            opMark[o] = stamp;
+            length++;
+            for (int p : task.operators[o].pre) {
+                if (factMark[p] != stamp) {
+                    factMark[p] = stamp;
+                    stack[top++] = p;
+                }
+            }
+        }
+        return length;
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        long sum = (long) a + b;
+        return sum >= INF ? INF - 1 : (int) sum;
+    }
+
+    private void push(int cost, int fact) {
+        long entry = ((long) cost << 32) | fact;
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private long pop() {
+        long result = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) child++;
+            if (last <= heap[child]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (heapSize > 0) {
+            heap[i] = last;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+package planner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Closed list of packed states. Each state gets a dense id and a fixed-size
+ * record of {@code words + 2} longs: the state bits, then parent id and
+ * operator, then g and the state's hash. Records live in chunks of
+ * {@value #CHUNK_SIZE} that are never moved, either on the Java heap or, with
+ * {@code offHeap}, in direct buffers outside it. The lookup table is an
+ * open-addressing (linear probing) {@code int[]} of ids, so a stored state
+ * costs {@code 8 * (words + 2)} bytes plus about 6 bytes of table.
+ * Not thread-safe.
+ */
+final class StateStore {
+
+    private static final int CHUNK_BITS = 14;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_LOAD_PERCENT = 70;
+
+    private final int words;
+    private final int recordLongs;
+    private final boolean offHeap;
+
+    private LongBuffer[] chunks = new LongBuffer[8];
+    private int size;
+
+    /** Slot -> id + 1, 0 for an empty slot. */
+    private int[] table = new int[1024];
+
+    StateStore(int words, boolean offHeap) {
+        this.words = words;
+        this.recordLongs = words + 2;
+        this.offHeap = offHeap;
+    }
+
+    /** Number of stored states. */
+    int size() {
+        return size;
+    }
+
+    /** Bytes held by records and table. */
+    long bytes() {
+        long chunkBytes = (long) CHUNK_SIZE * recordLongs * Long.BYTES;
+        return ((size + CHUNK_SIZE - 1) >>> CHUNK_BITS) * chunkBytes + (long) table.length * Integer.BYTES;
+    }
+
+    /**
+     * Adds a state unless it is already stored.
+     *
+     * @return the id of the new state, or {@code ~id} of the stored one
+     */
+    int insert(long[] state, int parent, int op, int g) {
+        int hash = hash(state);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                int id = append(state, parent, op, g, hash);
+                table[slot] = id + 1;
+                if ((long) size * 100 > (long) table.length * MAX_LOAD_PERCENT) {
+                    grow();
+                }
+                return id;
+            }
+            int id = entry - 1;
+            if (hashOf(id) == hash && equals(id, state)) {
+                return ~id;
+            }
+        }
+    }
+
+    /** Copies the bits of a stored state into {@code dst}. */
+    void load(int id, long[] dst) {
+        LongBuffer chunk = chunks[id >>> CHUNK_BITS];
+        int base = (id & (CHUNK_SIZE - 1)) * recordLongs;
+        for (int i = 0; i < words; i++) {
+            dst[i] = chunk.get(base + i);
+        }
+    }
+
+    int parent(int id) {
+        return (int) (meta(id, 0) >> 32);
+    }
+
+    int op(int id) {
+        return (int) meta(id, 0);
+    }
+
+    int g(int id) {
+        return (int) (meta(id, 1) >> 32);
+    }
+
+    /** Records a cheaper path to a stored state. */
+    void update(int id, int parent, int op, int g) {
+        LongBuffer chunk = chunks[id >>> CHUNK_BITS];
+        int base = (id & (CHUNK_SIZE - 1)) * recordLongs + words;
+        chunk.put(base, ((long) parent << 32) | (op & 0xFFFFFFFFL));
+        chunk.put(base + 1, ((long) g << 32) | (chunk.get(base + 1) & 0xFFFFFFFFL));
+    }
+
+    private long meta(int id, int index) {
+        return chunks[id >>> CHUNK_BITS].get((id & (CHUNK_SIZE - 1)) * recordLongs + words + index);
+    }
+
+    private int hashOf(int id) {
+        return (int) meta(id, 1);
+    }
+
+    private boolean equals(int id, long[] state) {
+        LongBuffer chunk = chunks[id >>> CHUNK_BITS];
+        int base = (id & (CHUNK_SIZE - 1)) * recordLongs;
+        for (int i = 0; i < words; i++) {
+            if (chunk.get(base + i) != state[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int append(long[] state, int parent, int op, int g, int hash) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("State store is full.");
+        }
+        int id = size++;
+        int c = id >>> CHUNK_BITS;
+        if (c == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[c] == null) {
+            int longs = CHUNK_SIZE * recordLongs;
+            chunks[c] = offHeap
+                    ? ByteBuffer.allocateDirect(longs * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+                    : LongBuffer.wrap(new long[longs]);
+        }
+        LongBuffer chunk = chunks[c];
+        int base = (id & (CHUNK_SIZE - 1)) * recordLongs;
+        for (int i = 0; i < words; i++) {
+            chunk.put(base + i, state[i]);
+        }
+        chunk.put(base + words, ((long) parent << 32) | (op & 0xFFFFFFFFL));
+        chunk.put(base + words + 1, ((long) g << 32) | (hash & 0xFFFFFFFFL));
+        return id;
+    }
+
+    /** Doubles the table, reinserting ids by their stored hashes. */
+    private void grow() {
+        int[] next = new int[table.length * 2];
+        int mask = next.length - 1;
+        for (int entry : table) {
+            if (entry == 0) continue;
+            int slot = hashOf(entry - 1) & mask;
+            while (next[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            next[slot] = entry;
+        }
+        table = next;
+    }
+
+    private static int hash(long[] state) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (long w : state) {
+            h = (h ^ w) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,149 @@
+package planner;
+
+import java.util.List;
+
+/**
+ * Grounded STRIPS task with negative preconditions. Facts are numbered
+ * {@code 0..getFactCount()-1}; a state is the set of true facts, packed as
+ * a {@code long[]} bitset of {@link #getStateWords()} words.
+ * Created by {@link Grounder#ground}.
+ */
+public final class Task {
+
+    /** Ground action; a fact both added and deleted ends up true (delete-then-add). */
+    public static final class Operator {
+
+        final String name;
+        final int[] pre;
+        final int[] preNeg;
+        final int[] add;
+        final int[] del;
+
+        Operator(String name, int[] pre, int[] preNeg, int[] add, int[] del) {
+            this.name = name;
+            this.pre = pre;
+            this.preNeg = preNeg;
+            this.add = add;
+            this.del = del;
+        }
+
+        /** Name in plan syntax, e.g. {@code (move rover1 wp1 wp2)}. */
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    final String[] facts;
+    final int[] init;
+    final int[] goal;
+    final int[] goalNeg;
+    final Operator[] operators;
+    final int words;
+
+    Task(String[] facts, int[] init, int[] goal, int[] goalNeg, List<Operator> operators) {
+        this.facts = facts;
+        this.init = init;
+        this.goal = goal;
+        this.goalNeg = goalNeg;
+        this.operators = operators.toArray(new Operator[0]);
+        this.words = Math.max(1, (facts.length + 63) >>> 6);
+    }
+
+    public int getFactCount() {
+        return facts.length;
+    }
+
+    /** Returns a fact in PDDL syntax, e.g. {@code (at rover1 wp2)}. */
+    public String getFactName(int fact) {
+        return facts[fact];
+    }
+
+    public int getOperatorCount() {
+        return operators.length;
+    }
+
+    public Operator getOperator(int index) {
+        return operators[index];
+    }
+
+    /** Number of {@code long} words of a packed state. */
+    public int getStateWords() {
+        return words;
+    }
+
+    /** Returns the initial state, packed one bit per fact. */
+    public long[] initialState() {
+        long[] state = new long[words];
+        for (int f : init) {
+            state[f >>> 6] |= 1L << f;
+        }
+        return state;
+    }
+
+    public static boolean isTrue(long[] state, int fact) {
+        return (state[fact >>> 6] & (1L << fact)) != 0;
+    }
+
+    public boolean isGoal(long[] state) {
+        for (int f : goal) {
+            if (!isTrue(state, f)) {
+                return false;
+            }
+        }
+        for (int f : goalNeg) {
+            if (isTrue(state, f)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isApplicable(Operator op, long[] state) {
+        for (int f : op.pre) {
+            if (!isTrue(state, f)) {
+                return false;
+            }
+        }
+        for (int f : op.preNeg) {
+            if (isTrue(state, f)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Writes the successor of {@code state} into {@code next} (which may be the same array). */
+    public void apply(Operator op, long[] state, long[] next) {
+        if (next != state) {
+            System.arraycopy(state, 0, next, 0, words);
+        }
+        for (int f : op.del) {
+            next[f >>> 6] &= ~(1L << f);
+        }
+        for (int f : op.add) {
+            next[f >>> 6] |= 1L << f;
+        }
+    }
+
+    /**
+     * Checks a plan by executing it from the initial state.
+     *
+     * @return null if the plan is valid, otherwise a description of the first problem
+     */
+    public String validate(List<Operator> plan) {
+        long[] state = initialState();
+        for (int i = 0; i < plan.size(); i++) {
+            Operator op = plan.get(i);
+            if (!isApplicable(op, state)) {
+                return "Step " + (i + 1) + " " + op + " is not applicable.";
+            }
+            apply(op, state, state);
+        }
+        return isGoal(state) ? null : "The plan does not reach the goal.";
+    }
+}
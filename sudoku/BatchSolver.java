@@ -0,0 +1,445 @@
+package sudoku;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless batch mode: streams puzzles from a file, solves them on a pool of
+ * worker threads and writes one result line per puzzle, in input order.
+ * <p>
+ * Each worker thread owns its own {@link SudokuEngine} (engines keep their
+ * counters in instance fields), and results are handed back as immutable
+ * {@link Result} objects. At most {@code threads * WINDOW_PER_THREAD}
+ * puzzles are in flight and latencies go into a fixed-size histogram, so
+ * memory stays bounded for arbitrarily large inputs.
+ * <p>
+ * Output lines are the solution in single-line format (81 digits for a 9x9
+ * board, see {@link PuzzleReader#format}), {@code unsolvable} or
+ * {@code invalid: <reason>}, for conflicting givens as well as for malformed
+ * records, which do not stop the run. In uniqueness-check mode the engine is not used;
+ * each puzzle is checked with {@link SudokuSolver#countSolutions(int[][], int)}
+ * and the line is {@code unique}, {@code multiple} or {@code unsolvable}. In
+ * grading mode each puzzle is rated by a {@link DifficultyGrader} and the line
+ * is the score and hardest technique, e.g. {@code 3.2 X_WING}.
+ * With the {@link LaneSolver} engine (and no cache) each task solves a block
+ * of {@value LaneSolver#LANES} puzzles at once, and a puzzle's latency is its
+ * share of the block's propagation plus its own fallback search.
+ * A summary with throughput, latency percentiles and total nodes/backtracks
+ * is printed to standard error.
+ */
+public class BatchSolver {
+
+    /** Number of queued puzzles per worker before the reader waits for results. */
+    private static final int WINDOW_PER_THREAD = 256;
+
+    /** What is done with each puzzle. */
+    public enum Mode {
+        /** Solve with the configured engine. */
+        SOLVE,
+        /** Count solutions up to 2. */
+        UNIQUENESS,
+        /** Rate by the human techniques required. */
+        GRADE
+    }
+
+    private final String engineName;
+    private final int threads;
+    private final Mode mode;
+    private final boolean laneBlocks;
+    private CanonicalCache cache;
+
+    /**
+     * @param engineName engine used by every worker, see {@link SudokuEngines#names()}
+     * @param threads    number of worker threads (at least 1)
+     */
+    public BatchSolver(String engineName, int threads) {
+        this(engineName, threads, false);
+    }
+
+    /**
+     * @param engineName      engine used by every worker, see {@link SudokuEngines#names()}
+     * @param threads         number of worker threads (at least 1)
+     * @param uniquenessCheck if true, count solutions (up to 2) instead of solving
+     */
+    public BatchSolver(String engineName, int threads, boolean uniquenessCheck) {
+        this(engineName, threads, uniquenessCheck ? Mode.UNIQUENESS : Mode.SOLVE);
+    }
+
+    /**
+     * @param engineName engine used by every worker in {@link Mode#SOLVE}, see {@link SudokuEngines#names()}
+     * @param threads    number of worker threads (at least 1)
+     * @param mode       what is done with each puzzle
+     */
+    public BatchSolver(String engineName, int threads, Mode mode) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+        }
+        this.laneBlocks = SudokuEngines.create(engineName) instanceof LaneSolver;  // fail fast on unknown names
+        this.engineName = engineName;
+        this.threads = threads;
+        this.mode = mode;
+    }
+
+    /**
+     * Puts a solution cache shared by all workers in front of the engine, or
+     * removes it with {@code null}. Only used in {@link Mode#SOLVE}.
+     */
+    public void setCache(CanonicalCache cache) {
+        this.cache = cache;
+    }
+
+    /** Outcome of a single puzzle. */
+    public static final class Result {
+        /** Output line for this puzzle. */
+        final String line;
+        /** True if the puzzle has at least one solution. */
+        final boolean solved;
+        final long nanos;
+        final long nodes;
+        final long backtracks;
+
+        Result(String line, boolean solved, long nanos, long nodes, long backtracks) {
+            this.line = line;
+            this.solved = solved;
+            this.nanos = nanos;
+            this.nodes = nodes;
+            this.backtracks = backtracks;
+        }
+    }
+
+    /** Aggregated statistics of a batch run. */
+    public static final class Summary {
+        public final long puzzles;
+        public final long solved;
+        public final long elapsedNanos;
+        public final long p50Nanos;
+        public final long p99Nanos;
+        public final long totalNodes;
+        public final long totalBacktracks;
+
+        Summary(long puzzles, long solved, long elapsedNanos, long p50Nanos, long p99Nanos,
+                long totalNodes, long totalBacktracks) {
+            this.puzzles = puzzles;
+            this.solved = solved;
+            this.elapsedNanos = elapsedNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.totalNodes = totalNodes;
+            this.totalBacktracks = totalBacktracks;
+        }
+
+        /** Returns the throughput in puzzles per second. */
+        public double puzzlesPerSecond() {
+            return elapsedNanos == 0 ? 0 : puzzles * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Puzzles: %d (solved %d) | %.1f s | %.0f puzzles/s | p50 %.1f us | p99 %.1f us"
+                            + " | Visited nodes: %d | Backtracks: %d",
+                    puzzles, solved, elapsedNanos / 1e9, puzzlesPerSecond(),
+                    p50Nanos / 1e3, p99Nanos / 1e3, totalNodes, totalBacktracks);
+        }
+    }
+
+    /**
+     * Solves every puzzle from {@code reader} and writes one line per puzzle to {@code out}.
+     *
+     * @return aggregated statistics of the run
+     */
+    public Summary run(PuzzleReader reader, Writer out) throws IOException {
+        CanonicalCache cache = this.cache;
+        ThreadLocal<SudokuEngine> engines = ThreadLocal.withInitial(() -> mode == Mode.UNIQUENESS
+                ? new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV)
+                : mode == Mode.GRADE ? new DifficultyGrader() : SudokuEngines.create(engineName));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<Result[]>> window = new ArrayDeque<>();
+        int maxInFlight = threads * WINDOW_PER_THREAD;
+        int blockSize = laneBlocks && mode == Mode.SOLVE && cache == null ? LaneSolver.LANES : 1;
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        long count = 0;
+        long solved = 0;
+        long totalNodes = 0;
+        long totalBacktracks = 0;
+
+        long start = System.nanoTime();
+        try {
+            int[][] board;
+            List<int[][]> block = new ArrayList<>(blockSize);
+            int inFlight = 0;
+            while (true) {
+                Result malformed = null;
+                try {
+                    board = reader.next();
+                } catch (PuzzleReader.FormatException ex) {
+                    board = null;
+                    malformed = new Result("invalid: " + ex.getMessage(), false, 0, 0, 0);
+                }
+                boolean end = board == null && malformed == null;
+                if (board != null) {
+                    block.add(board);
+                }
+                if (block.size() == blockSize || (board == null && !block.isEmpty())) {
+                    int[][][] puzzles = block.toArray(new int[0][][]);
+                    window.addLast(pool.submit(() -> blockSize == 1
+                            ? new Result[] {process(engines.get(), cache, puzzles[0])}
+                            : solveLanes((LaneSolver) engines.get(), puzzles)));
+                    inFlight += puzzles.length;
+                    block.clear();
+                }
+                if (malformed != null) {
+                    window.addLast(CompletableFuture.completedFuture(new Result[] {malformed}));
+                    inFlight++;
+                }
+                // Drain completed results in order once the window is full or input is exhausted
+                while (!window.isEmpty() && (end || inFlight >= maxInFlight)) {
+                    Result[] results = await(window.removeFirst());
+                    inFlight -= results.length;
+                    for (Result result : results) {
+                        out.write(result.line);
+                        out.write('\n');
+
+                        latencies.record(result.nanos);
+                        count++;
+                        if (result.solved) {
+                            solved++;
+                        }
+                        totalNodes += result.nodes;
+                        totalBacktracks += result.backtracks;
+                    }
+                }
+                if (end) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        out.flush();
+        long elapsed = System.nanoTime() - start;
+
+        return new Summary(count, solved, elapsed, latencies.percentile(0.50), latencies.percentile(0.99),
+                totalNodes, totalBacktracks);
+    }
+
+    /** Handles one puzzle on a worker thread according to the batch mode. */
+    private Result process(SudokuEngine engine, CanonicalCache cache, int[][] board) {
+        if (mode == Mode.UNIQUENESS) {
+            return checkOne((SudokuSolver) engine, board);
+        }
+        if (mode == Mode.GRADE) {
+            return gradeOne((DifficultyGrader) engine, board);
+        }
+        return cache != null ? solveCached(cache, engine, board) : solveOne(engine, board);
+    }
+
+    /** Solves one puzzle with the calling worker's engine. */
+    static Result solveOne(SudokuEngine engine, int[][] board) {
+        long start = System.nanoTime();
+        try {
+            boolean ok = engine.solve(board, null);
+            long nanos = System.nanoTime() - start;
+            return new Result(ok ? PuzzleReader.format(board) : "unsolvable", ok, nanos,
+                    engine.getNodesVisitedCount(), engine.getBacktrackCount());
+        } catch (IllegalArgumentException ex) {
+            return new Result("invalid: " + ex.getMessage(), false, System.nanoTime() - start, 0, 0);
+        }
+    }
+
+    /** Solves a block of puzzles in lanes; invalid puzzles are reported without solving. */
+    static Result[] solveLanes(LaneSolver solver, int[][][] boards) {
+        Result[] results = new Result[boards.length];
+        List<int[][]> valid = new ArrayList<>(boards.length);
+        for (int i = 0; i < boards.length; i++) {
+            try {
+                if (!BoardGeometry.of(boards[i]).isConsistent(boards[i])) {
+                    throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+                }
+                valid.add(boards[i]);
+            } catch (IllegalArgumentException ex) {
+                results[i] = new Result("invalid: " + ex.getMessage(), false, 0, 0, 0);
+            }
+        }
+        SolveResult[] solved = solver.solveAll(valid.toArray(new int[0][][]));
+        for (int i = 0, j = 0; i < boards.length; i++) {
+            if (results[i] != null) continue;
+            SolveResult result = solved[j++];
+            results[i] = new Result(result.isSolved() ? PuzzleReader.format(result.getSolution()) : "unsolvable",
+                    result.isSolved(), result.getNanos(), result.getNodes(), result.getBacktracks());
+        }
+        return results;
+    }
+
+    /** Solves one puzzle through the shared cache; hits report no nodes or backtracks. */
+    static Result solveCached(CanonicalCache cache, SudokuEngine engine, int[][] board) {
+        long start = System.nanoTime();
+        try {
+            SolveResult result = cache.solve(board, engine);
+            long nanos = System.nanoTime() - start;
+            return new Result(result.isSolved() ? PuzzleReader.format(result.getSolution()) : "unsolvable",
+                    result.isSolved(), nanos, result.getNodes(), result.getBacktracks());
+        } catch (IllegalArgumentException ex) {
+            return new Result("invalid: " + ex.getMessage(), false, System.nanoTime() - start, 0, 0);
+        }
+    }
+
+    /** Checks whether one puzzle has a unique solution. */
+    static Result checkOne(SudokuSolver solver, int[][] board) {
+        long start = System.nanoTime();
+        try {
+            int count = solver.countSolutions(board, 2);
+            long nanos = System.nanoTime() - start;
+            String line = count == 0 ? "unsolvable" : count == 1 ? "unique" : "multiple";
+            return new Result(line, count > 0, nanos, solver.getNodesVisitedCount(), solver.getBacktrackCount());
+        } catch (IllegalArgumentException ex) {
+            return new Result("invalid: " + ex.getMessage(), false, System.nanoTime() - start, 0, 0);
+        }
+    }
+
+    /** Rates one puzzle; nodes and backtracks are those of the search fallback, if it was needed. */
+    static Result gradeOne(DifficultyGrader grader, int[][] board) {
+        long start = System.nanoTime();
+        try {
+            DifficultyGrader.Grade grade = grader.grade(board);
+            long nanos = System.nanoTime() - start;
+            return new Result(grade.isSolved() ? grade.toString() : "unsolvable", grade.isSolved(), nanos,
+                    grade.getNodes(), grade.getBacktracks());
+        } catch (IllegalArgumentException ex) {
+            return new Result("invalid: " + ex.getMessage(), false, System.nanoTime() - start, 0, 0);
+        }
+    }
+
+    private static Result[] await(Future<Result[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for results", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Worker failed: " + ex.getCause(), ex.getCause());
+        }
+    }
+
+    /**
+     * Latency histogram of fixed size: exact below {@value #SUB_BUCKETS} ns,
+     * above that {@value #SUB_BUCKETS} buckets per power of two, so a
+     * percentile is at most about 3% below the true value.
+     */
+    private static final class LatencyHistogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final long[] counts = new long[(Long.SIZE - SUB_BITS) * SUB_BUCKETS];
+        private long total = 0;
+
+        void record(long nanos) {
+            long v = Math.max(0, nanos);
+            int index;
+            if (v < SUB_BUCKETS) {
+                index = (int) v;
+            } else {
+                int exponent = 63 - Long.numberOfLeadingZeros(v);
+                int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+                index = (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+            }
+            counts[index]++;
+            total++;
+        }
+
+        /** Returns the lower bound of the bucket holding the nearest-rank percentile. */
+        long percentile(double p) {
+            long rank = Math.max(1, (long) Math.ceil(p * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < SUB_BUCKETS ? i
+                            : (long) (SUB_BUCKETS + i % SUB_BUCKETS) << (i / SUB_BUCKETS - 1);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Command-line entry point.
+     * <pre>
+     * java sudoku.BatchSolver [-e engine] [-u | -g] [-c cache-size] [-t threads] [-o output] input|-
+     * </pre>
+     * The input {@code -} reads from standard input; without {@code -o} the
+     * solutions go to standard output. With {@code -c} solutions are cached by
+     * canonical form (see {@link CanonicalCache}).
+     */
+    public static void main(String[] args) throws IOException {
+        String engine = SudokuEngines.DEFAULT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+        String input = null;
+        Mode mode = Mode.SOLVE;
+        int cacheSize = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-e":
+                    engine = CommandLine.requireValue(args, ++i);
+                    break;
+                case "-t":
+                    threads = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-o":
+                    output = CommandLine.requireValue(args, ++i);
+                    break;
+                case "-u":
+                    mode = Mode.UNIQUENESS;
+                    break;
+                case "-g":
+                    mode = Mode.GRADE;
+                    break;
+                case "-c":
+                    cacheSize = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                default:
+                    input = args[i];
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: java sudoku.BatchSolver [-e " + String.join("|", SudokuEngines.names())
+                    + "] [-u | -g] [-c cache-size] [-t threads] [-o output] input|-");
+            System.exit(2);
+        }
+
+        BatchSolver batch = new BatchSolver(engine, threads, mode);
+        CanonicalCache cache = cacheSize > 0 ? new CanonicalCache(cacheSize) : null;
+        batch.setCache(cache);
+        try (PuzzleReader reader = new PuzzleReader("-".equals(input)
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : new FileReader(input, StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(output == null
+                     ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                     : new FileWriter(output, StandardCharsets.UTF_8), 1 << 16)) {
+            Summary summary = batch.run(reader, out);
+            System.err.println((mode == Mode.UNIQUENESS ? "Uniqueness check"
+                    : mode == Mode.GRADE ? "Grading" : "Engine: " + engine)
+                    + " | Threads: " + threads);
+            System.err.println(summary);
+            if (cache != null) {
+                System.err.println(cache);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package sudoku;
+
+/**
+ * Precomputed index tables for an n²×n² Sudoku board (box size n).
+ * <p>
+ * Cells are numbered row-major from 0 to {@code cells - 1}. Digits 1..size are
+ * represented in candidate masks as bits 0..size-1 of an {@code int}, which
+ * covers every supported size (box size 2 to 5, i.e. 4x4 up to 25x25).
+ * Instances are immutable and shared between engines and threads.
+ */
+final class BoardGeometry {
+
+    static final int MIN_BOX_SIZE = 2;
+    static final int MAX_BOX_SIZE = 5;
+
+    private static final BoardGeometry[] CACHE = new BoardGeometry[MAX_BOX_SIZE + 1];
+
+    final int boxSize;
+    final int size;
+    final int cells;
+
+    /** Mask with one bit set for each digit 1..size. */
+    final int allDigits;
+
+    final int[] cellRow;
+    final int[] cellCol;
+    final int[] cellBox;
+
+    /** The 3*size units: rows, then columns, then boxes. Each lists its cells. */
+    final int[][] units;
+
+    /** Peers of each cell: the other cells sharing a row, column or box. */
+    final int[][] peers;
+
+    /**
+     * Box/line intersections ("segments"): for each box and each row or column
+     * crossing it, the shared cells, the other cells of the line and the other
+     * cells of the box.
+     */
+    final int[][] segment;
+    final int[][] segmentLineRest;
+    final int[][] segmentBoxRest;
+
+    private BoardGeometry(int boxSize) {
+        this.boxSize = boxSize;
+        this.size = boxSize * boxSize;
+        this.cells = size * size;
+        this.allDigits = (1 << size) - 1;
+
+        cellRow = new int[cells];
+        cellCol = new int[cells];
+        cellBox = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            cellRow[cell] = cell / size;
+            cellCol[cell] = cell % size;
+            cellBox[cell] = (cellRow[cell] / boxSize) * boxSize + cellCol[cell] / boxSize;
+        }
+
+        units = new int[3 * size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                units[i][j] = i * size + j;
+                units[size + i][j] = j * size + i;
+                int r = (i / boxSize) * boxSize + j / boxSize;
+                int c = (i % boxSize) * boxSize + j % boxSize;
+                units[2 * size + i][j] = r * size + c;
+            }
+        }
+
+        int peerCount = 3 * size - 2 * boxSize - 1;
+        peers = new int[cells][peerCount];
+        for (int cell = 0; cell < cells; cell++) {
+            int n = 0;
+            for (int other = 0; other < cells; other++) {
+                if (other != cell && (cellRow[other] == cellRow[cell] || cellCol[other] == cellCol[cell]
+                        || cellBox[other] == cellBox[cell])) {
+                    peers[cell][n++] = other;
+                }
+            }
+        }
+
+        int segments = 2 * size * boxSize;
+        segment = new int[segments][];
+        segmentLineRest = new int[segments][];
+        segmentBoxRest = new int[segments][];
+        int s = 0;
+        for (int b = 0; b < size; b++) {
+            for (int k = 0; k < boxSize; k++) {
+                addSegment(s++, b, units[(b / boxSize) * boxSize + k]);         // row crossing box b
+                addSegment(s++, b, units[size + (b % boxSize) * boxSize + k]);  // column crossing box b
+            }
+        }
+    }
+
+    private void addSegment(int s, int b, int[] line) {
+        int[] shared = new int[boxSize];
+        int[] lineRest = new int[size - boxSize];
+        int[] boxRest = new int[size - boxSize];
+        int ns = 0;
+        int nl = 0;
+        for (int cell : line) {
+            if (cellBox[cell] == b) {
+                shared[ns++] = cell;
+            } else {
+                lineRest[nl++] = cell;
+            }
+        }
+        int nb = 0;
+        for (int cell : units[2 * size + b]) {
+            boolean inShared = false;
+            for (int x : shared) {
+                inShared |= x == cell;
+            }
+            if (!inShared) {
+                boxRest[nb++] = cell;
+            }
+        }
+        segment[s] = shared;
+        segmentLineRest[s] = lineRest;
+        segmentBoxRest[s] = boxRest;
+    }
+
+    /**
+     * Returns the geometry for a board of the given side length.
+     *
+     * @throws IllegalArgumentException if {@code size} is not 4, 9, 16 or 25
+     */
+    static BoardGeometry forSize(int size) {
+        int boxSize = (int) Math.round(Math.sqrt(size));
+        if (boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE || boxSize * boxSize != size) {
+            throw new IllegalArgumentException("Board must be 4x4, 9x9, 16x16 or 25x25.");
+        }
+        synchronized (CACHE) {
+            if (CACHE[boxSize] == null) {
+                CACHE[boxSize] = new BoardGeometry(boxSize);
+            }
+            return CACHE[boxSize];
+        }
+    }
+
+    /**
+     * Returns the geometry matching a board, checking that it is square.
+     *
+     * @throws IllegalArgumentException if the board is null, not square or of an unsupported size
+     */
+    static BoardGeometry of(int[][] board) {
+        if (board == null) {
+            throw new IllegalArgumentException("Board must not be null.");
+        }
+        BoardGeometry geometry = forSize(board.length);
+        for (int[] row : board) {
+            if (row == null || row.length != geometry.size) {
+                throw new IllegalArgumentException("Board must be square (" + geometry.size + "x" + geometry.size + ").");
+            }
+        }
+        return geometry;
+    }
+
+    /** Returns true if no two givens conflict. */
+    boolean isConsistent(int[][] board) {
+        int[] rowMask = new int[size];
+        int[] colMask = new int[size];
+        int[] boxMask = new int[size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int val = board[r][c];
+                if (val == 0) continue;
+                if (val < 1 || val > size) return false;
+                int bit = 1 << (val - 1);
+                int b = cellBox[r * size + c];
+                if (((rowMask[r] | colMask[c] | boxMask[b]) & bit) != 0) return false;
+                rowMask[r] |= bit;
+                colMask[c] |= bit;
+                boxMask[b] |= bit;
+            }
+        }
+        return true;
+    }
+
+    /** Returns true if {@code size} is a supported board side length. */
+    static boolean isSupportedSize(int size) {
+        int boxSize = (int) Math.round(Math.sqrt(size));
+        return boxSize >= MIN_BOX_SIZE && boxSize <= MAX_BOX_SIZE && boxSize * boxSize == size;
+    }
+}
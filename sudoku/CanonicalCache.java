@@ -0,0 +1,332 @@
+package sudoku;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solution cache keyed by a canonical form of the puzzle, so that puzzles
+ * that differ only by a Sudoku symmetry share one entry.
+ * <p>
+ * The canonical form undoes the validity-preserving transformations:
+ * transposition, band and stack permutations, row permutations within a band,
+ * column permutations within a stack, and digit relabelling. Rows are ordered
+ * by a key that these transformations do not change (number of clues, then a
+ * hash of the keys of the columns their clues sit in and of how often each
+ * clue's digit occurs), bands by the sums of their row keys, and columns and
+ * stacks likewise. Digits are then renumbered in order of first appearance,
+ * and of the two orientations the lexicographically smaller grid is kept.
+ * This costs a few passes over the cells, about 8 to 23 us per 9x9 puzzle once
+ * JIT-compiled (more clues cost more): more than an MRV solve of an easy
+ * puzzle, far less than one of a hard puzzle, so the cache pays off on hard or
+ * repeated puzzles. Rows with equal keys keep their input order, so two
+ * transformed copies of a very regular puzzle may still get different forms;
+ * that only costs a miss, never a wrong answer, because a hit is always
+ * mapped back through the exact transformation of the caller's puzzle.
+ * <p>
+ * Entries are evicted in least-recently-used order once {@code capacity} is
+ * reached. Unsolvable puzzles are cached too. The cache is thread-safe; the
+ * engine passed to {@link #solve} is only used by the calling thread.
+ */
+public class CanonicalCache {
+
+    /** Rounds of line-key refinement; two already separate almost all non-symmetric rows. */
+    private static final int REFINE_ROUNDS = 2;
+
+    /** Low bits of a line sort key holding the refined hash, below the clue count. */
+    private static final int HASH_BITS = 48;
+
+    /** Marker value for puzzles known to have no solution. */
+    private static final int[] NO_SOLUTION = new int[0];
+
+    private final int capacity;
+    private final Map<String, int[]> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity maximum number of cached puzzles (at least 1)
+     */
+    public CanonicalCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                if (size() > CanonicalCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Solves a puzzle, using the cache when an equivalent puzzle was solved before.
+     * The board is left unchanged.
+     *
+     * @param board  n²×n² board, 0 for empty cells
+     * @param engine engine used on a miss
+     * @return the result; on a hit nodes and backtracks are 0
+     * @throws IllegalArgumentException if the initial board is invalid
+     */
+    public SolveResult solve(int[][] board, SudokuEngine engine) {
+        long start = System.nanoTime();
+        BoardGeometry g = BoardGeometry.of(board);
+        Transform t = canonicalize(board, g);
+
+        int[] cached;
+        synchronized (entries) {
+            cached = entries.get(t.key);
+        }
+        if (cached != null) {
+            hits.increment();
+            int[][] solution = cached == NO_SOLUTION ? null : t.restore(cached);
+            return new SolveResult(solution != null ? SolveResult.Status.SOLVED : SolveResult.Status.UNSOLVABLE,
+                    solution, 0, 0, System.nanoTime() - start);
+        }
+        misses.increment();
+
+        int[][] work = new int[g.size][];
+        for (int r = 0; r < g.size; r++) {
+            work[r] = board[r].clone();
+        }
+        boolean solved = engine.solve(work, null);
+        synchronized (entries) {
+            entries.put(t.key, solved ? t.apply(work) : NO_SOLUTION);
+        }
+        return new SolveResult(solved ? SolveResult.Status.SOLVED : SolveResult.Status.UNSOLVABLE,
+                solved ? work : null, engine.getNodesVisitedCount(), engine.getBacktrackCount(),
+                System.nanoTime() - start);
+    }
+
+    /** Returns the canonical form of a puzzle as a string of cell symbols (see {@link PuzzleReader#format}). */
+    public static String canonicalForm(int[][] board) {
+        BoardGeometry g = BoardGeometry.of(board);
+        String key = canonicalize(board, g).key;
+        char[] symbols = new char[key.length()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = PuzzleReader.toSymbol(key.charAt(i));
+        }
+        return new String(symbols);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /** Returns the number of cached puzzles. */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        long h = getHits();
+        long m = getMisses();
+        return String.format("Cache: %d entries | hits %d | misses %d | hit rate %.1f%% | evictions %d",
+                size(), h, m, h + m == 0 ? 0 : 100.0 * h / (h + m), getEvictions());
+    }
+
+    /** Canonicalizes a board in both orientations and keeps the smaller form. */
+    private static Transform canonicalize(int[][] board, BoardGeometry g) {
+        Transform normal = new Transform(board, g, false);
+        Transform transposed = new Transform(board, g, true);
+        return normal.key.compareTo(transposed.key) <= 0 ? normal : transposed;
+    }
+
+    /**
+     * One symmetry transformation, mapping the caller's board to its canonical
+     * form: canonical cell (i, j) holds {@code digitMap[v]} where v is the value
+     * of original cell (rowPerm[i], colPerm[j]), or (colPerm[j], rowPerm[i])
+     * when transposed.
+     */
+    private static final class Transform {
+        final BoardGeometry g;
+        final boolean transposed;
+        final int[] rowPerm;
+        final int[] colPerm;
+        /** Original digit to canonical digit; index 0 maps to 0. */
+        final int[] digitMap;
+        /** Canonical cells as chars 0..size, row-major. */
+        final String key;
+
+        Transform(int[][] board, BoardGeometry g, boolean transposed) {
+            this.g = g;
+            this.transposed = transposed;
+            int size = g.size;
+
+            // Keys invariant under every symmetry except transposition: clue
+            // counts first, ties broken by a hash refined from the crossing
+            // lines and the global frequency of each clue's digit
+            int[] digitCount = new int[size + 1];
+            int[] rowCount = new int[size];
+            int[] colCount = new int[size];
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    int v = value(board, r, c);
+                    if (v != 0) {
+                        digitCount[v]++;
+                        rowCount[r]++;
+                        colCount[c]++;
+                    }
+                }
+            }
+            long[] rowHash = new long[size];
+            long[] colHash = new long[size];
+            for (int i = 0; i < size; i++) {
+                rowHash[i] = rowCount[i];
+                colHash[i] = colCount[i];
+            }
+            for (int round = 0; round < REFINE_ROUNDS; round++) {
+                long[] nextRow = new long[size];
+                long[] nextCol = new long[size];
+                for (int r = 0; r < size; r++) {
+                    for (int c = 0; c < size; c++) {
+                        int v = value(board, r, c);
+                        if (v != 0) {
+                            long cellHash = mix(digitCount[v]);
+                            nextRow[r] += mix(colHash[c] + cellHash);
+                            nextCol[c] += mix(rowHash[r] + cellHash);
+                        }
+                    }
+                }
+                rowHash = nextRow;
+                colHash = nextCol;
+            }
+            rowPerm = order(rowCount, rowHash, g.boxSize);
+            colPerm = order(colCount, colHash, g.boxSize);
+
+            // Relabel digits in order of first appearance, then the missing ones in order
+            digitMap = new int[size + 1];
+            int next = 1;
+            char[] cells = new char[g.cells];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    int v = value(board, rowPerm[i], colPerm[j]);
+                    if (v != 0 && digitMap[v] == 0) {
+                        digitMap[v] = next++;
+                    }
+                    cells[i * size + j] = (char) digitMap[v];
+                }
+            }
+            for (int d = 1; d <= size; d++) {
+                if (digitMap[d] == 0) {
+                    digitMap[d] = next++;
+                }
+            }
+            key = new String(cells);
+        }
+
+        /** Reads original cell (r, c) in this orientation. */
+        private int value(int[][] board, int r, int c) {
+            return transposed ? board[c][r] : board[r][c];
+        }
+
+        /** Maps a solved board of the caller into canonical cells. */
+        int[] apply(int[][] solution) {
+            int size = g.size;
+            int[] cells = new int[g.cells];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    cells[i * size + j] = digitMap[value(solution, rowPerm[i], colPerm[j])];
+                }
+            }
+            return cells;
+        }
+
+        /** Maps canonical cells back to a new board in the caller's orientation. */
+        int[][] restore(int[] cells) {
+            int size = g.size;
+            int[] inverse = new int[size + 1];
+            for (int d = 1; d <= size; d++) {
+                inverse[digitMap[d]] = d;
+            }
+            int[][] board = new int[size][size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    int v = inverse[cells[i * size + j]];
+                    if (transposed) {
+                        board[colPerm[j]][rowPerm[i]] = v;
+                    } else {
+                        board[rowPerm[i]][colPerm[j]] = v;
+                    }
+                }
+            }
+            return board;
+        }
+
+        /**
+         * Orders lines (rows or columns) by descending key, where the key is
+         * the clue count followed by the refined hash: groups of {@code boxSize}
+         * lines (bands or stacks) by their summed counts and hashes, and the
+         * lines inside each group by their own keys. Ties keep input order.
+         *
+         * @return new position to original line
+         */
+        private static int[] order(int[] count, long[] hash, int boxSize) {
+            int size = count.length;
+            long[] key = new long[size];
+            long[] groupCount = new long[boxSize];
+            long[] groupHash = new long[boxSize];
+            for (int i = 0; i < size; i++) {
+                key[i] = sortKey(count[i], hash[i]);
+                groupCount[i / boxSize] += count[i];
+                groupHash[i / boxSize] += hash[i];
+            }
+            long[] groupKey = new long[boxSize];
+            for (int gi = 0; gi < boxSize; gi++) {
+                groupKey[gi] = sortKey(groupCount[gi], groupHash[gi]);
+            }
+            int[] groups = sortDescending(groupKey, 0, boxSize);
+            int[] perm = new int[size];
+            for (int gi = 0; gi < boxSize; gi++) {
+                int[] lines = sortDescending(key, groups[gi] * boxSize, boxSize);
+                System.arraycopy(lines, 0, perm, gi * boxSize, boxSize);
+            }
+            return perm;
+        }
+
+        /** Combines a count (at most 625) and a hash into one non-negative sort key. */
+        private static long sortKey(long count, long hash) {
+            return count << HASH_BITS | (hash & ((1L << HASH_BITS) - 1));
+        }
+
+        /** Finalizer of SplitMix64, spreads the bits of a line or digit key. */
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+
+        /** Returns the indices from..from+count-1 sorted by descending key (stable insertion sort). */
+        private static int[] sortDescending(long[] key, int from, int count) {
+            int[] idx = new int[count];
+            for (int i = 0; i < count; i++) {
+                int x = from + i;
+                int j = i;
+                while (j > 0 && key[idx[j - 1]] < key[x]) {
+                    idx[j] = idx[j - 1];
+                    j--;
+                }
+                idx[j] = x;
+            }
+            return idx;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package sudoku;
+
+/** Helpers shared by the command-line entry points of this package. */
+final class CommandLine {
+
+    private CommandLine() {
+    }
+
+    /**
+     * Returns the value of the option before {@code index}.
+     *
+     * @throws IllegalArgumentException if the arguments end before the value
+     */
+    static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for option " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
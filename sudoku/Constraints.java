@@ -0,0 +1,236 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Factory of the {@link SudokuConstraint}s of common Sudoku variants.
+ * Cells are row-major indices ({@code row * size + col}).
+ */
+public final class Constraints {
+
+    private Constraints() {
+    }
+
+    /** Rows, columns and boxes: the classic rules and the default constraint set of {@link VariantSolver}. */
+    public static SudokuConstraint standard() {
+        return size -> BoardGeometry.forSize(size).units;
+    }
+
+    /** Sudoku X: both main diagonals hold every digit once. */
+    public static SudokuConstraint diagonals() {
+        return size -> {
+            int[][] houses = new int[2][size];
+            for (int i = 0; i < size; i++) {
+                houses[0][i] = i * size + i;
+                houses[1][i] = i * size + (size - 1 - i);
+            }
+            return houses;
+        };
+    }
+
+    /**
+     * Windoku: extra box-sized windows, one cell in from the edges and one
+     * apart (the four shaded windows on a 9x9 board).
+     */
+    public static SudokuConstraint windoku() {
+        return size -> {
+            int n = BoardGeometry.forSize(size).boxSize;
+            List<int[]> windows = new ArrayList<>();
+            for (int top = 1; top + n <= size; top += n + 1) {
+                for (int left = 1; left + n <= size; left += n + 1) {
+                    int[] window = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        window[i] = (top + i / n) * size + left + i % n;
+                    }
+                    windows.add(window);
+                }
+            }
+            return windows.toArray(new int[0][]);
+        };
+    }
+
+    /** Anti-knight: cells a chess knight's move apart hold different digits. */
+    public static SudokuConstraint antiKnight() {
+        return size -> {
+            List<int[]> pairs = new ArrayList<>();
+            int[][] moves = {{1, 2}, {2, 1}, {2, -1}, {1, -2}};  // the other four are the reverse pairs
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    for (int[] m : moves) {
+                        int r2 = r + m[0];
+                        int c2 = c + m[1];
+                        if (r2 < size && c2 >= 0 && c2 < size) {
+                            pairs.add(new int[]{r * size + c, r2 * size + c2});
+                        }
+                    }
+                }
+            }
+            return pairs.toArray(new int[0][]);
+        };
+    }
+
+    /**
+     * Killer cage: the digits of the cells differ and add up to {@code sum}.
+     *
+     * @throws IllegalArgumentException if the cage has no cells or repeats one
+     */
+    public static SudokuConstraint cage(int sum, int... cells) {
+        return new Cage(sum, cells);
+    }
+
+    /**
+     * Killer cage with incremental state: the sum still missing, the number of
+     * empty cells and the digits used. After every placement the empty cells
+     * keep only digits that appear in some set of distinct unused digits of
+     * the right size and sum.
+     */
+    static final class Cage implements SudokuConstraint {
+
+        /** Digit-combination table for 9x9 boards, see {@link #combinations}. */
+        private static final int[] TABLE_9 = buildTable(9);
+
+        private final int sum;
+        private final int[] cells;
+        private int size;
+        private int allDigits;
+        private int missing;
+        private int free;
+        private int used;
+
+        Cage(int sum, int[] cells) {
+            if (cells.length == 0) {
+                throw new IllegalArgumentException("A cage needs at least one cell.");
+            }
+            for (int i = 0; i < cells.length; i++) {
+                for (int j = i + 1; j < cells.length; j++) {
+                    if (cells[i] == cells[j]) {
+                        throw new IllegalArgumentException("Cell " + cells[i] + " appears twice in a cage.");
+                    }
+                }
+            }
+            this.sum = sum;
+            this.cells = cells.clone();
+        }
+
+        @Override
+        public int[][] houses(int size) {
+            for (int cell : cells) {
+                if (cell < 0 || cell >= size * size) {
+                    throw new IllegalArgumentException("Cage cell " + cell + " is outside a " + size + "x" + size + " board.");
+                }
+            }
+            if (cells.length > size) {
+                throw new IllegalArgumentException("A cage cannot have more than " + size + " cells.");
+            }
+            return new int[][]{cells};
+        }
+
+        @Override
+        public int[] watchedCells(int size) {
+            return cells;
+        }
+
+        @Override
+        public void reset(int size) {
+            this.size = size;
+            this.allDigits = (1 << size) - 1;
+            missing = sum;
+            free = cells.length;
+            used = 0;
+        }
+
+        @Override
+        public boolean start(Domains domains) {
+            return restrictFree(domains);
+        }
+
+        @Override
+        public boolean onAssign(int cell, int digit, Domains domains) {
+            missing -= digit;
+            free--;
+            used |= 1 << (digit - 1);
+            return restrictFree(domains);
+        }
+
+        @Override
+        public void onUndo(int cell, int digit) {
+            missing += digit;
+            free++;
+            used &= ~(1 << (digit - 1));
+        }
+
+        private boolean restrictFree(Domains domains) {
+            if (free == 0) {
+                return missing == 0;
+            }
+            int allowed = combinations(size, free, missing, allDigits & ~used);
+            if (allowed == 0) {
+                return false;
+            }
+            for (int cell : cells) {
+                if (!domains.isAssigned(cell) && !domains.restrict(cell, allowed)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the digits that occur in some set of {@code count} distinct
+         * digits from {@code allowed} adding up to {@code sum}, 0 if there is none.
+         */
+        static int combinations(int size, int count, int sum, int allowed) {
+            if (sum < 0) {
+                return 0;
+            }
+            if (size == 9) {
+                return sum > 45 ? 0 : TABLE_9[(allowed * 10 + count) * 46 + sum];
+            }
+            int result = search(count, sum, allowed);
+            return result < 0 ? 0 : result;
+        }
+
+        /** Union of the valid digit sets, -1 if none (0 is the valid empty set). */
+        private static int search(int count, int sum, int allowed) {
+            if (count == 0) {
+                return sum == 0 ? 0 : -1;
+            }
+            int result = -1;
+            for (int m = allowed; m != 0; m &= m - 1) {
+                int bit = m & -m;
+                int digit = Integer.numberOfTrailingZeros(bit) + 1;
+                if (digit * count > sum) {
+                    break;  // digits only grow from here
+                }
+                int rest = search(count - 1, sum - digit, m & ~bit);
+                if (rest >= 0) {
+                    result = (result < 0 ? 0 : result) | bit | rest;
+                }
+            }
+            return result;
+        }
+
+        /** Tabulates {@link #combinations} for every allowed mask, count and sum of a board size. */
+        private static int[] buildTable(int size) {
+            int maxSum = size * (size + 1) / 2;
+            int[] table = new int[(1 << size) * (size + 1) * (maxSum + 1)];
+            for (int set = 1; set < 1 << size; set++) {
+                int count = Integer.bitCount(set);
+                int setSum = 0;
+                for (int m = set; m != 0; m &= m - 1) {
+                    setSum += Integer.numberOfTrailingZeros(m) + 1;
+                }
+                // Every allowed mask containing the set can use it
+                int rest = ((1 << size) - 1) & ~set;
+                for (int extra = rest; ; extra = (extra - 1) & rest) {
+                    table[((set | extra) * (size + 1) + count) * (maxSum + 1) + setSum] |= set;
+                    if (extra == 0) {
+                        break;
+                    }
+                }
+            }
+            return table;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package sudoku;
+
+/**
+ * Sudoku engine based on Knuth's Algorithm X with Dancing Links.
+ * <p>
+ * Sudoku is modelled as an exact-cover problem with 4·n⁴ constraint columns
+ * (cell filled, row-digit, column-digit, box-digit; 324 for a 9x9 board) and
+ * one candidate row per (row, column, digit). The link matrix is stored in flat
+ * {@code int} arrays and built on the first solve of a given board size; givens
+ * are selected before the search and deselected afterwards, so the same
+ * instance can be reused for any number of solves without rebuilding or
+ * allocating.
+ * <p>
+ * Row choices are reported to the {@link SudokuSolver.StepListener} as
+ * placements, and undone choices as clears, exactly like the BBCP engine.
+ */
+public class DancingLinksSolver implements SudokuEngine {
+
+    /** Index of the root header; column headers are 1..columns. */
+    private static final int ROOT = 0;
+
+    /** Geometry the link matrix was built for, null before the first solve. */
+    private BoardGeometry geometry;
+
+    private int[] left;
+    private int[] right;
+    private int[] up;
+    private int[] down;
+    private int[] column;
+    private int[] rowOf;
+    private int[] columnSize;
+    private boolean[] columnCovered;
+
+    /** First node of each candidate row. */
+    private int[] rowFirst;
+
+    /** Selected row nodes of the current partial solution (givens first). */
+    private int[] chosen;
+
+    private long backtrackCount = 0;
+    private long nodesVisitedCount = 0;
+
+    /** Builds the exact-cover link matrix for the given board geometry. */
+    private void build(BoardGeometry g) {
+        int size = g.size;
+        int cells = g.cells;
+        int columns = 4 * cells;
+        int rows = cells * size;
+        int nodes = 1 + columns + 4 * rows;
+
+        left = new int[nodes];
+        right = new int[nodes];
+        up = new int[nodes];
+        down = new int[nodes];
+        column = new int[nodes];
+        rowOf = new int[nodes];
+        columnSize = new int[columns + 1];
+        columnCovered = new boolean[columns + 1];
+        rowFirst = new int[rows];
+        chosen = new int[cells];
+
+        // Root and column headers form a circular horizontal list
+        for (int i = 0; i <= columns; i++) {
+            left[i] = i == 0 ? columns : i - 1;
+            right[i] = i == columns ? 0 : i + 1;
+            up[i] = i;
+            down[i] = i;
+            column[i] = i;
+        }
+
+        int next = columns + 1;
+        for (int cell = 0; cell < cells; cell++) {
+            int r = g.cellRow[cell];
+            int c = g.cellCol[cell];
+            int box = g.cellBox[cell];
+            for (int d = 0; d < size; d++) {
+                int row = cell * size + d;
+                int first = next;
+                rowFirst[row] = first;
+
+                appendNode(next++, 1 + cell, row);
+                appendNode(next++, 1 + cells + r * size + d, row);
+                appendNode(next++, 1 + 2 * cells + c * size + d, row);
+                appendNode(next++, 1 + 3 * cells + box * size + d, row);
+
+                // Link the four nodes of the row into a circular list
+                for (int k = 0; k < 4; k++) {
+                    int node = first + k;
+                    left[node] = first + (k + 3) % 4;
+                    right[node] = first + (k + 1) % 4;
+                }
+            }
+        }
+        geometry = g;
+    }
+
+    @Override
+    public String getName() {
+        return "dlx";
+    }
+
+    @Override
+    public long getBacktrackCount() {
+        return backtrackCount;
+    }
+
+    @Override
+    public long getNodesVisitedCount() {
+        return nodesVisitedCount;
+    }
+
+    @Override
+    public boolean solve(int[][] board, SudokuSolver.StepListener listener) {
+        BoardGeometry g = BoardGeometry.of(board);
+        if (g != geometry) {
+            build(g);
+        }
+        int size = g.size;
+
+        // Select the rows of all givens, rejecting conflicting or out-of-range values
+        int givens = 0;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int val = board[r][c];
+                if (val == 0) continue;
+
+                if (val < 1 || val > size || !isSelectable(rowFirst[encodeRow(r, c, val)])) {
+                    deselectGivens(givens);
+                    throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+                }
+                int node = rowFirst[encodeRow(r, c, val)];
+                selectRow(node);
+                chosen[givens++] = node;
+            }
+        }
+
+        backtrackCount = 0;
+        nodesVisitedCount = 0;
+        boolean solved = search(board, givens, listener);
+
+        deselectGivens(givens);
+        return solved;
+    }
+
+    /** Appends a node at the bottom of the given column. */
+    private void appendNode(int node, int col, int row) {
+        column[node] = col;
+        rowOf[node] = row;
+        up[node] = up[col];
+        down[node] = col;
+        down[up[col]] = node;
+        up[col] = node;
+        columnSize[col]++;
+    }
+
+    /** Encodes (row, col, digit) into a candidate row index (0..728 on a 9x9 board). */
+    private int encodeRow(int r, int c, int digit) {
+        int size = geometry.size;
+        return (r * size + c) * size + (digit - 1);
+    }
+
+    /** Returns true if none of the columns of the row containing {@code node} is covered. */
+    private boolean isSelectable(int node) {
+        int j = node;
+        do {
+            if (columnCovered[column[j]]) {
+                return false;
+            }
+            j = right[j];
+        } while (j != node);
+        return true;
+    }
+
+    /** Deselects the first {@code count} chosen rows in reverse order. */
+    private void deselectGivens(int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            deselectRow(chosen[i]);
+        }
+    }
+
+    /**
+     * Recursive Algorithm X search, always branching on the column with the
+     * fewest remaining rows.
+     *
+     * @param depth number of rows already chosen (givens included)
+     */
+    private boolean search(int[][] board, int depth, SudokuSolver.StepListener listener) {
+        nodesVisitedCount++;
+
+        if (listener != null && listener.isCancelled()) {
+            return false;
+        }
+
+        if (right[ROOT] == ROOT) {
+            return true;  // every constraint is covered
+        }
+
+        int best = right[ROOT];
+        for (int col = right[best]; col != ROOT; col = right[col]) {
+            if (columnSize[col] < columnSize[best]) {
+                best = col;
+                if (columnSize[best] <= 1) {
+                    break;
+                }
+            }
+        }
+        if (columnSize[best] == 0) {
+            return false;  // dead end
+        }
+
+        int size = geometry.size;
+        cover(best);
+        boolean solved = false;
+        for (int node = down[best]; node != best; node = down[node]) {
+            int row = rowOf[node];
+            int r = row / (size * size);
+            int c = (row / size) % size;
+            int num = row % size + 1;
+
+            // Place number
+            for (int j = right[node]; j != node; j = right[j]) {
+                cover(column[j]);
+            }
+            chosen[depth] = node;
+            board[r][c] = num;
+
+            boolean cancelled = false;
+            if (listener != null) {
+                listener.onStep(r, c, num);
+                cancelled = listener.isCancelled();
+            }
+
+            if (!cancelled) {
+                solved = search(board, depth + 1, listener);
+            }
+
+            for (int j = left[node]; j != node; j = left[j]) {
+                uncover(column[j]);
+            }
+
+            if (solved) {
+                break;
+            }
+
+            // Backtrack
+            board[r][c] = 0;
+            backtrackCount++;
+
+            if (listener != null) {
+                listener.onStep(r, c, 0);
+                cancelled = cancelled || listener.isCancelled();
+            }
+            if (cancelled) {
+                break;
+            }
+        }
+        uncover(best);
+        return solved;
+    }
+
+    /** Covers every column of the row containing {@code node}, starting with its own. */
+    private void selectRow(int node) {
+        int j = node;
+        do {
+            cover(column[j]);
+            j = right[j];
+        } while (j != node);
+    }
+
+    /** Reverses {@link #selectRow(int)}. */
+    private void deselectRow(int node) {
+        int j = left[node];
+        do {
+            uncover(column[j]);
+            j = left[j];
+        } while (j != left[node]);
+    }
+
+    /** Removes a column header and every row intersecting it from the matrix. */
+    private void cover(int col) {
+        columnCovered[col] = true;
+        right[left[col]] = right[col];
+        left[right[col]] = left[col];
+        for (int i = down[col]; i != col; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                up[down[j]] = up[j];
+                down[up[j]] = down[j];
+                columnSize[column[j]]--;
+            }
+        }
+    }
+
+    /** Restores a column removed by {@link #cover(int)}. */
+    private void uncover(int col) {
+        for (int i = up[col]; i != col; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                columnSize[column[j]]++;
+                up[down[j]] = j;
+                down[up[j]] = j;
+            }
+        }
+        right[left[col]] = col;
+        left[right[col]] = col;
+        columnCovered[col] = false;
+    }
+}
@@ -0,0 +1,795 @@
+package sudoku;
+
+/**
+ * Rates puzzles by the human solving techniques they require.
+ * <p>
+ * The grader solves like a person would: at every step it applies the
+ * simplest technique that makes progress and starts again from the simplest
+ * one afterwards. Techniques, from easiest to hardest:
+ * <ul>
+ *     <li>singles (hidden, naked)</li>
+ *     <li>intersections (pointing, claiming)</li>
+ *     <li>naked and hidden subsets (pairs, triples, quads)</li>
+ *     <li>basic fish (X-Wing, Swordfish, Jellyfish)</li>
+ *     <li>wings (XY-Wing, XYZ-Wing)</li>
+ *     <li>chains (X-Chain on one digit, XY-Chain through bivalue cells)</li>
+ * </ul>
+ * Only when none applies is the rest of the board finished by search
+ * ({@link Technique#SEARCH}). The result is the hardest technique needed and
+ * a score equal to its rating, on the scale popularized by Sudoku Explainer
+ * (1.5 for a hidden single up to 10 for puzzles that need search). Unlike
+ * backtrack counts, this does not depend on the order in which cells are tried.
+ * <p>
+ * Candidates are bit masks per cell and all working buffers are reused between
+ * puzzles, so grading a corpus allocates little more than one {@link Grade}
+ * per puzzle. As a {@link SudokuEngine} (name {@code "grade"}) the grader
+ * solves boards in place and reports every placement to the step listener.
+ */
+public class DifficultyGrader implements SudokuEngine {
+
+    /** Solving techniques in the order they are tried, with their rating. */
+    public enum Technique {
+        HIDDEN_SINGLE("Hidden Single", 1.5),
+        NAKED_SINGLE("Naked Single", 2.3),
+        POINTING("Pointing", 2.6),
+        CLAIMING("Claiming", 2.8),
+        NAKED_PAIR("Naked Pair", 3.0),
+        X_WING("X-Wing", 3.2),
+        HIDDEN_PAIR("Hidden Pair", 3.4),
+        NAKED_TRIPLE("Naked Triple", 3.6),
+        SWORDFISH("Swordfish", 3.8),
+        HIDDEN_TRIPLE("Hidden Triple", 4.0),
+        XY_WING("XY-Wing", 4.2),
+        XYZ_WING("XYZ-Wing", 4.4),
+        NAKED_QUAD("Naked Quad", 5.0),
+        JELLYFISH("Jellyfish", 5.2),
+        HIDDEN_QUAD("Hidden Quad", 5.4),
+        X_CHAIN("X-Chain", 6.6),
+        XY_CHAIN("XY-Chain", 7.0),
+        SEARCH("Search", 10.0);
+
+        private final String displayName;
+        private final double rating;
+
+        Technique(String displayName, double rating) {
+            this.displayName = displayName;
+            this.rating = rating;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public double getRating() {
+            return rating;
+        }
+    }
+
+    /** Immutable outcome of grading one puzzle. */
+    public static final class Grade {
+        private final boolean solved;
+        private final Technique hardest;
+        private final long[] counts;
+        private final long nodes;
+        private final long backtracks;
+
+        Grade(boolean solved, Technique hardest, long[] counts, long nodes, long backtracks) {
+            this.solved = solved;
+            this.hardest = hardest;
+            this.counts = counts;
+            this.nodes = nodes;
+            this.backtracks = backtracks;
+        }
+
+        /** Returns true if the puzzle has a solution. */
+        public boolean isSolved() {
+            return solved;
+        }
+
+        /** Returns the hardest technique used, or null if the board had no empty cell. */
+        public Technique getHardest() {
+            return hardest;
+        }
+
+        /** Returns the rating of the hardest technique, 0 if none was needed. */
+        public double getScore() {
+            return hardest == null ? 0 : hardest.getRating();
+        }
+
+        /** Returns how often a technique made progress (placements for singles, steps otherwise). */
+        public long getCount(Technique technique) {
+            return counts[technique.ordinal()];
+        }
+
+        /** Returns the nodes visited by the search fallback (1 if logic alone sufficed). */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /** Returns the backtracks of the search fallback. */
+        public long getBacktracks() {
+            return backtracks;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f %s", getScore(), hardest == null ? "NONE" : hardest.name());
+        }
+    }
+
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    /** Geometry of the board being graded, null before the first puzzle. */
+    private BoardGeometry g;
+
+    // Working state, allocated on the first puzzle of a board size and reused afterwards
+    private int[] candidates;
+    private int[] values;
+    private int unsolved;
+    private boolean contradiction;
+
+    /** Scratch lists for subsets and fish: unit indices or digits, and their masks. */
+    private int[] items;
+    private int[] itemMasks;
+    private int[] chosen;
+
+    /** Chain search: strong-link partners (three slots per cell), BFS queue and visit stamps. */
+    private int[] strong;
+    private int[] queue;
+    private int[] seen;
+    private int stamp;
+
+    private final long[] counts = new long[TECHNIQUES.length];
+    private Technique hardest;
+    private SudokuSolver fallback;
+
+    private long backtrackCount = 0;
+    private long nodesVisitedCount = 0;
+
+    private SudokuSolver.StepListener listener;
+
+    @Override
+    public String getName() {
+        return "grade";
+    }
+
+    @Override
+    public long getBacktrackCount() {
+        return backtrackCount;
+    }
+
+    @Override
+    public long getNodesVisitedCount() {
+        return nodesVisitedCount;
+    }
+
+    @Override
+    public boolean solve(int[][] board, SudokuSolver.StepListener listener) {
+        return run(board, listener);
+    }
+
+    /**
+     * Grades a puzzle without changing the board.
+     *
+     * @throws IllegalArgumentException if the initial board is invalid.
+     */
+    public Grade grade(int[][] board) {
+        return grade(board, null);
+    }
+
+    /**
+     * Grades a puzzle without changing the board; the listener sees the
+     * placements and can cancel (the grade is then reported as unsolved).
+     *
+     * @throws IllegalArgumentException if the initial board is invalid.
+     */
+    public Grade grade(int[][] board, SudokuSolver.StepListener listener) {
+        int[][] copy = new int[board.length][];
+        for (int r = 0; r < board.length; r++) {
+            copy[r] = board[r].clone();
+        }
+        boolean solved = run(copy, listener);
+        return new Grade(solved, hardest, counts.clone(), nodesVisitedCount, backtrackCount);
+    }
+
+    /** Solves the board in place by techniques, falling back to search. */
+    private boolean run(int[][] board, SudokuSolver.StepListener listener) {
+        BoardGeometry geometry = BoardGeometry.of(board);
+        if (geometry != g) {
+            allocate(geometry);
+        }
+        for (int cell = 0; cell < g.cells; cell++) {
+            candidates[cell] = g.allDigits;
+            values[cell] = 0;
+        }
+        unsolved = g.cells;
+        contradiction = false;
+        hardest = null;
+        backtrackCount = 0;
+        nodesVisitedCount = 1;  // the root
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+
+        // Givens are placed silently and validated against each other
+        this.listener = null;
+        for (int cell = 0; cell < g.cells; cell++) {
+            int val = board[g.cellRow[cell]][g.cellCol[cell]];
+            if (val == 0) continue;
+            if (val < 1 || val > g.size || (candidates[cell] & (1 << (val - 1))) == 0) {
+                throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+            }
+            place(cell, val);
+        }
+
+        this.listener = listener;
+        try {
+            while (unsolved > 0 && !contradiction) {
+                if (listener != null && listener.isCancelled()) {
+                    return false;
+                }
+                if (!step()) {
+                    record(Technique.SEARCH, 1);
+                    return search(board);
+                }
+            }
+            if (contradiction) {
+                return false;
+            }
+            for (int cell = 0; cell < g.cells; cell++) {
+                board[g.cellRow[cell]][g.cellCol[cell]] = values[cell];
+            }
+            return true;
+        } finally {
+            this.listener = null;
+        }
+    }
+
+    /** Sizes the working buffers for a board geometry. */
+    private void allocate(BoardGeometry geometry) {
+        g = geometry;
+        candidates = new int[g.cells];
+        values = new int[g.cells];
+        items = new int[g.size];
+        itemMasks = new int[g.size];
+        chosen = new int[4];
+        strong = new int[3 * g.cells];
+        queue = new int[g.cells * g.size];
+        seen = new int[g.cells * g.size];
+        stamp = 0;
+    }
+
+    /** Applies the simplest technique that makes progress; false if none does. */
+    private boolean step() {
+        for (Technique t : TECHNIQUES) {
+            int progress;
+            switch (t) {
+                case HIDDEN_SINGLE: progress = hiddenSingles(); break;
+                case NAKED_SINGLE: progress = nakedSingles(); break;
+                case POINTING: progress = intersections(true); break;
+                case CLAIMING: progress = intersections(false); break;
+                case NAKED_PAIR: progress = nakedSubset(2); break;
+                case X_WING: progress = fish(2); break;
+                case HIDDEN_PAIR: progress = hiddenSubset(2); break;
+                case NAKED_TRIPLE: progress = nakedSubset(3); break;
+                case SWORDFISH: progress = fish(3); break;
+                case HIDDEN_TRIPLE: progress = hiddenSubset(3); break;
+                case XY_WING: progress = xyWing(); break;
+                case XYZ_WING: progress = xyzWing(); break;
+                case NAKED_QUAD: progress = nakedSubset(4); break;
+                case JELLYFISH: progress = fish(4); break;
+                case HIDDEN_QUAD: progress = hiddenSubset(4); break;
+                case X_CHAIN: progress = xChain(); break;
+                case XY_CHAIN: progress = xyChain(); break;
+                default: return false;
+            }
+            if (progress > 0) {
+                record(t, progress);
+                return true;
+            }
+            if (contradiction) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void record(Technique t, int times) {
+        counts[t.ordinal()] += times;
+        if (hardest == null || t.ordinal() > hardest.ordinal()) {
+            hardest = t;
+        }
+    }
+
+    /** Finishes the board from the placed values with the MRV search. */
+    private boolean search(int[][] board) {
+        for (int cell = 0; cell < g.cells; cell++) {
+            board[g.cellRow[cell]][g.cellCol[cell]] = values[cell];
+        }
+        if (fallback == null) {
+            fallback = new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV);
+        }
+        boolean solved = fallback.solve(board, listener);
+        nodesVisitedCount = fallback.getNodesVisitedCount();
+        backtrackCount = fallback.getBacktrackCount();
+        return solved;
+    }
+
+    /** Places a digit and removes it from the peers; an emptied peer is a contradiction. */
+    private void place(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        values[cell] = digit;
+        candidates[cell] = bit;
+        unsolved--;
+        if (listener != null) {
+            listener.onStep(g.cellRow[cell], g.cellCol[cell], digit);
+        }
+        for (int peer : g.peers[cell]) {
+            if (values[peer] == 0 && (candidates[peer] & bit) != 0) {
+                candidates[peer] ^= bit;
+                if (candidates[peer] == 0) {
+                    contradiction = true;
+                }
+            }
+        }
+    }
+
+    /** Removes candidates from an empty cell. Returns true if any were removed. */
+    private boolean eliminate(int cell, int mask) {
+        if (values[cell] != 0 || (candidates[cell] & mask) == 0) {
+            return false;
+        }
+        candidates[cell] &= ~mask;
+        if (candidates[cell] == 0) {
+            contradiction = true;
+        }
+        return true;
+    }
+
+    private boolean sees(int a, int b) {
+        return a != b && (g.cellRow[a] == g.cellRow[b] || g.cellCol[a] == g.cellCol[b]
+                || g.cellBox[a] == g.cellBox[b]);
+    }
+
+    /** Returns true if an empty peer of the cell still has one of the candidates in {@code mask}. */
+    private boolean peerHas(int cell, int mask) {
+        for (int peer : g.peers[cell]) {
+            if (values[peer] == 0 && (candidates[peer] & mask) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Places every digit that has one place left in a unit. Returns the number of placements. */
+    private int hiddenSingles() {
+        int placed = 0;
+        for (int[] unit : g.units) {
+            int once = 0;
+            int twice = 0;
+            int done = 0;
+            for (int cell : unit) {
+                if (values[cell] != 0) {
+                    done |= candidates[cell];
+                } else {
+                    twice |= once & candidates[cell];
+                    once |= candidates[cell];
+                }
+            }
+            if ((once | done) != g.allDigits) {
+                contradiction = true;  // some digit has no place left in this unit
+                return placed;
+            }
+            int hidden = once & ~twice & ~done;
+            while (hidden != 0) {
+                int bit = hidden & -hidden;
+                hidden ^= bit;
+                for (int cell : unit) {
+                    if (values[cell] == 0 && (candidates[cell] & bit) != 0) {
+                        place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+                        placed++;
+                        break;
+                    }
+                }
+            }
+        }
+        return placed;
+    }
+
+    /** Places every cell with a single candidate. Returns the number of placements. */
+    private int nakedSingles() {
+        int placed = 0;
+        for (int cell = 0; cell < g.cells; cell++) {
+            int mask = candidates[cell];
+            if (values[cell] == 0 && mask != 0 && (mask & (mask - 1)) == 0) {
+                place(cell, Integer.numberOfTrailingZeros(mask) + 1);
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+    /** Pointing (digit confined to a line within a box) or claiming (to a box within a line). */
+    private int intersections(boolean pointing) {
+        for (int s = 0; s < g.segment.length; s++) {
+            int shared = unsolvedMask(g.segment[s]);
+            if (shared == 0) continue;
+            int lineRest = unsolvedMask(g.segmentLineRest[s]);
+            int boxRest = unsolvedMask(g.segmentBoxRest[s]);
+            int locked = pointing ? shared & ~boxRest & lineRest : shared & ~lineRest & boxRest;
+            if (locked != 0) {
+                for (int cell : pointing ? g.segmentLineRest[s] : g.segmentBoxRest[s]) {
+                    eliminate(cell, locked);
+                }
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /** Union of the candidates of the empty cells among {@code cells}. */
+    private int unsolvedMask(int[] cells) {
+        int mask = 0;
+        for (int cell : cells) {
+            if (values[cell] == 0) {
+                mask |= candidates[cell];
+            }
+        }
+        return mask;
+    }
+
+    /** {@code k} cells of a unit whose candidates are {@code k} digits: the digits leave the other cells. */
+    private int nakedSubset(int k) {
+        for (int[] unit : g.units) {
+            int n = 0;
+            int empty = 0;
+            for (int i = 0; i < g.size; i++) {
+                int cell = unit[i];
+                if (values[cell] != 0) continue;
+                empty++;
+                int count = Integer.bitCount(candidates[cell]);
+                if (count >= 2 && count <= k) {
+                    items[n] = i;
+                    itemMasks[n++] = candidates[cell];
+                }
+            }
+            if (empty > k && n >= k && nakedFrom(unit, n, k, 0, 0, 0, 0)) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private boolean nakedFrom(int[] unit, int n, int k, int start, int depth, int union, int members) {
+        if (depth == k) {
+            if (Integer.bitCount(union) != k) {
+                return false;
+            }
+            boolean changed = false;
+            for (int i = 0; i < g.size; i++) {
+                if ((members & (1 << i)) == 0) {
+                    changed |= eliminate(unit[i], union);
+                }
+            }
+            return changed;
+        }
+        for (int j = start; j < n; j++) {
+            int next = union | itemMasks[j];
+            if (Integer.bitCount(next) <= k
+                    && nakedFrom(unit, n, k, j + 1, depth + 1, next, members | (1 << items[j]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** {@code k} digits confined to the same {@code k} cells of a unit: other digits leave those cells. */
+    private int hiddenSubset(int k) {
+        for (int[] unit : g.units) {
+            int n = 0;
+            int open = 0;
+            for (int d = 0; d < g.size; d++) {
+                int bit = 1 << d;
+                int positions = 0;
+                boolean placed = false;
+                for (int i = 0; i < g.size; i++) {
+                    int cell = unit[i];
+                    if (values[cell] != 0) {
+                        placed |= values[cell] == d + 1;
+                    } else if ((candidates[cell] & bit) != 0) {
+                        positions |= 1 << i;
+                    }
+                }
+                if (placed) continue;
+                open++;
+                int count = Integer.bitCount(positions);
+                if (count >= 2 && count <= k) {
+                    items[n] = d;
+                    itemMasks[n++] = positions;
+                }
+            }
+            if (open > k && n >= k && hiddenFrom(unit, n, k, 0, 0, 0, 0)) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private boolean hiddenFrom(int[] unit, int n, int k, int start, int depth, int union, int digits) {
+        if (depth == k) {
+            if (Integer.bitCount(union) != k) {
+                return false;
+            }
+            boolean changed = false;
+            for (int pos = union; pos != 0; pos &= pos - 1) {
+                changed |= eliminate(unit[Integer.numberOfTrailingZeros(pos)], g.allDigits & ~digits);
+            }
+            return changed;
+        }
+        for (int j = start; j < n; j++) {
+            int next = union | itemMasks[j];
+            if (Integer.bitCount(next) <= k
+                    && hiddenFrom(unit, n, k, j + 1, depth + 1, next, digits | (1 << items[j]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Basic fish of size {@code k}: a digit confined to {@code k} cover lines
+     * within {@code k} base lines leaves the rest of the cover lines. Rows and
+     * columns are both tried as base lines.
+     */
+    private int fish(int k) {
+        for (int d = 0; d < g.size; d++) {
+            int bit = 1 << d;
+            for (int base = 0; base <= g.size; base += g.size) {
+                int n = 0;
+                for (int line = 0; line < g.size; line++) {
+                    int[] unit = g.units[base + line];
+                    int positions = 0;
+                    for (int i = 0; i < g.size; i++) {
+                        if (values[unit[i]] == 0 && (candidates[unit[i]] & bit) != 0) {
+                            positions |= 1 << i;
+                        }
+                    }
+                    int count = Integer.bitCount(positions);
+                    if (count >= 2 && count <= k) {
+                        items[n] = line;
+                        itemMasks[n++] = positions;
+                    }
+                }
+                if (n >= k && fishFrom(base, bit, n, k, 0, 0, 0)) {
+                    return 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private boolean fishFrom(int base, int bit, int n, int k, int start, int depth, int union) {
+        if (depth == k) {
+            if (Integer.bitCount(union) != k) {
+                return false;
+            }
+            boolean changed = false;
+            for (int line = 0; line < g.size; line++) {
+                if (isChosen(line, k)) continue;
+                for (int pos = union; pos != 0; pos &= pos - 1) {
+                    changed |= eliminate(g.units[base + line][Integer.numberOfTrailingZeros(pos)], bit);
+                }
+            }
+            return changed;
+        }
+        for (int j = start; j < n; j++) {
+            int next = union | itemMasks[j];
+            if (Integer.bitCount(next) <= k) {
+                chosen[depth] = items[j];
+                if (fishFrom(base, bit, n, k, j + 1, depth + 1, next)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isChosen(int line, int k) {
+        for (int i = 0; i < k; i++) {
+            if (chosen[i] == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * XY-Wing: a bivalue pivot {a,b} seeing bivalue pincers {a,c} and {b,c};
+     * one pincer holds c, so c leaves every cell seeing both pincers.
+     */
+    private int xyWing() {
+        for (int pivot = 0; pivot < g.cells; pivot++) {
+            int p = candidates[pivot];
+            if (values[pivot] != 0 || Integer.bitCount(p) != 2) continue;
+            for (int first : g.peers[pivot]) {
+                int q = candidates[first];
+                if (values[first] != 0 || Integer.bitCount(q) != 2 || Integer.bitCount(p & q) != 1) continue;
+                int c = q & ~p;
+                int wanted = (p & ~q) | c;
+                for (int second : g.peers[pivot]) {
+                    if (second == first || values[second] != 0 || candidates[second] != wanted) continue;
+                    boolean changed = false;
+                    for (int target : g.peers[first]) {
+                        if (target != pivot && sees(target, second)) {
+                            changed |= eliminate(target, c);
+                        }
+                    }
+                    if (changed) {
+                        return 1;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * XYZ-Wing: a pivot {a,b,c} seeing bivalue pincers {a,c} and {b,c};
+     * c leaves every cell seeing the pivot and both pincers.
+     */
+    private int xyzWing() {
+        for (int pivot = 0; pivot < g.cells; pivot++) {
+            int p = candidates[pivot];
+            if (values[pivot] != 0 || Integer.bitCount(p) != 3) continue;
+            for (int first : g.peers[pivot]) {
+                int q = candidates[first];
+                if (values[first] != 0 || Integer.bitCount(q) != 2 || (q & ~p) != 0) continue;
+                for (int second : g.peers[pivot]) {
+                    int r = candidates[second];
+                    if (second <= first || values[second] != 0 || Integer.bitCount(r) != 2
+                            || (r & ~p) != 0 || r == q) continue;
+                    int c = q & r;
+                    boolean changed = false;
+                    for (int target : g.peers[pivot]) {
+                        if (target != first && target != second && sees(target, first) && sees(target, second)) {
+                            changed |= eliminate(target, c);
+                        }
+                    }
+                    if (changed) {
+                        return 1;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * X-Chain: an alternating chain of strong links (a unit with exactly two
+     * places for the digit) and weak links (any two peers) on one digit,
+     * starting and ending with a strong link. One of its two ends holds the
+     * digit, so cells seeing both ends lose it.
+     */
+    private int xChain() {
+        for (int d = 0; d < g.size; d++) {
+            int bit = 1 << d;
+            for (int i = 0; i < strong.length; i++) {
+                strong[i] = -1;
+            }
+            for (int u = 0; u < g.units.length; u++) {
+                int a = -1;
+                int b = -1;
+                int count = 0;
+                for (int cell : g.units[u]) {
+                    if (values[cell] == 0 && (candidates[cell] & bit) != 0) {
+                        if (count++ == 0) a = cell; else b = cell;
+                    }
+                }
+                if (count == 2) {
+                    int slot = u / g.size;
+                    strong[3 * a + slot] = b;
+                    strong[3 * b + slot] = a;
+                }
+            }
+
+            for (int start = 0; start < g.cells; start++) {
+                if (values[start] != 0 || (candidates[start] & bit) == 0 || !peerHas(start, bit)) continue;
+                // States are cell * 2 + (1 if reached through a strong link)
+                stamp++;
+                int head = 0;
+                int tail = 0;
+                for (int slot = 0; slot < 3; slot++) {
+                    int p = strong[3 * start + slot];
+                    if (p >= 0 && seen[2 * p + 1] != stamp) {
+                        seen[2 * p + 1] = stamp;
+                        queue[tail++] = 2 * p + 1;
+                    }
+                }
+                while (head < tail) {
+                    int state = queue[head++];
+                    int cell = state >> 1;
+                    if ((state & 1) != 0) {
+                        if (cell != start) {
+                            boolean changed = false;
+                            for (int target : g.peers[cell]) {
+                                if (target != start && sees(target, start)) {
+                                    changed |= eliminate(target, bit);
+                                }
+                            }
+                            if (changed) {
+                                return 1;
+                            }
+                        }
+                        for (int peer : g.peers[cell]) {
+                            if (peer != start && values[peer] == 0 && (candidates[peer] & bit) != 0
+                                    && seen[2 * peer] != stamp) {
+                                seen[2 * peer] = stamp;
+                                queue[tail++] = 2 * peer;
+                            }
+                        }
+                    } else {
+                        for (int slot = 0; slot < 3; slot++) {
+                            int p = strong[3 * cell + slot];
+                            if (p >= 0 && seen[2 * p + 1] != stamp) {
+                                seen[2 * p + 1] = stamp;
+                                queue[tail++] = 2 * p + 1;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * XY-Chain: a chain of bivalue cells, each linked to the next by a shared
+     * digit, from a cell {x,y} to a cell whose remaining digit is x again.
+     * One of the two ends holds x, so cells seeing both ends lose it.
+     */
+    private int xyChain() {
+        int size = g.size;
+        for (int start = 0; start < g.cells; start++) {
+            int s = candidates[start];
+            if (values[start] != 0 || Integer.bitCount(s) != 2) continue;
+            for (int xs = s; xs != 0; xs &= xs - 1) {
+                int x = xs & -xs;
+                if (!peerHas(start, x)) continue;
+                // States are cell * size + digit index: "this cell holds the digit if start is not x"
+                stamp++;
+                int head = 0;
+                int tail = 0;
+                int first = start * size + Integer.numberOfTrailingZeros(s & ~x);
+                seen[first] = stamp;
+                queue[tail++] = first;
+                while (head < tail) {
+                    int state = queue[head++];
+                    int cell = state / size;
+                    int on = 1 << (state % size);
+                    for (int peer : g.peers[cell]) {
+                        int m = candidates[peer];
+                        if (peer == start || values[peer] != 0 || Integer.bitCount(m) != 2 || (m & on) == 0) continue;
+                        int other = m & ~on;
+                        if (other == x) {
+                            boolean changed = false;
+                            for (int target : g.peers[peer]) {
+                                if (target != start && sees(target, start)) {
+                                    changed |= eliminate(target, x);
+                                }
+                            }
+                            if (changed) {
+                                return 1;
+                            }
+                        }
+                        int next = peer * size + Integer.numberOfTrailingZeros(other);
+                        if (seen[next] != stamp) {
+                            seen[next] = stamp;
+                            queue[tail++] = next;
+                        }
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+}
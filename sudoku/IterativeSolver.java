@@ -0,0 +1,268 @@
+package sudoku;
+
+/**
+ * Non-recursive bitmask MRV solver that is safe to share between threads.
+ * <p>
+ * The search keeps its own explicit stack: for every depth the remaining
+ * candidate mask and the digit currently placed, in arrays sized to the
+ * number of cells. Descending and backtracking are loop iterations, so even
+ * 25x25 boards run in constant Java stack depth, and no objects are allocated
+ * per node. The working buffers live in a per-thread {@link Workspace} that is
+ * reused by every solve on that thread (and resized only when the board size
+ * changes), so one instance can serve any number of threads, e.g. as a shared
+ * field in a server.
+ * <p>
+ * {@link #solve(int[][], SudokuSolver.StepListener, long)} leaves the input
+ * board unchanged and returns an immutable {@link SolveResult}. The
+ * {@link SudokuEngine} methods are also implemented: {@code solve} writes the
+ * solution into the board, and the counters report the last solve of the
+ * calling thread.
+ */
+public final class IterativeSolver implements SudokuEngine {
+
+    /** Node budget meaning "no limit". */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    @Override
+    public String getName() {
+        return "iterative";
+    }
+
+    /** Returns the number of backtracks of the calling thread's last solve. */
+    @Override
+    public long getBacktrackCount() {
+        SolveResult last = workspaces.get().last;
+        return last == null ? 0 : last.getBacktracks();
+    }
+
+    /** Returns the number of nodes visited in the calling thread's last solve. */
+    @Override
+    public long getNodesVisitedCount() {
+        SolveResult last = workspaces.get().last;
+        return last == null ? 0 : last.getNodes();
+    }
+
+    @Override
+    public boolean solve(int[][] board, SudokuSolver.StepListener listener) {
+        return solve(board, listener, UNLIMITED).copySolutionTo(board);
+    }
+
+    /** Solves a board without listener or budget; the board is left unchanged. */
+    public SolveResult solve(int[][] board) {
+        return solve(board, null, UNLIMITED);
+    }
+
+    /**
+     * Solves a board; the board itself is left unchanged.
+     *
+     * @param board      n²×n² board, 0 for empty cells, 1..size for givens
+     * @param listener   optional step listener (can be null) for visualization and cancellation
+     * @param nodeBudget maximum number of search nodes, {@link #UNLIMITED} for no limit
+     * @return the outcome; SOLVED results carry a new board with the solution
+     * @throws IllegalArgumentException if the initial board is invalid or the budget is not positive
+     */
+    public SolveResult solve(int[][] board, SudokuSolver.StepListener listener, long nodeBudget) {
+        if (nodeBudget < 1) {
+            throw new IllegalArgumentException("Node budget must be at least 1.");
+        }
+        BoardGeometry g = BoardGeometry.of(board);
+        Workspace w = workspaces.get();
+        w.use(g);
+        if (!w.load(board)) {
+            throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+        }
+
+        long start = System.nanoTime();
+        SolveResult.Status status = w.search(listener, nodeBudget);
+        int[][] solution = status == SolveResult.Status.SOLVED ? w.solution() : null;
+        w.last = new SolveResult(status, solution, w.nodes, w.backtracks, System.nanoTime() - start);
+        return w.last;
+    }
+
+    /** Working buffers of one thread, reused across solves. */
+    private static final class Workspace {
+        BoardGeometry g;
+
+        int[] rowMask;
+        int[] colMask;
+        int[] boxMask;
+        int[] values;
+
+        /** Empty cells; {@code emptyCells[0..depth)} are filled along the current path. */
+        int[] emptyCells;
+        int emptyCount;
+
+        /** Candidates not yet tried at each depth. */
+        int[] remaining;
+        /** Bit of the digit placed at each depth, 0 if none. */
+        int[] placed;
+
+        long nodes;
+        long backtracks;
+        SolveResult last;
+
+        void use(BoardGeometry geometry) {
+            if (geometry == g) {
+                return;
+            }
+            g = geometry;
+            rowMask = new int[g.size];
+            colMask = new int[g.size];
+            boxMask = new int[g.size];
+            values = new int[g.cells];
+            emptyCells = new int[g.cells];
+            remaining = new int[g.cells];
+            placed = new int[g.cells];
+        }
+
+        /** Loads the givens; returns false if two of them conflict. */
+        boolean load(int[][] board) {
+            for (int i = 0; i < g.size; i++) {
+                rowMask[i] = 0;
+                colMask[i] = 0;
+                boxMask[i] = 0;
+            }
+            emptyCount = 0;
+            for (int cell = 0; cell < g.cells; cell++) {
+                int val = board[g.cellRow[cell]][g.cellCol[cell]];
+                values[cell] = val;
+                if (val == 0) {
+                    emptyCells[emptyCount++] = cell;
+                    continue;
+                }
+                if (val < 1 || val > g.size) {
+                    return false;
+                }
+                int bit = 1 << (val - 1);
+                int r = g.cellRow[cell];
+                int c = g.cellCol[cell];
+                int b = g.cellBox[cell];
+                if (((rowMask[r] | colMask[c] | boxMask[b]) & bit) != 0) {
+                    return false;
+                }
+                rowMask[r] |= bit;
+                colMask[c] |= bit;
+                boxMask[b] |= bit;
+            }
+            return true;
+        }
+
+        /**
+         * Depth-first search over an explicit stack. Entering a depth visits a
+         * node and pushes the candidates of its MRV cell; each iteration then
+         * either places the next candidate and descends, or undoes the
+         * placement and pops back to the parent.
+         */
+        SolveResult.Status search(SudokuSolver.StepListener listener, long nodeBudget) {
+            nodes = 0;
+            backtracks = 0;
+            int depth = 0;
+            boolean descend = true;
+
+            while (true) {
+                if (descend) {
+                    if (nodes == nodeBudget) {
+                        return SolveResult.Status.BUDGET_EXCEEDED;
+                    }
+                    nodes++;
+                    if (listener != null && listener.isCancelled()) {
+                        return SolveResult.Status.CANCELLED;
+                    }
+                    if (depth == emptyCount) {
+                        return SolveResult.Status.SOLVED;
+                    }
+                    remaining[depth] = pickMrvCell(depth);
+                    placed[depth] = 0;
+                }
+
+                int cell = emptyCells[depth];
+                int r = g.cellRow[cell];
+                int c = g.cellCol[cell];
+                int b = g.cellBox[cell];
+
+                // Backtrack: undo the digit tried last at this depth
+                int bit = placed[depth];
+                if (bit != 0) {
+                    values[cell] = 0;
+                    rowMask[r] &= ~bit;
+                    colMask[c] &= ~bit;
+                    boxMask[b] &= ~bit;
+                    placed[depth] = 0;
+                    backtracks++;
+                    if (listener != null) {
+                        listener.onStep(r, c, 0);
+                        if (listener.isCancelled()) return SolveResult.Status.CANCELLED;
+                    }
+                }
+
+                int candidates = remaining[depth];
+                if (candidates == 0) {
+                    if (depth == 0) {
+                        return SolveResult.Status.UNSOLVABLE;
+                    }
+                    depth--;  // pop
+                    descend = false;
+                    continue;
+                }
+
+                // Place number
+                bit = candidates & -candidates;
+                remaining[depth] = candidates ^ bit;
+                placed[depth] = bit;
+                int num = Integer.numberOfTrailingZeros(bit) + 1;
+                values[cell] = num;
+                rowMask[r] |= bit;
+                colMask[c] |= bit;
+                boxMask[b] |= bit;
+                if (listener != null) {
+                    listener.onStep(r, c, num);
+                    if (listener.isCancelled()) return SolveResult.Status.CANCELLED;
+                }
+                depth++;  // push
+                descend = true;
+            }
+        }
+
+        /**
+         * Swaps the empty cell with the fewest candidates into {@code emptyCells[depth]}
+         * and returns its candidate mask, or 0 if some cell has no legal digit.
+         */
+        private int pickMrvCell(int depth) {
+            int bestIndex = depth;
+            int bestCandidates = 0;
+            int bestCount = g.size + 1;
+            for (int i = depth; i < emptyCount; i++) {
+                int cell = emptyCells[i];
+                int candidates = ~(rowMask[g.cellRow[cell]] | colMask[g.cellCol[cell]] | boxMask[g.cellBox[cell]])
+                        & g.allDigits;
+                int count = Integer.bitCount(candidates);
+                if (count < bestCount) {
+                    bestIndex = i;
+                    bestCandidates = candidates;
+                    bestCount = count;
+                    if (count <= 1) {
+                        break;
+                    }
+                }
+            }
+            if (bestCount == 0) {
+                return 0;
+            }
+            int cell = emptyCells[bestIndex];
+            emptyCells[bestIndex] = emptyCells[depth];
+            emptyCells[depth] = cell;
+            return bestCandidates;
+        }
+
+        /** Returns the current values as a new board. */
+        int[][] solution() {
+            int[][] board = new int[g.size][g.size];
+            for (int cell = 0; cell < g.cells; cell++) {
+                board[g.cellRow[cell]][g.cellCol[cell]] = values[cell];
+            }
+            return board;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package sudoku;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lane-parallel engine for bulk solving of puzzles that need propagation.
+ * <p>
+ * Candidates are bit-sliced across puzzles: {@code cand[cell * size + d]} is a
+ * {@code long} whose bit k is set while digit d+1 is still possible in that
+ * cell of the k-th puzzle of a block, so every word operation works on up to
+ * {@value #LANES} puzzles at once (SIMD within a register). Propagation runs
+ * naked singles, hidden singles and pointing/claiming to a fixpoint, counting
+ * "none, one, more" per lane with two accumulator words instead of a popcount
+ * per puzzle. Lanes where a cell or a digit of a unit runs out of places are
+ * unsolvable; lanes where every cell is fixed are solved. The remaining lanes
+ * need branching and are handed to a scalar engine (MRV backtracking by
+ * default) together with the digits propagation already fixed.
+ * <p>
+ * Every round rescans all cells and units of the block, so on easy puzzles,
+ * which MRV finishes in a few dozen nodes, scalar MRV is faster (in
+ * {@code LaneBenchmark} about 150k against 230k puzzles/s). The lanes pay off
+ * on puzzles that need hidden singles and intersections but little branching,
+ * such as minimal 17-clue puzzles (about 50k against 1.2k puzzles/s).
+ * <p>
+ * {@link #solveAll(int[][][])} solves many boards (of any mix of supported
+ * sizes) and leaves them unchanged; the {@link SudokuEngine} methods solve a
+ * single board in a block of one. Buffers are reused between blocks, so an
+ * instance must not be shared between threads.
+ */
+public final class LaneSolver implements SudokuEngine {
+
+    /** Puzzles propagated together, one per bit of a {@code long}. */
+    public static final int LANES = Long.SIZE;
+
+    private final SudokuEngine fallback;
+
+    private BoardGeometry g;
+    private long[] cand;
+    /** Lanes where the cell has exactly one candidate left. */
+    private long[] single;
+    /** Lanes where a digit is a hidden single of the cell. */
+    private long[] forced;
+    /** Lanes where a digit is placed in the unit. */
+    private long[] unitPlaced;
+
+    private long backtrackCount = 0;
+    private long nodesVisitedCount = 0;
+    private long propagatedCount = 0;
+    private long handedOffCount = 0;
+
+    /** Creates a lane solver handing branching puzzles to MRV backtracking. */
+    public LaneSolver() {
+        this(new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV));
+    }
+
+    /**
+     * @param fallback scalar engine for the puzzles propagation cannot finish
+     */
+    public LaneSolver(SudokuEngine fallback) {
+        if (fallback == null) {
+            throw new IllegalArgumentException("Fallback engine must not be null.");
+        }
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String getName() {
+        return "lanes";
+    }
+
+    /** Returns the backtracks of the fallback engine in the last solve. */
+    @Override
+    public long getBacktrackCount() {
+        return backtrackCount;
+    }
+
+    /** Returns the nodes of the fallback engine in the last solve; propagation alone visits none. */
+    @Override
+    public long getNodesVisitedCount() {
+        return nodesVisitedCount;
+    }
+
+    /** Returns the number of puzzles decided by lane propagation alone, over all solves. */
+    public long getPropagatedCount() {
+        return propagatedCount;
+    }
+
+    /** Returns the number of puzzles handed to the fallback engine, over all solves. */
+    public long getHandedOffCount() {
+        return handedOffCount;
+    }
+
+    @Override
+    public boolean solve(int[][] board, SudokuSolver.StepListener listener) {
+        return solveAll(new int[][][] {board}, listener)[0].copySolutionTo(board);
+    }
+
+    /**
+     * Solves many boards, {@value #LANES} of the same size at a time; the
+     * boards themselves are left unchanged. The time of a result is its share
+     * of the block's propagation plus its own fallback search, if any.
+     *
+     * @param boards n²×n² boards, 0 for empty cells
+     * @return the outcome of each board, in order (SOLVED or UNSOLVABLE)
+     * @throws IllegalArgumentException if any board is invalid
+     */
+    public SolveResult[] solveAll(int[][][] boards) {
+        return solveAll(boards, null);
+    }
+
+    private SolveResult[] solveAll(int[][][] boards, SudokuSolver.StepListener listener) {
+        for (int[][] board : boards) {
+            if (!BoardGeometry.of(board).isConsistent(board)) {
+                throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+            }
+        }
+        nodesVisitedCount = 0;
+        backtrackCount = 0;
+        SolveResult[] results = new SolveResult[boards.length];
+        boolean[] taken = new boolean[boards.length];
+        int[] block = new int[LANES];
+        for (int first = 0; first < boards.length; first++) {
+            if (taken[first]) continue;
+            // Collect up to LANES untaken boards of the first board's size
+            int size = boards[first].length;
+            int count = 0;
+            for (int i = first; i < boards.length && count < LANES; i++) {
+                if (!taken[i] && boards[i].length == size) {
+                    taken[i] = true;
+                    block[count++] = i;
+                }
+            }
+            solveBlock(BoardGeometry.forSize(size), boards, block, count, results, listener);
+        }
+        return results;
+    }
+
+    private void solveBlock(BoardGeometry geometry, int[][][] boards, int[] block, int count,
+                            SolveResult[] results, SudokuSolver.StepListener listener) {
+        long start = System.nanoTime();
+        use(geometry);
+        int n = g.size;
+        long lanes = count == LANES ? -1L : (1L << count) - 1;
+
+        Arrays.fill(cand, 0);
+        for (int k = 0; k < count; k++) {
+            int[][] board = boards[block[k]];
+            long bit = 1L << k;
+            for (int cell = 0; cell < g.cells; cell++) {
+                int v = board[g.cellRow[cell]][g.cellCol[cell]];
+                if (v != 0) {
+                    cand[cell * n + v - 1] |= bit;
+                } else {
+                    for (int d = 0; d < n; d++) {
+                        cand[cell * n + d] |= bit;
+                    }
+                }
+            }
+        }
+
+        long dead = propagate(lanes);
+        long solved = lanes & ~dead;
+        findSingles(lanes);
+        for (int cell = 0; cell < g.cells; cell++) {
+            solved &= single[cell];
+        }
+        int[][][] extracted = extract(lanes & ~dead, count);
+        long share = (System.nanoTime() - start) / count;
+
+        for (int k = 0; k < count; k++) {
+            long bit = 1L << k;
+            if ((dead & bit) != 0) {
+                propagatedCount++;
+                results[block[k]] = new SolveResult(SolveResult.Status.UNSOLVABLE, null, 0, 0, share);
+            } else if ((solved & bit) != 0) {
+                propagatedCount++;
+                results[block[k]] = new SolveResult(SolveResult.Status.SOLVED, extracted[k], 0, 0, share);
+            } else {
+                handedOffCount++;
+                results[block[k]] = handOff(extracted[k], share, listener);
+            }
+        }
+    }
+
+    /** Solves a partially propagated board with the scalar engine. */
+    private SolveResult handOff(int[][] board, long share, SudokuSolver.StepListener listener) {
+        long start = System.nanoTime();
+        boolean ok = fallback.solve(board, listener);
+        long nodes = fallback.getNodesVisitedCount();
+        long backtracks = fallback.getBacktrackCount();
+        nodesVisitedCount += nodes;
+        backtrackCount += backtracks;
+        SolveResult.Status status = ok ? SolveResult.Status.SOLVED
+                : listener != null && listener.isCancelled() ? SolveResult.Status.CANCELLED
+                : SolveResult.Status.UNSOLVABLE;
+        return new SolveResult(status, ok ? board : null, nodes, backtracks, share + System.nanoTime() - start);
+    }
+
+    /**
+     * Propagates all lanes to a fixpoint. Each round finds the cells with one
+     * candidate left, gathers per unit and digit the lanes where it is placed
+     * and where it has only one place left, and then removes placed digits
+     * from the rest of their units and the other candidates of hidden singles
+     * in one sequential pass over the candidates.
+     *
+     * @return the lanes found to be unsolvable
+     */
+    private long propagate(long lanes) {
+        int n = g.size;
+        long dead = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            long alive = lanes & ~dead;
+            if (alive == 0) break;
+
+            dead |= findSingles(alive);
+            Arrays.fill(forced, 0);
+            for (int u = 0; u < g.units.length; u++) {
+                int[] unit = g.units[u];
+                for (int d = 0; d < n; d++) {
+                    long placed = 0;
+                    long clash = 0;
+                    long ones = 0;
+                    long twos = 0;
+                    for (int cell : unit) {
+                        long x = cand[cell * n + d];
+                        long fixed = x & single[cell];
+                        clash |= placed & fixed;
+                        placed |= fixed;
+                        twos |= ones & x;
+                        ones |= x;
+                    }
+                    dead |= alive & (clash | ~ones);
+                    unitPlaced[u * n + d] = placed;
+                    long hidden = ones & ~twos & alive;
+                    if (hidden == 0) continue;
+                    for (int cell : unit) {
+                        forced[cell * n + d] |= cand[cell * n + d] & hidden;
+                    }
+                }
+            }
+            alive = lanes & ~dead;
+
+            for (int cell = 0; cell < g.cells; cell++) {
+                int base = cell * n;
+                int row = g.cellRow[cell] * n;
+                int col = (n + g.cellCol[cell]) * n;
+                int box = (2 * n + g.cellBox[cell]) * n;
+                long anyForced = 0;
+                long twiceForced = 0;
+                for (int d = 0; d < n; d++) {
+                    twiceForced |= anyForced & forced[base + d];
+                    anyForced |= forced[base + d];
+                }
+                dead |= twiceForced & alive;
+                for (int d = 0; d < n; d++) {
+                    long x = cand[base + d];
+                    long taken = (unitPlaced[row + d] | unitPlaced[col + d] | unitPlaced[box + d]) & ~single[cell];
+                    long out = (taken | anyForced & ~forced[base + d]) & x & alive;
+                    if (out != 0) {
+                        cand[base + d] = x & ~out;
+                        changed = true;
+                    }
+                }
+            }
+            if (changed) continue;
+            alive = lanes & ~dead;
+
+            // Pointing and claiming, only once singles are exhausted
+            for (int s = 0; s < g.segment.length; s++) {
+                for (int d = 0; d < n; d++) {
+                    long shared = union(g.segment[s], d);
+                    if ((shared & alive) == 0) continue;
+                    long pointing = shared & ~union(g.segmentBoxRest[s], d) & alive;
+                    long claiming = shared & ~union(g.segmentLineRest[s], d) & alive;
+                    changed |= eliminate(g.segmentLineRest[s], d, pointing);
+                    changed |= eliminate(g.segmentBoxRest[s], d, claiming);
+                }
+            }
+        }
+        return dead;
+    }
+
+    /**
+     * Sets {@code single[cell]} to the lanes where the cell has exactly one
+     * candidate left.
+     *
+     * @return the alive lanes where some cell has none left
+     */
+    private long findSingles(long alive) {
+        int n = g.size;
+        long empty = 0;
+        for (int cell = 0; cell < g.cells; cell++) {
+            int base = cell * n;
+            long ones = 0;
+            long twos = 0;
+            for (int d = 0; d < n; d++) {
+                long x = cand[base + d];
+                twos |= ones & x;
+                ones |= x;
+            }
+            empty |= ~ones;
+            single[cell] = ones & ~twos;
+        }
+        return empty & alive;
+    }
+
+    private long union(int[] cells, int d) {
+        long any = 0;
+        for (int cell : cells) {
+            any |= cand[cell * g.size + d];
+        }
+        return any;
+    }
+
+    private boolean eliminate(int[] cells, int d, long lanes) {
+        if (lanes == 0) {
+            return false;
+        }
+        boolean changed = false;
+        for (int cell : cells) {
+            int i = cell * g.size + d;
+            if ((cand[i] & lanes) != 0) {
+                cand[i] &= ~lanes;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the given lanes as boards: the digit of every cell with one
+     * candidate left, 0 elsewhere. Expects {@code single} to be up to date.
+     */
+    private int[][][] extract(long lanes, int count) {
+        int n = g.size;
+        int[][][] boards = new int[count][][];
+        for (int k = 0; k < count; k++) {
+            if ((lanes >>> k & 1) != 0) {
+                boards[k] = new int[n][n];
+            }
+        }
+        for (int cell = 0; cell < g.cells; cell++) {
+            int r = g.cellRow[cell];
+            int c = g.cellCol[cell];
+            long fixed = single[cell] & lanes;
+            for (int d = 0; d < n && fixed != 0; d++) {
+                long x = cand[cell * n + d] & fixed;
+                fixed &= ~x;
+                while (x != 0) {
+                    boards[Long.numberOfTrailingZeros(x)][r][c] = d + 1;
+                    x &= x - 1;
+                }
+            }
+        }
+        return boards;
+    }
+
+    private void use(BoardGeometry geometry) {
+        if (geometry == g) {
+            return;
+        }
+        g = geometry;
+        cand = new long[g.cells * g.size];
+        single = new long[g.cells];
+        forced = new long[g.cells * g.size];
+        unitPlaced = new long[g.units.length * g.size];
+    }
+
+    /**
+     * Solves every puzzle of a file with the scalar MRV engine, one at a
+     * time, and with this engine, and prints the totals of both (after a
+     * warm-up round) and how many puzzles propagation decided without branching.
+     * <pre>
+     * java sudoku.LaneSolver puzzles.txt
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java sudoku.LaneSolver puzzles.txt");
+            System.exit(2);
+        }
+        List<int[][]> puzzles = new ArrayList<>();
+        try (PuzzleReader reader = new PuzzleReader(new FileReader(args[0], StandardCharsets.UTF_8))) {
+            int[][] board;
+            while ((board = reader.next()) != null) {
+                if (BoardGeometry.of(board).isConsistent(board)) {
+                    puzzles.add(board);
+                }
+            }
+        }
+        int[][][] boards = puzzles.toArray(new int[0][][]);
+
+        SudokuSolver mrv = new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV);
+        LaneSolver lanes = new LaneSolver();
+        long mrvNanos = 0;
+        long lanesNanos = 0;
+        int mrvSolved = 0;
+        int lanesSolved = 0;
+        long propagated = 0;
+        long handedOff = 0;
+        // The first round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            mrvSolved = 0;
+            for (int[][] board : boards) {
+                int[][] copy = new int[board.length][];
+                for (int r = 0; r < board.length; r++) {
+                    copy[r] = board[r].clone();
+                }
+                if (mrv.solve(copy, null)) {
+                    mrvSolved++;
+                }
+            }
+            mrvNanos = System.nanoTime() - start;
+
+            // Counters are cumulative, so only the timed round's share is printed
+            propagated = lanes.getPropagatedCount();
+            handedOff = lanes.getHandedOffCount();
+            start = System.nanoTime();
+            lanesSolved = 0;
+            for (SolveResult result : lanes.solveAll(boards)) {
+                if (result.isSolved()) {
+                    lanesSolved++;
+                }
+            }
+            lanesNanos = System.nanoTime() - start;
+        }
+
+        System.err.printf("Puzzles: %d (invalid skipped)%n", boards.length);
+        System.err.printf("mrv   | %.1f ms | Solved: %d%n", mrvNanos / 1e6, mrvSolved);
+        System.err.printf("lanes | %.1f ms | Solved: %d | Decided by propagation: %d | Handed off: %d%n",
+                lanesNanos / 1e6, lanesSolved, lanes.getPropagatedCount() - propagated,
+                lanes.getHandedOffCount() - handedOff);
+    }
+}
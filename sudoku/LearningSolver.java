@@ -0,0 +1,750 @@
+package sudoku;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Search engine with conflict-directed backjumping, nogood learning and
+ * randomized restarts.
+ * <p>
+ * Cells are chosen by fewest remaining candidates (ties broken at random),
+ * and each decision removes its digit from the domains of the peers (forward
+ * checking). Every removed candidate remembers the set of decision levels
+ * that caused it. When a cell runs out of candidates, the union of those sets
+ * is a conflict set: the search jumps straight back to its deepest level
+ * instead of the previous one, skipping levels that had nothing to do with
+ * the failure (FC-CBJ).
+ * <p>
+ * The decisions of a conflict set cannot all hold in any solution. Up to
+ * {@link #MAX_NOGOOD_LENGTH} of them are stored as a nogood in a bounded store
+ * (evicting with a second-chance clock when full). Each nogood counts how many
+ * of its decisions currently hold: when all but one do, the last one is
+ * pruned from its cell's candidates. Nogoods survive restarts, which happen
+ * after a number of failures following the Luby sequence or a geometric
+ * series, so a randomized restart does not walk into the same dead ends
+ * again. With a fixed seed every solve is reproducible.
+ * <p>
+ * Statistics of the last solve (backjumped levels, restarts, learned and
+ * evicted nogoods, candidates pruned by nogoods) are available through
+ * getters and {@link #getStats()}; {@link #main} compares the engine with
+ * plain BBCP on a puzzle file.
+ */
+public class LearningSolver implements SudokuEngine {
+
+    /** Restart schedules, in failures per run. */
+    public enum Restarts {
+        /** Never restart. */
+        NONE,
+        /** {@code RESTART_UNIT * luby(i)}: 1, 1, 2, 1, 1, 2, 4, ... */
+        LUBY,
+        /** {@code RESTART_UNIT * 1.5^i}. */
+        GEOMETRIC
+    }
+
+    /** Default number of nogoods kept. */
+    public static final int DEFAULT_CAPACITY = 20_000;
+
+    /** Longer conflict sets are used for backjumping but not stored. */
+    public static final int MAX_NOGOOD_LENGTH = 16;
+
+    /** Failures per unit of the restart schedule. */
+    private static final int RESTART_UNIT = 100;
+    private static final double GEOMETRIC_FACTOR = 1.5;
+
+    private final long seed;
+    private final Restarts restarts;
+    private final int capacity;
+
+    /** Geometry of the board being solved, null before the first solve. */
+    private BoardGeometry g;
+
+    // Search state, allocated on the first solve of a board size and reused afterwards
+    private int[] domain;
+    private int[] values;
+    /** Decision level of each assigned cell, 0 for givens, -1 if unassigned. */
+    private int[] levelOf;
+    private int emptyCount;
+
+    /** Per level: chosen cell, candidates at selection, candidates not tried yet. */
+    private int[] levelCell;
+    private int[] levelDomain;
+    private int[] remaining;
+
+    /** Words per level set; sets are bitsets over decision levels 0..cells. */
+    private int words;
+    /** Conflict set per level. */
+    private long[] conflict;
+    /** Explanation (level set) per removed candidate, indexed by {@code cell * size + digit - 1}. */
+    private long[] why;
+    private long[] scratch;
+
+    /** Removed candidates as {@code cell * size + digit - 1}, with the trail size at the start of each level. */
+    private int[] trail;
+    private int trailSize;
+    private int[] trailMark;
+
+    // Nogood store: literals are cell * size + digit - 1
+    private int[] ngLits;
+    private int[] ngLen;
+    private int[] ngTrue;
+    private boolean[] ngUsed;
+    private int ngCount;
+    private int clockHand;
+    /** Ids of the nogoods containing each literal. */
+    private int[][] occurrences;
+    private int[] occurrenceCount;
+
+    private long random;
+
+    private long backtrackCount = 0;
+    private long nodesVisitedCount = 0;
+    private long backjumpedLevels;
+    private long restartCount;
+    private long learnedCount;
+    private long evictedCount;
+    private long nogoodPrunes;
+    private long nogoodConflicts;
+
+    /** Creates a solver with Luby restarts, seed 1 and the default nogood capacity. */
+    public LearningSolver() {
+        this(1, Restarts.LUBY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param seed     seed of the tie-breaking and value-order randomization
+     * @param restarts restart schedule
+     * @param capacity maximum number of stored nogoods (0 disables learning)
+     */
+    public LearningSolver(long seed, Restarts restarts, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Nogood capacity must not be negative.");
+        }
+        this.seed = seed;
+        this.restarts = restarts;
+        this.capacity = capacity;
+        this.ngLits = new int[capacity * MAX_NOGOOD_LENGTH];
+        this.ngLen = new int[capacity];
+        this.ngTrue = new int[capacity];
+        this.ngUsed = new boolean[capacity];
+    }
+
+    @Override
+    public String getName() {
+        return "learn";
+    }
+
+    @Override
+    public long getBacktrackCount() {
+        return backtrackCount;
+    }
+
+    @Override
+    public long getNodesVisitedCount() {
+        return nodesVisitedCount;
+    }
+
+    /** Returns the levels skipped by backjumps (beyond one level per backtrack) in the last solve. */
+    public long getBackjumpedLevels() {
+        return backjumpedLevels;
+    }
+
+    public long getRestartCount() {
+        return restartCount;
+    }
+
+    /** Returns the nogoods stored in the last solve. */
+    public long getLearnedCount() {
+        return learnedCount;
+    }
+
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /** Returns the candidates removed because a nogood had all but one decision holding. */
+    public long getNogoodPrunes() {
+        return nogoodPrunes;
+    }
+
+    /** Returns the placements rejected because they completed a nogood. */
+    public long getNogoodConflicts() {
+        return nogoodConflicts;
+    }
+
+    /** Returns the statistics of the last solve on one line. */
+    public String getStats() {
+        return "Visited nodes: " + nodesVisitedCount + " | Backtracks: " + backtrackCount
+                + " | Backjumped levels: " + backjumpedLevels + " | Restarts: " + restartCount
+                + " | Learned: " + learnedCount + " | Evicted: " + evictedCount
+                + " | Nogood prunes: " + nogoodPrunes + " | Nogood conflicts: " + nogoodConflicts;
+    }
+
+    @Override
+    public boolean solve(int[][] board, SudokuSolver.StepListener listener) {
+        BoardGeometry geometry = BoardGeometry.of(board);
+        if (geometry != g) {
+            allocate(geometry);
+        }
+        load(board);
+
+        random = seed;
+        backtrackCount = 0;
+        nodesVisitedCount = 0;
+        backjumpedLevels = 0;
+        restartCount = 0;
+        learnedCount = 0;
+        evictedCount = 0;
+        nogoodPrunes = 0;
+        nogoodConflicts = 0;
+        clearNogoods();
+
+        if (!search(listener)) {
+            return false;
+        }
+        for (int cell = 0; cell < g.cells; cell++) {
+            board[g.cellRow[cell]][g.cellCol[cell]] = values[cell];
+        }
+        return true;
+    }
+
+    /** Sizes the working buffers for a board geometry. */
+    private void allocate(BoardGeometry geometry) {
+        g = geometry;
+        domain = new int[g.cells];
+        values = new int[g.cells];
+        levelOf = new int[g.cells];
+        levelCell = new int[g.cells + 1];
+        levelDomain = new int[g.cells + 1];
+        remaining = new int[g.cells + 1];
+        words = (g.cells + 64) / 64;
+        conflict = new long[(g.cells + 1) * words];
+        why = new long[g.cells * g.size * words];
+        scratch = new long[words];
+        trail = new int[g.cells * g.size];
+        trailMark = new int[g.cells + 2];
+        occurrences = new int[g.cells * g.size][];
+        occurrenceCount = new int[g.cells * g.size];
+        for (int i = 0; i < occurrences.length; i++) {
+            occurrences[i] = new int[4];
+        }
+    }
+
+    /** Places the givens at level 0 and validates them. */
+    private void load(int[][] board) {
+        emptyCount = 0;
+        for (int cell = 0; cell < g.cells; cell++) {
+            domain[cell] = g.allDigits;
+            values[cell] = 0;
+            levelOf[cell] = -1;
+        }
+        for (int cell = 0; cell < g.cells; cell++) {
+            int val = board[g.cellRow[cell]][g.cellCol[cell]];
+            if (val == 0) {
+                emptyCount++;
+                continue;
+            }
+            int bit = val >= 1 && val <= g.size ? 1 << (val - 1) : 0;
+            if ((domain[cell] & bit) == 0) {
+                throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+            }
+            values[cell] = val;
+            levelOf[cell] = 0;
+            domain[cell] = bit;
+            for (int peer : g.peers[cell]) {
+                if (values[peer] == 0) {
+                    domain[peer] &= ~bit;  // permanent, empty explanation
+                    clear(why, (peer * g.size + val - 1) * words);
+                } else if (values[peer] == val) {
+                    throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+                }
+            }
+        }
+        trailSize = 0;
+    }
+
+    /**
+     * FC-CBJ search with nogood learning and restarts.
+     *
+     * @return true if solved, false if unsolvable or cancelled
+     */
+    private boolean search(SudokuSolver.StepListener listener) {
+        int run = 0;
+        long restartLimit = restartLimit(run);
+        long failures = 0;
+        int level = 0;
+
+        if (emptyCount > 0 && !rootConsistent()) {
+            return false;
+        }
+
+        while (true) {
+            if (listener != null && listener.isCancelled()) {
+                return false;
+            }
+            if (level == emptyCount) {
+                return true;
+            }
+
+            // Open a new level on the most constrained cell
+            level++;
+            int cell = selectCell();
+            levelCell[level] = cell;
+            levelDomain[level] = domain[cell];
+            remaining[level] = domain[cell];
+            clear(conflict, level * words);
+            trailMark[level] = trailSize;
+
+            // Try values until one survives forward checking, backjumping on exhaustion
+            while (true) {
+                cell = levelCell[level];
+                if (remaining[level] == 0) {
+                    backtrackCount++;
+                    failures++;
+                    int target = exhausted(level);
+                    if (target == 0) {
+                        return false;  // the conflict involves no decision
+                    }
+                    backjumpedLevels += level - target - 1;
+                    for (int l = level; l > target; l--) {
+                        undoLevel(l, listener);
+                    }
+                    level = target;
+                    undoLevel(level, listener);  // its current value is refuted
+
+                    if (restarts != Restarts.NONE && failures >= restartLimit) {
+                        for (int l = level - 1; l >= 1; l--) {
+                            undoLevel(l, listener);
+                        }
+                        level = 0;
+                        failures = 0;
+                        restartCount++;
+                        restartLimit = restartLimit(++run);
+                        break;
+                    }
+                    continue;
+                }
+
+                int bit = pickValue(remaining[level]);
+                remaining[level] &= ~bit;
+                nodesVisitedCount++;
+                if (assign(level, cell, Integer.numberOfTrailingZeros(bit) + 1, listener)) {
+                    break;
+                }
+                undoLevel(level, listener);
+            }
+        }
+    }
+
+    /** Checks that no empty cell lost all candidates to the givens. */
+    private boolean rootConsistent() {
+        for (int cell = 0; cell < g.cells; cell++) {
+            if (values[cell] == 0 && domain[cell] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Handles a level whose values are all refuted: learns the conflict set as
+     * a nogood and merges it into the conflict set of the level jumped to.
+     *
+     * @return the level to jump back to, 0 if the puzzle is unsolvable
+     */
+    private int exhausted(int level) {
+        int cell = levelCell[level];
+        long[] set = scratch;
+        System.arraycopy(conflict, level * words, set, 0, words);
+        // Candidates removed before this level was opened
+        for (int pruned = g.allDigits & ~levelDomain[level]; pruned != 0; pruned &= pruned - 1) {
+            or(set, 0, why, (cell * g.size + Integer.numberOfTrailingZeros(pruned)) * words);
+        }
+        set[0] &= ~1L;  // level 0 (givens) is not a decision
+        int target = highestBit(set);
+        if (target <= 0) {
+            return 0;
+        }
+        learn(set);
+        set[target >>> 6] &= ~(1L << target);
+        or(conflict, target * words, set, 0);
+        return target;
+    }
+
+    /**
+     * Places a digit at a level, updates the nogood counters and removes the
+     * digit from the peers.
+     *
+     * @return false if a peer ran out of candidates or a nogood was completed;
+     *         the conflict set of the level is extended accordingly
+     */
+    private boolean assign(int level, int cell, int digit, SudokuSolver.StepListener listener) {
+        int bit = 1 << (digit - 1);
+        values[cell] = digit;
+        levelOf[cell] = level;
+        if (listener != null) {
+            listener.onStep(g.cellRow[cell], g.cellCol[cell], digit);
+        }
+        boolean ok = true;
+
+        // Nogoods containing this decision: every counter is updated so that undo stays symmetric
+        int literal = cell * g.size + digit - 1;
+        int[] ids = occurrences[literal];
+        for (int i = 0, n = occurrenceCount[literal]; i < n; i++) {
+            int id = ids[i];
+            int count = ++ngTrue[id];
+            if (!ok) continue;
+            if (count == ngLen[id]) {
+                nogoodConflicts++;
+                ngUsed[id] = true;
+                addLevels(conflict, level * words, id, -1, level);
+                ok = false;
+            } else if (count == ngLen[id] - 1) {
+                ok = unitPrune(level, id);
+            }
+        }
+
+        // Forward checking
+        if (ok) {
+            for (int peer : g.peers[cell]) {
+                if (values[peer] == 0 && (domain[peer] & bit) != 0) {
+                    int lit = peer * g.size + digit - 1;
+                    remove(peer, bit);
+                    setSingle(why, lit * words, level);
+                    if (domain[peer] == 0) {
+                        wipeout(level, peer);
+                        ok = false;
+                        break;
+                    }
+                }
+            }
+        }
+        return ok;
+    }
+
+    /** Prunes the only unassigned decision of a nogood whose other decisions all hold. */
+    private boolean unitPrune(int level, int id) {
+        int base = id * MAX_NOGOOD_LENGTH;
+        for (int i = 0; i < ngLen[id]; i++) {
+            int lit = ngLits[base + i];
+            int cell = lit / g.size;
+            int bit = 1 << (lit % g.size);
+            if (values[cell] == lit % g.size + 1) continue;
+            if (values[cell] == 0 && (domain[cell] & bit) != 0) {
+                ngUsed[id] = true;
+                nogoodPrunes++;
+                remove(cell, bit);
+                clear(why, lit * words);
+                addLevels(why, lit * words, id, lit, -1);
+                if (domain[cell] == 0) {
+                    wipeout(level, cell);
+                    return false;
+                }
+            }
+            return true;
+        }
+        return true;
+    }
+
+    /** Adds the explanation of an emptied cell to the conflict set of the level. */
+    private void wipeout(int level, int cell) {
+        int base = level * words;
+        for (int d = 0; d < g.size; d++) {
+            or(conflict, base, why, (cell * g.size + d) * words);
+        }
+        conflict[base + (level >>> 6)] &= ~(1L << level);
+    }
+
+    /** Adds the levels of a nogood's decisions, except {@code skipLiteral} and {@code skipLevel}, to a set. */
+    private void addLevels(long[] set, int offset, int id, int skipLiteral, int skipLevel) {
+        int base = id * MAX_NOGOOD_LENGTH;
+        for (int i = 0; i < ngLen[id]; i++) {
+            int lit = ngLits[base + i];
+            if (lit == skipLiteral) continue;
+            int l = levelOf[lit / g.size];
+            if (l > 0 && l != skipLevel) {
+                set[offset + (l >>> 6)] |= 1L << l;
+            }
+        }
+    }
+
+    private void remove(int cell, int bit) {
+        domain[cell] &= ~bit;
+        trail[trailSize++] = cell * g.size + Integer.numberOfTrailingZeros(bit);
+    }
+
+    /** Restores the candidates removed at a level and unassigns its cell. */
+    private void undoLevel(int level, SudokuSolver.StepListener listener) {
+        int mark = trailMark[level];
+        while (trailSize > mark) {
+            int lit = trail[--trailSize];
+            domain[lit / g.size] |= 1 << (lit % g.size);
+        }
+        int cell = levelCell[level];
+        int digit = values[cell];
+        if (digit == 0) {
+            return;
+        }
+        int literal = cell * g.size + digit - 1;
+        int[] ids = occurrences[literal];
+        for (int i = 0, n = occurrenceCount[literal]; i < n; i++) {
+            ngTrue[ids[i]]--;
+        }
+        values[cell] = 0;
+        levelOf[cell] = -1;
+        if (listener != null) {
+            listener.onStep(g.cellRow[cell], g.cellCol[cell], 0);
+        }
+    }
+
+    /** Stores the decisions of a conflict set as a nogood, if it is short enough. */
+    private void learn(long[] set) {
+        if (capacity == 0) {
+            return;
+        }
+        int length = 0;
+        for (int w = 0; w < words; w++) {
+            length += Long.bitCount(set[w]);
+        }
+        if (length > MAX_NOGOOD_LENGTH) {
+            return;
+        }
+        if (length == 1) {
+            // A single refuted decision: remove the digit for the rest of this solve
+            int level = highestBit(set);
+            int cell = levelCell[level];
+            int d = values[cell] - 1;
+            domain[cell] &= ~(1 << d);
+            levelDomain[level] &= ~(1 << d);
+            clear(why, (cell * g.size + d) * words);
+            learnedCount++;
+            return;
+        }
+
+        int id = ngCount < capacity ? ngCount++ : evict();
+        int base = id * MAX_NOGOOD_LENGTH;
+        int n = 0;
+        for (int w = 0; w < words; w++) {
+            for (long bits = set[w]; bits != 0; bits &= bits - 1) {
+                int level = (w << 6) + Long.numberOfTrailingZeros(bits);
+                int cell = levelCell[level];
+                int lit = cell * g.size + values[cell] - 1;
+                ngLits[base + n++] = lit;
+                if (occurrenceCount[lit] == occurrences[lit].length) {
+                    occurrences[lit] = Arrays.copyOf(occurrences[lit], occurrences[lit].length * 2);
+                }
+                occurrences[lit][occurrenceCount[lit]++] = id;
+            }
+        }
+        ngLen[id] = n;
+        ngTrue[id] = n;  // every decision of the set is still in place
+        ngUsed[id] = false;
+        learnedCount++;
+    }
+
+    /** Frees a slot with the second-chance clock and returns it. */
+    private int evict() {
+        while (ngUsed[clockHand]) {
+            ngUsed[clockHand] = false;
+            clockHand = (clockHand + 1) % capacity;
+        }
+        int id = clockHand;
+        clockHand = (clockHand + 1) % capacity;
+        int base = id * MAX_NOGOOD_LENGTH;
+        for (int i = 0; i < ngLen[id]; i++) {
+            int lit = ngLits[base + i];
+            int[] ids = occurrences[lit];
+            int n = occurrenceCount[lit];
+            for (int j = 0; j < n; j++) {
+                if (ids[j] == id) {
+                    ids[j] = ids[--n];
+                    break;
+                }
+            }
+            occurrenceCount[lit] = n;
+        }
+        evictedCount++;
+        return id;
+    }
+
+    private void clearNogoods() {
+        for (int i = 0; i < occurrenceCount.length; i++) {
+            occurrenceCount[i] = 0;
+        }
+        ngCount = 0;
+        clockHand = 0;
+    }
+
+    /** Returns an unassigned cell with the fewest candidates, ties broken at random. */
+    private int selectCell() {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int cell = 0; cell < g.cells; cell++) {
+            if (values[cell] != 0) continue;
+            int count = Integer.bitCount(domain[cell]);
+            if (count < bestCount) {
+                best = cell;
+                bestCount = count;
+                ties = 1;
+            } else if (count == bestCount && nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    /** Returns one set bit of the mask, chosen at random. */
+    private int pickValue(int mask) {
+        for (int k = nextInt(Integer.bitCount(mask)); k > 0; k--) {
+            mask &= mask - 1;
+        }
+        return mask & -mask;
+    }
+
+    /** SplitMix64 step reduced to {@code [0, bound)}. */
+    private int nextInt(int bound) {
+        random += 0x9E3779B97F4A7C15L;
+        long z = random;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) (((z >>> 33) * bound) >>> 31);
+    }
+
+    private long restartLimit(int run) {
+        switch (restarts) {
+            case LUBY:
+                return RESTART_UNIT * luby(run + 1);
+            case GEOMETRIC:
+                return (long) (RESTART_UNIT * Math.pow(GEOMETRIC_FACTOR, Math.min(run, 100)));
+            default:
+                return Long.MAX_VALUE;
+        }
+    }
+
+    /** Returns the i-th element (1-based) of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ... */
+    static long luby(int i) {
+        int k = 1;
+        while ((1L << k) - 1 < i) {
+            k++;
+        }
+        while (true) {
+            if (i == (1L << k) - 1) {
+                return 1L << (k - 1);
+            }
+            i -= (int) ((1L << (k - 1)) - 1);
+            k = 1;
+            while ((1L << k) - 1 < i) {
+                k++;
+            }
+        }
+    }
+
+    // Level-set helpers; a set of {@code words} longs starts at an offset of a shared array
+
+    private void clear(long[] sets, int offset) {
+        for (int w = 0; w < words; w++) {
+            sets[offset + w] = 0;
+        }
+    }
+
+    private void setSingle(long[] sets, int offset, int level) {
+        clear(sets, offset);
+        sets[offset + (level >>> 6)] = 1L << level;
+    }
+
+    private void or(long[] target, int targetOffset, long[] source, int sourceOffset) {
+        for (int w = 0; w < words; w++) {
+            target[targetOffset + w] |= source[sourceOffset + w];
+        }
+    }
+
+    private int highestBit(long[] set) {
+        for (int w = words - 1; w >= 0; w--) {
+            if (set[w] != 0) {
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(set[w]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Solves every puzzle of a file with plain BBCP and with this engine and
+     * prints the totals of both, to show where learning pays off.
+     * <pre>
+     * java sudoku.LearningSolver [-r luby|geometric|none] [-s seed] [-n capacity] puzzles.txt
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        Restarts restarts = Restarts.LUBY;
+        long seed = 1;
+        int capacity = DEFAULT_CAPACITY;
+        String input = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-r":
+                    restarts = Restarts.valueOf(CommandLine.requireValue(args, ++i).toUpperCase(Locale.ROOT));
+                    break;
+                case "-s":
+                    seed = Long.parseLong(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-n":
+                    capacity = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                default:
+                    input = args[i];
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: java sudoku.LearningSolver [-r luby|geometric|none] [-s seed] [-n capacity] puzzles.txt");
+            System.exit(2);
+        }
+
+        SudokuSolver bbcp = new SudokuSolver(SudokuSolver.Mode.BBCP);
+        LearningSolver learn = new LearningSolver(seed, restarts, capacity);
+        long[] bbcpTotals = new long[3];
+        long[] learnTotals = new long[9];
+        int puzzles = 0;
+        try (PuzzleReader reader = new PuzzleReader(new FileReader(input, StandardCharsets.UTF_8))) {
+            int[][] board;
+            while ((board = reader.next()) != null) {
+                int[][] copy = new int[board.length][];
+                for (int r = 0; r < board.length; r++) {
+                    copy[r] = board[r].clone();
+                }
+                try {
+                    long start = System.nanoTime();
+                    bbcp.solve(board, null);
+                    bbcpTotals[0] += System.nanoTime() - start;
+                    bbcpTotals[1] += bbcp.getNodesVisitedCount();
+                    bbcpTotals[2] += bbcp.getBacktrackCount();
+
+                    start = System.nanoTime();
+                    learn.solve(copy, null);
+                    learnTotals[0] += System.nanoTime() - start;
+                    learnTotals[1] += learn.getNodesVisitedCount();
+                    learnTotals[2] += learn.getBacktrackCount();
+                    learnTotals[3] += learn.getBackjumpedLevels();
+                    learnTotals[4] += learn.getRestartCount();
+                    learnTotals[5] += learn.getLearnedCount();
+                    learnTotals[6] += learn.getEvictedCount();
+                    learnTotals[7] += learn.getNogoodPrunes();
+                    learnTotals[8] += learn.getNogoodConflicts();
+                    puzzles++;
+                } catch (IllegalArgumentException ex) {
+                    // invalid puzzles are skipped by both engines
+                }
+            }
+        }
+        System.err.printf("Puzzles: %d%n", puzzles);
+        System.err.printf("bbcp  | %.1f ms | Visited nodes: %d | Backtracks: %d%n",
+                bbcpTotals[0] / 1e6, bbcpTotals[1], bbcpTotals[2]);
+        System.err.printf("learn | %.1f ms | Visited nodes: %d | Backtracks: %d | Backjumped levels: %d"
+                        + " | Restarts: %d | Learned: %d | Evicted: %d | Nogood prunes: %d | Nogood conflicts: %d%n",
+                learnTotals[0] / 1e6, learnTotals[1], learnTotals[2], learnTotals[3], learnTotals[4],
+                learnTotals[5], learnTotals[6], learnTotals[7], learnTotals[8]);
+    }
+}
@@ -0,0 +1,243 @@
+package sudoku;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Incrementally maintained model of a board being edited.
+ * <p>
+ * Every unit (row, column, box) keeps a count per digit and a mask of the
+ * digits it contains, so {@link #set(int, int)} touches three units and
+ * candidates, conflicts and overall consistency are answered in constant
+ * time, independent of how much of the board is filled. Entries that are not
+ * a digit 1..size are tracked as invalid and count as empty for the masks.
+ * <p>
+ * Not thread-safe: the GUI uses it on the Event Dispatch Thread only and hands
+ * {@link #toBoard()} snapshots to a {@link Checker}.
+ */
+final class LiveBoard {
+
+    /** Cell value of an entry that is not a digit 1..size. */
+    static final int INVALID = -1;
+
+    private final BoardGeometry geometry;
+    private final int[] values;
+
+    /** Per unit and digit: number of cells of the unit holding the digit. */
+    private final int[][] counts;
+
+    /** Per unit: mask of the digits present at least once. */
+    private final int[] unitMasks;
+
+    /** Number of (unit, digit) pairs present more than once. */
+    private int duplicates;
+    private int invalidCount;
+    private int filledCount;
+
+    /**
+     * Creates an empty board.
+     *
+     * @param size board side length (4, 9, 16 or 25)
+     */
+    LiveBoard(int size) {
+        this.geometry = BoardGeometry.forSize(size);
+        this.values = new int[geometry.cells];
+        this.counts = new int[3 * size][size + 1];
+        this.unitMasks = new int[3 * size];
+    }
+
+    int size() {
+        return geometry.size;
+    }
+
+    /** Returns the value of a cell: 0 if empty, {@link #INVALID} for an invalid entry. */
+    int get(int cell) {
+        return values[cell];
+    }
+
+    /**
+     * Changes one cell in constant time.
+     *
+     * @param value 0 to clear, 1..size, anything else is recorded as {@link #INVALID}
+     */
+    void set(int cell, int value) {
+        if (value < 0 || value > geometry.size) {
+            value = INVALID;
+        }
+        int old = values[cell];
+        if (old == value) {
+            return;
+        }
+        if (old > 0) {
+            updateCell(cell, old, -1);
+            filledCount--;
+        } else if (old == INVALID) {
+            invalidCount--;
+        }
+        values[cell] = value;
+        if (value > 0) {
+            updateCell(cell, value, 1);
+            filledCount++;
+        } else if (value == INVALID) {
+            invalidCount++;
+        }
+    }
+
+    private void updateCell(int cell, int digit, int delta) {
+        int size = geometry.size;
+        updateUnit(geometry.cellRow[cell], digit, delta);
+        updateUnit(size + geometry.cellCol[cell], digit, delta);
+        updateUnit(2 * size + geometry.cellBox[cell], digit, delta);
+    }
+
+    private void updateUnit(int unit, int digit, int delta) {
+        int before = counts[unit][digit];
+        int after = before + delta;
+        counts[unit][digit] = after;
+        if (before == 0 || after == 0) {
+            unitMasks[unit] ^= 1 << (digit - 1);
+        }
+        if (before == 1 && after == 2) {
+            duplicates++;
+        } else if (before == 2 && after == 1) {
+            duplicates--;
+        }
+    }
+
+    /** Returns the mask of digits not used by any unit of the cell (bit d-1 for digit d). */
+    int candidates(int cell) {
+        int size = geometry.size;
+        int used = unitMasks[geometry.cellRow[cell]]
+                | unitMasks[size + geometry.cellCol[cell]]
+                | unitMasks[2 * size + geometry.cellBox[cell]];
+        return geometry.allDigits & ~used;
+    }
+
+    /** Returns true if the cell holds an invalid entry or a digit repeated in one of its units. */
+    boolean isConflict(int cell) {
+        int value = values[cell];
+        if (value == INVALID) {
+            return true;
+        }
+        if (value == 0) {
+            return false;
+        }
+        int size = geometry.size;
+        return counts[geometry.cellRow[cell]][value] > 1
+                || counts[size + geometry.cellCol[cell]][value] > 1
+                || counts[2 * size + geometry.cellBox[cell]][value] > 1;
+    }
+
+    /** Returns true if no digit is repeated in a unit and every entry is valid. */
+    boolean isConsistent() {
+        return duplicates == 0 && invalidCount == 0;
+    }
+
+    boolean hasInvalidEntries() {
+        return invalidCount > 0;
+    }
+
+    /** Returns the number of cells holding a digit. */
+    int getFilledCount() {
+        return filledCount;
+    }
+
+    /** Returns the cells sharing a row, column or box with the given cell. */
+    int[] peers(int cell) {
+        return geometry.peers[cell];
+    }
+
+    /** Returns a copy of the board, invalid entries as 0. */
+    int[][] toBoard() {
+        int size = geometry.size;
+        int[][] board = new int[size][size];
+        for (int cell = 0; cell < geometry.cells; cell++) {
+            board[cell / size][cell % size] = Math.max(0, values[cell]);
+        }
+        return board;
+    }
+
+    /** Answer of a background check. */
+    enum Verdict {
+        UNSOLVABLE, UNIQUE, MULTIPLE
+    }
+
+    /**
+     * Answers "is this board still solvable, and is the solution unique?" on
+     * a background thread.
+     * <p>
+     * One daemon thread owns a single bitmask-MRV {@link SudokuSolver} that is
+     * reused for every check, so a check allocates nothing beyond the board
+     * snapshot. Each {@link #check} supersedes the previous one: a check that
+     * is still queued is skipped, and a running one is stopped through its
+     * {@link SudokuSolver.StepListener#isCancelled()} as soon as a newer board
+     * arrives. Only the latest check reports a result.
+     */
+    static final class Checker {
+
+        private final ExecutorService thread = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "sudoku-live-check");
+            t.setDaemon(true);
+            return t;
+        });
+        private final SudokuSolver solver = new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV);
+        private final AtomicLong latest = new AtomicLong();
+
+        /**
+         * Starts checking a consistent board, cancelling any older check.
+         *
+         * @param board    snapshot owned by the checker from now on
+         * @param callback receives the verdict and the check time in nanoseconds,
+         *                 on the checker thread, unless a newer check was started
+         */
+        void check(int[][] board, Consumer<Result> callback) {
+            long id = latest.incrementAndGet();
+            thread.execute(() -> {
+                if (latest.get() != id) {
+                    return;
+                }
+                SudokuSolver.StepListener stale = new SudokuSolver.StepListener() {
+                    @Override
+                    public void onStep(int row, int col, int value) {
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return latest.get() != id;
+                    }
+                };
+                long start = System.nanoTime();
+                int count;
+                try {
+                    count = solver.countSolutions(board, 2, stale);
+                } catch (IllegalArgumentException ex) {
+                    count = 0;
+                }
+                if (latest.get() == id) {
+                    Verdict verdict = count == 0 ? Verdict.UNSOLVABLE : count == 1 ? Verdict.UNIQUE : Verdict.MULTIPLE;
+                    callback.accept(new Result(verdict, System.nanoTime() - start, solver.getNodesVisitedCount()));
+                }
+            });
+        }
+
+        /** Cancels the running check, if any, without starting a new one. */
+        void cancel() {
+            latest.incrementAndGet();
+        }
+    }
+
+    /** Verdict of a finished check with its cost. */
+    static final class Result {
+        final Verdict verdict;
+        final long nanos;
+        final long nodes;
+
+        Result(Verdict verdict, long nanos, long nodes) {
+            this.verdict = verdict;
+            this.nanos = nanos;
+            this.nodes = nodes;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package sudoku;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compact binary format for large puzzle corpora, and a command-line converter.
+ * <p>
+ * A file is a 32-byte header followed by fixed-size records:
+ * <pre>
+ * offset  size  field
+ *      0     4  magic "SDKP"
+ *      4     1  format version (1)
+ *      5     1  board side length (4, 9, 16 or 25)
+ *      6     1  bits per cell (3 for 4x4, 4 for 9x9, 5 for 16x16 and 25x25)
+ *      7     1  kind: 0 = puzzles, 1 = solutions
+ *      8     4  bytes per record
+ *     12     8  number of records
+ *     20    12  reserved (0)
+ * </pre>
+ * Each record holds the cells row-major, {@code bitsPerCell} bits each, most
+ * significant bit first, padded to a whole byte (41 bytes for a 9x9 board
+ * instead of 82 in the single-line text format). 0 is an empty cell; in a
+ * solution file an all-zero record stands for "unsolvable or invalid". Since
+ * records have a fixed size, the offset of record {@code i} is computed
+ * directly and serves as the index. Integers are big-endian.
+ *
+ * @see PackedPuzzleReader
+ * @see PackedPuzzleWriter
+ */
+public final class PackedPuzzleFormat {
+
+    static final int MAGIC = 0x53444B50;  // "SDKP"
+    static final byte VERSION = 1;
+    static final byte KIND_PUZZLES = 0;
+    static final byte KIND_SOLUTIONS = 1;
+    static final int COUNT_OFFSET = 12;
+    static final int HEADER_BYTES = 32;
+
+    private PackedPuzzleFormat() {
+    }
+
+    /** Returns the number of bits needed per cell to store 0..size. */
+    static int bitsPerCell(int size) {
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+
+    /** Returns the size of one record in bytes. */
+    static int recordBytes(int size) {
+        return (size * size * bitsPerCell(size) + 7) / 8;
+    }
+
+    /** Writes a header at the buffer's position. */
+    static void writeHeader(ByteBuffer buffer, int size, byte kind, long count) {
+        buffer.putInt(MAGIC)
+                .put(VERSION)
+                .put((byte) size)
+                .put((byte) bitsPerCell(size))
+                .put(kind)
+                .putInt(recordBytes(size))
+                .putLong(count);
+        while (buffer.position() < HEADER_BYTES) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * Converts between the text and packed formats, or solves a packed file.
+     * <pre>
+     * java sudoku.PackedPuzzleFormat pack   input.txt|- output.sdk
+     * java sudoku.PackedPuzzleFormat unpack input.sdk output.txt|-
+     * java sudoku.PackedPuzzleFormat solve  [-e engine] input.sdk solutions.sdk
+     * </pre>
+     * {@code pack} accepts every text format of {@link PuzzleReader} but all
+     * puzzles must have the same size. {@code solve} reuses one board for
+     * every puzzle, so the only per-puzzle work is the engine's own.
+     */
+    public static void main(String[] args) throws IOException {
+        String engine = SudokuEngines.DEFAULT;
+        int first = 1;
+        if (args.length >= 3 && "solve".equals(args[0]) && "-e".equals(args[1])) {
+            engine = args[2];
+            first = 3;
+        }
+        if (args.length != first + 2) {
+            System.err.println("Usage: java sudoku.PackedPuzzleFormat pack input.txt|- output.sdk");
+            System.err.println("       java sudoku.PackedPuzzleFormat unpack input.sdk output.txt|-");
+            System.err.println("       java sudoku.PackedPuzzleFormat solve [-e " + String.join("|", SudokuEngines.names())
+                    + "] input.sdk solutions.sdk");
+            System.exit(2);
+        }
+        String input = args[first];
+        String output = args[first + 1];
+
+        long start = System.nanoTime();
+        long records;
+        switch (args[0]) {
+            case "pack":
+                records = pack(input, Paths.get(output));
+                break;
+            case "unpack":
+                records = unpack(Paths.get(input), output);
+                break;
+            case "solve":
+                records = solve(Paths.get(input), Paths.get(output), SudokuEngines.create(engine));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command " + args[0]);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.err.printf("Records: %d | %.1f s | %.0f records/s%n",
+                records, elapsed / 1e9, records * 1e9 / Math.max(1, elapsed));
+    }
+
+    /** Converts a text file (or standard input for {@code -}) into a packed puzzle file. */
+    static long pack(String input, Path output) throws IOException {
+        try (PuzzleReader reader = new PuzzleReader("-".equals(input)
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : new FileReader(input, StandardCharsets.UTF_8))) {
+            int[][] board = reader.next();
+            if (board == null) {
+                throw new IOException("Input contains no puzzle.");
+            }
+            int size = board.length;
+            try (PackedPuzzleWriter writer = new PackedPuzzleWriter(output, size, false)) {
+                do {
+                    if (board.length != size) {
+                        throw new IOException("Puzzle ending at line " + reader.getLineNumber() + " is "
+                                + board.length + "x" + board.length + ", expected " + size + "x" + size + ".");
+                    }
+                    writer.write(board);
+                } while ((board = reader.next()) != null);
+                return writer.getCount();
+            }
+        }
+    }
+
+    /** Converts a packed file into single-line text, one board per line. */
+    static long unpack(Path input, String output) throws IOException {
+        try (PackedPuzzleReader reader = new PackedPuzzleReader(input);
+             Writer out = new BufferedWriter("-".equals(output)
+                     ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                     : new FileWriter(output, StandardCharsets.UTF_8), 1 << 16)) {
+            int size = reader.getSize();
+            int[][] board = new int[size][size];
+            char[] line = new char[size * size + 1];
+            line[size * size] = '\n';
+            while (reader.next(board)) {
+                for (int r = 0; r < size; r++) {
+                    for (int c = 0; c < size; c++) {
+                        line[r * size + c] = PuzzleReader.toSymbol(board[r][c]);
+                    }
+                }
+                out.write(line);
+            }
+            return reader.getCount();
+        }
+    }
+
+    /** Solves every puzzle of a packed file and writes the solutions as a packed solution file. */
+    static long solve(Path input, Path output, SudokuEngine engine) throws IOException {
+        try (PackedPuzzleReader reader = new PackedPuzzleReader(input);
+             PackedPuzzleWriter writer = new PackedPuzzleWriter(output, reader.getSize(), true)) {
+            int size = reader.getSize();
+            int[][] board = new int[size][size];
+            while (reader.next(board)) {
+                boolean solved;
+                try {
+                    solved = engine.solve(board, null);
+                } catch (IllegalArgumentException ex) {
+                    solved = false;
+                }
+                if (solved) {
+                    writer.write(board);
+                } else {
+                    writer.writeEmpty();
+                }
+            }
+            return writer.getCount();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a packed binary puzzle file (see {@link PackedPuzzleFormat}) through
+ * memory-mapped windows of the file.
+ * <p>
+ * Records have a fixed size, so record {@code i} starts at
+ * {@code HEADER_BYTES + i * recordBytes} and random access needs no separate
+ * index. The file is mapped in windows of whole records (at most
+ * {@link #WINDOW_BYTES} each), so files of any size can be read with a
+ * bounded address-space footprint. Records are decoded straight from the
+ * mapping into a board supplied by the caller; reading allocates nothing per
+ * puzzle.
+ */
+public class PackedPuzzleReader implements Closeable {
+
+    /** Upper bound of one mapped window. */
+    static final long WINDOW_BYTES = 1L << 28;
+
+    private final FileChannel channel;
+    private final int size;
+    private final int bitsPerCell;
+    private final int cellMask;
+    private final int recordBytes;
+    private final long count;
+    private final boolean solutions;
+    private final long recordsPerWindow;
+
+    /** Currently mapped window and the index of its first record. */
+    private MappedByteBuffer window;
+    private long windowFirst = 0;
+    private long windowRecords = 0;
+
+    /** Index of the record returned by the next {@link #next(int[][])}. */
+    private long position = 0;
+
+    /**
+     * Opens a packed file and validates its header.
+     *
+     * @throws IOException if the file cannot be read, is not a packed puzzle file or is truncated
+     */
+    public PackedPuzzleReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(PackedPuzzleFormat.HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("File is too short for a packed puzzle header.");
+                }
+            }
+            header.flip();
+            if (header.getInt(0) != PackedPuzzleFormat.MAGIC) {
+                throw new IOException("Not a packed puzzle file.");
+            }
+            if (header.get(4) != PackedPuzzleFormat.VERSION) {
+                throw new IOException("Unsupported packed format version " + header.get(4) + ".");
+            }
+            size = header.get(5);
+            if (!BoardGeometry.isSupportedSize(size)) {
+                throw new IOException("Unsupported board size " + size + ".");
+            }
+            bitsPerCell = header.get(6);
+            recordBytes = header.getInt(8);
+            if (bitsPerCell != PackedPuzzleFormat.bitsPerCell(size)
+                    || recordBytes != PackedPuzzleFormat.recordBytes(size)) {
+                throw new IOException("Inconsistent record layout in header.");
+            }
+            solutions = header.get(7) == PackedPuzzleFormat.KIND_SOLUTIONS;
+            count = header.getLong(PackedPuzzleFormat.COUNT_OFFSET);
+            if (count < 0 || channel.size() < PackedPuzzleFormat.HEADER_BYTES + count * recordBytes) {
+                throw new IOException("File is truncated: header announces " + count + " records.");
+            }
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        cellMask = (1 << bitsPerCell) - 1;
+        recordsPerWindow = Math.max(1, WINDOW_BYTES / recordBytes);
+    }
+
+    /** Returns the board side length of every record. */
+    public int getSize() {
+        return size;
+    }
+
+    /** Returns the number of records in the file. */
+    public long getCount() {
+        return count;
+    }
+
+    /** Returns true if the file holds solutions rather than puzzles. */
+    public boolean isSolutions() {
+        return solutions;
+    }
+
+    /**
+     * Reads the next record into {@code board}.
+     *
+     * @param board a {@code size x size} board to overwrite
+     * @return false at the end of the file (board untouched)
+     * @throws IOException if mapping fails or the record holds values above the board size
+     */
+    public boolean next(int[][] board) throws IOException {
+        if (position >= count) {
+            return false;
+        }
+        read(position++, board);
+        return true;
+    }
+
+    /**
+     * Reads record {@code index} into {@code board} without changing the
+     * position used by {@link #next(int[][])}.
+     *
+     * @throws IOException if mapping fails or the record holds values above the board size
+     */
+    public void read(long index, int[][] board) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + count);
+        }
+        if (board.length != size) {
+            throw new IllegalArgumentException("Board must be " + size + "x" + size + ".");
+        }
+        if (index < windowFirst || index >= windowFirst + windowRecords) {
+            map(index);
+        }
+
+        MappedByteBuffer buf = window;
+        int pos = (int) ((index - windowFirst) * recordBytes);
+        long acc = 0;
+        int bits = 0;
+        for (int r = 0; r < size; r++) {
+            int[] row = board[r];
+            for (int c = 0; c < size; c++) {
+                while (bits < bitsPerCell) {
+                    acc = (acc << 8) | (buf.get(pos++) & 0xFF);
+                    bits += 8;
+                }
+                bits -= bitsPerCell;
+                int v = (int) (acc >>> bits) & cellMask;
+                if (v > size) {
+                    throw new IOException("Corrupt record " + index + ": value " + v + " at ("
+                            + (r + 1) + "," + (c + 1) + ").");
+                }
+                row[c] = v;
+            }
+        }
+    }
+
+    /** Moves the position used by {@link #next(int[][])} to record {@code index}. */
+    public void seek(long index) {
+        if (index < 0 || index > count) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + count);
+        }
+        position = index;
+    }
+
+    /** Maps the window of whole records starting at the window containing {@code index}. */
+    private void map(long index) throws IOException {
+        windowFirst = index - index % recordsPerWindow;
+        windowRecords = Math.min(recordsPerWindow, count - windowFirst);
+        window = channel.map(FileChannel.MapMode.READ_ONLY,
+                PackedPuzzleFormat.HEADER_BYTES + windowFirst * recordBytes, windowRecords * recordBytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
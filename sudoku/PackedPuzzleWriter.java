@@ -0,0 +1,126 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes boards to a file in the packed binary format (see
+ * {@link PackedPuzzleFormat}). Records are packed into a reusable direct
+ * buffer and written in large blocks; the record count in the header is
+ * filled in by {@link #close()}.
+ */
+public class PackedPuzzleWriter implements Closeable {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final int size;
+    private final int bitsPerCell;
+    private final int recordBytes;
+    private final ByteBuffer buffer;
+    private long count = 0;
+
+    /**
+     * Creates (or truncates) a packed file.
+     *
+     * @param path      output file
+     * @param size      board side length (4, 9, 16 or 25)
+     * @param solutions true to mark the file as holding solutions rather than puzzles
+     */
+    public PackedPuzzleWriter(Path path, int size, boolean solutions) throws IOException {
+        BoardGeometry.forSize(size);  // rejects unsupported sizes
+        this.size = size;
+        this.bitsPerCell = PackedPuzzleFormat.bitsPerCell(size);
+        this.recordBytes = PackedPuzzleFormat.recordBytes(size);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_BYTES, PackedPuzzleFormat.HEADER_BYTES));
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        PackedPuzzleFormat.writeHeader(buffer, size, solutions ? PackedPuzzleFormat.KIND_SOLUTIONS
+                : PackedPuzzleFormat.KIND_PUZZLES, 0);
+    }
+
+    /** Returns the number of records written so far. */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Appends one board. An all-zero board is the conventional record for
+     * "no solution" in a solution file.
+     *
+     * @throws IllegalArgumentException if the board has the wrong size or out-of-range values
+     */
+    public void write(int[][] board) throws IOException {
+        // Validate the whole board first, so a bad board never leaves a partial record
+        if (board.length != size) {
+            throw new IllegalArgumentException("Board must be " + size + "x" + size + ".");
+        }
+        for (int r = 0; r < size; r++) {
+            int[] row = board[r];
+            if (row == null || row.length != size) {
+                throw new IllegalArgumentException("Board must be " + size + "x" + size + ".");
+            }
+            for (int c = 0; c < size; c++) {
+                if (row[c] < 0 || row[c] > size) {
+                    throw new IllegalArgumentException("Invalid number " + row[c] + " at (" + (r + 1) + "," + (c + 1) + ").");
+                }
+            }
+        }
+        if (buffer.remaining() < recordBytes) {
+            flush();
+        }
+
+        long acc = 0;
+        int bits = 0;
+        for (int[] row : board) {
+            for (int c = 0; c < size; c++) {
+                acc = (acc << bitsPerCell) | row[c];
+                bits += bitsPerCell;
+                while (bits >= 8) {
+                    bits -= 8;
+                    buffer.put((byte) (acc >>> bits));
+                }
+            }
+        }
+        if (bits > 0) {
+            buffer.put((byte) (acc << (8 - bits)));
+        }
+        count++;
+    }
+
+    /** Appends an all-zero record, used for unsolvable or invalid puzzles in solution files. */
+    public void writeEmpty() throws IOException {
+        if (buffer.remaining() < recordBytes) {
+            flush();
+        }
+        for (int i = 0; i < recordBytes; i++) {
+            buffer.put((byte) 0);
+        }
+        count++;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Flushes the remaining records, stores the record count in the header and closes the file. */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer countBytes = ByteBuffer.allocate(Long.BYTES).putLong(0, count);
+            channel.write(countBytes, PackedPuzzleFormat.COUNT_OFFSET);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package sudoku;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fork-join engine for a single hard puzzle.
+ * <p>
+ * The top levels of the search tree are expanded with MRV cell selection and
+ * every branch becomes a {@link RecursiveAction} holding its own copy of the
+ * board; the {@link ForkJoinPool} balances the branches by work stealing. Below
+ * the split depth each branch runs a sequential {@link SudokuSolver} in
+ * {@link SudokuSolver.Mode#BITMASK_MRV} mode. All branches share one
+ * {@link SudokuSolver.StepListener} whose {@code isCancelled} turns true as soon
+ * as any branch has published a solution (or the caller cancels), so the
+ * remaining branches stop through the regular cancellation path and exactly
+ * one solution is returned.
+ * <p>
+ * Steps are not forwarded to the caller's listener, since they would come from
+ * several threads at once; only its cancellation flag is honoured.
+ */
+public class ParallelSolver implements SudokuEngine {
+
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+
+    private long backtrackCount = 0;
+    private long nodesVisitedCount = 0;
+
+    /** Creates a parallel solver running on the common fork-join pool. */
+    public ParallelSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a parallel solver running on the given pool. The tree is split
+     * deep enough to give every worker several branches to steal.
+     *
+     * @param pool fork-join pool executing the branches
+     */
+    public ParallelSolver(ForkJoinPool pool) {
+        this.pool = pool;
+        this.splitDepth = 32 - Integer.numberOfLeadingZeros(pool.getParallelism() * 4);
+    }
+
+    @Override
+    public String getName() {
+        return "parallel";
+    }
+
+    @Override
+    public long getBacktrackCount() {
+        return backtrackCount;
+    }
+
+    @Override
+    public long getNodesVisitedCount() {
+        return nodesVisitedCount;
+    }
+
+    @Override
+    public boolean solve(int[][] board, SudokuSolver.StepListener listener) {
+        BoardGeometry g = BoardGeometry.of(board);
+        if (!g.isConsistent(board)) {
+            throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+        }
+
+        Search search = new Search(g, listener);
+        pool.invoke(new Branch(search, copy(board), 0));
+
+        nodesVisitedCount = search.nodes.sum();
+        backtrackCount = search.backtracks.sum();
+
+        int[][] solution = search.solution.get();
+        if (solution == null || (listener != null && listener.isCancelled())) {
+            return false;
+        }
+        for (int r = 0; r < g.size; r++) {
+            System.arraycopy(solution[r], 0, board[r], 0, g.size);
+        }
+        return true;
+    }
+
+    /** State shared by all branches of one solve. */
+    private static final class Search implements SudokuSolver.StepListener {
+        final AtomicReference<int[][]> solution = new AtomicReference<>();
+        final LongAdder nodes = new LongAdder();
+        final LongAdder backtracks = new LongAdder();
+        final BoardGeometry geometry;
+        final SudokuSolver.StepListener caller;
+
+        Search(BoardGeometry geometry, SudokuSolver.StepListener caller) {
+            this.geometry = geometry;
+            this.caller = caller;
+        }
+
+        @Override
+        public void onStep(int row, int col, int value) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return solution.get() != null || (caller != null && caller.isCancelled());
+        }
+    }
+
+    /** One subtree of the search, owning a private copy of the board. */
+    private final class Branch extends RecursiveAction {
+        private final Search search;
+        private final int[][] board;
+        private final int depth;
+
+        Branch(Search search, int[][] board, int depth) {
+            this.search = search;
+            this.board = board;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.isCancelled()) {
+                return;
+            }
+            if (depth >= splitDepth) {
+                solveSequentially();
+                return;
+            }
+            search.nodes.increment();
+
+            BoardGeometry g = search.geometry;
+            int size = g.size;
+            int[] rowMask = new int[size];
+            int[] colMask = new int[size];
+            int[] boxMask = new int[size];
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    if (board[r][c] != 0) {
+                        int bit = 1 << (board[r][c] - 1);
+                        rowMask[r] |= bit;
+                        colMask[c] |= bit;
+                        boxMask[g.cellBox[r * size + c]] |= bit;
+                    }
+                }
+            }
+
+            // Pick the cell with the minimum remaining values
+            int bestRow = -1;
+            int bestCol = -1;
+            int bestCandidates = 0;
+            int bestCount = size + 1;
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    if (board[r][c] != 0) continue;
+                    int candidates = ~(rowMask[r] | colMask[c] | boxMask[g.cellBox[r * size + c]]) & g.allDigits;
+                    int count = Integer.bitCount(candidates);
+                    if (count < bestCount) {
+                        bestRow = r;
+                        bestCol = c;
+                        bestCandidates = candidates;
+                        bestCount = count;
+                    }
+                }
+            }
+            if (bestRow < 0) {
+                search.solution.compareAndSet(null, board);  // already complete
+                return;
+            }
+
+            List<Branch> children = new ArrayList<>(bestCount);
+            while (bestCandidates != 0) {
+                int bit = bestCandidates & -bestCandidates;
+                bestCandidates ^= bit;
+                int[][] child = copy(board);
+                child[bestRow][bestCol] = Integer.numberOfTrailingZeros(bit) + 1;
+                children.add(new Branch(search, child, depth + 1));
+            }
+            if (children.isEmpty()) {
+                search.backtracks.increment();
+                return;
+            }
+            invokeAll(children);
+        }
+
+        private void solveSequentially() {
+            SudokuSolver solver = new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV);
+            boolean solved = solver.solve(board, search);
+            search.nodes.add(solver.getNodesVisitedCount());
+            search.backtracks.add(solver.getBacktrackCount());
+            if (solved) {
+                search.solution.compareAndSet(null, board);
+            }
+        }
+    }
+
+    private static int[][] copy(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int r = 0; r < board.length; r++) {
+            copy[r] = board[r].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Compares the parallel engine with the sequential MRV engine on every
+     * puzzle of a file and prints the speedup.
+     * <pre>
+     * java sudoku.ParallelSolver puzzles.txt
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java sudoku.ParallelSolver puzzles.txt");
+            System.exit(2);
+        }
+
+        SudokuSolver sequential = new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV);
+        ParallelSolver parallel = new ParallelSolver();
+        long totalSequential = 0;
+        long totalParallel = 0;
+
+        try (PuzzleReader reader = new PuzzleReader(new FileReader(args[0], StandardCharsets.UTF_8))) {
+            int[][] puzzle;
+            int index = 0;
+            while ((puzzle = reader.next()) != null) {
+                index++;
+                int[][] a = copy(puzzle);
+                long start = System.nanoTime();
+                boolean solvedA = sequential.solve(a, null);
+                long seqNanos = System.nanoTime() - start;
+
+                int[][] b = copy(puzzle);
+                start = System.nanoTime();
+                boolean solvedB = parallel.solve(b, null);
+                long parNanos = System.nanoTime() - start;
+
+                totalSequential += seqNanos;
+                totalParallel += parNanos;
+                System.out.printf("#%d sequential %.2f ms (%s) | parallel %.2f ms (%s) | speedup %.2fx%n",
+                        index, seqNanos / 1e6, solvedA ? "solved" : "no solution",
+                        parNanos / 1e6, solvedB ? "solved" : "no solution", (double) seqNanos / parNanos);
+            }
+        }
+        System.out.printf("Total speedup on %d workers: %.2fx%n",
+                parallel.pool.getParallelism(), (double) totalSequential / Math.max(1, totalParallel));
+    }
+}
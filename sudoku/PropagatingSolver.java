@@ -0,0 +1,442 @@
+package sudoku;
+
+/**
+ * Sudoku engine that combines constraint propagation with MRV backtracking.
+ * <p>
+ * Candidates are kept as bit masks per cell (9 bits on a 9x9 board). After the givens are loaded and
+ * after every placement inside the search, the following inference rules are
+ * applied until nothing changes:
+ * <ul>
+ *     <li>naked singles (a cell with one candidate)</li>
+ *     <li>hidden singles (a digit with one place left in a row, column or box)</li>
+ *     <li>pointing and claiming (locked candidates in a box/line intersection)</li>
+ *     <li>naked pairs and hidden pairs</li>
+ * </ul>
+ * Every change to a cell is written to a preallocated trail, so backtracking
+ * restores the exact state before a branch without copying the board.
+ * The number of times each rule made progress is available through
+ * {@link #getTechniqueCount(Technique)}.
+ */
+public class PropagatingSolver implements SudokuEngine {
+
+    /** Inference rules applied by the propagation stage. */
+    public enum Technique {
+        NAKED_SINGLE,
+        HIDDEN_SINGLE,
+        POINTING,
+        CLAIMING,
+        NAKED_PAIR,
+        HIDDEN_PAIR
+    }
+
+    /** Geometry of the board being solved, null before the first solve. */
+    private BoardGeometry g;
+
+    // Search state, allocated on the first solve of a board size and reused afterwards
+    private int[] candidates;
+    private int[] values;
+
+    /**
+     * Trail of (cell, old value, old candidates) entries for undo. Along one
+     * search path a cell changes at most size + 1 times, which bounds its length.
+     */
+    private int[] trailCell;
+    private int[] trailValue;
+    private int[] trailMask;
+    private int trailSize;
+
+    /** Cells that became naked singles and still have to be placed. */
+    private int[] singles;
+    private int singlesHead;
+    private int singlesTail;
+
+    /** Per-digit position masks within a unit, scratch space for hidden pairs. */
+    private int[] positions;
+
+    private final long[] techniqueCounts = new long[Technique.values().length];
+
+    private long backtrackCount = 0;
+    private long nodesVisitedCount = 0;
+
+    private SudokuSolver.StepListener listener;
+
+    @Override
+    public String getName() {
+        return "propagate";
+    }
+
+    @Override
+    public long getBacktrackCount() {
+        return backtrackCount;
+    }
+
+    @Override
+    public long getNodesVisitedCount() {
+        return nodesVisitedCount;
+    }
+
+    /** Returns how often the given rule made progress during the last solve. */
+    public long getTechniqueCount(Technique technique) {
+        return techniqueCounts[technique.ordinal()];
+    }
+
+    @Override
+    public boolean solve(int[][] board, SudokuSolver.StepListener listener) {
+        BoardGeometry geometry = BoardGeometry.of(board);
+        if (geometry != g) {
+            allocate(geometry);
+        }
+
+        for (int cell = 0; cell < g.cells; cell++) {
+            candidates[cell] = g.allDigits;
+            values[cell] = 0;
+        }
+        trailSize = 0;
+        singlesHead = 0;
+        singlesTail = 0;
+        backtrackCount = 0;
+        nodesVisitedCount = 0;
+        for (int i = 0; i < techniqueCounts.length; i++) {
+            techniqueCounts[i] = 0;
+        }
+
+        // Givens are validated against each other, then placed silently; a
+        // contradiction while placing them only means there is no solution
+        if (!g.isConsistent(board)) {
+            throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+        }
+        this.listener = null;
+        for (int cell = 0; cell < g.cells; cell++) {
+            int val = board[g.cellRow[cell]][g.cellCol[cell]];
+            if (val != 0 && !assign(cell, val)) {
+                return false;
+            }
+        }
+        trailSize = 0;
+
+        this.listener = listener;
+        nodesVisitedCount = 1;  // the root
+        try {
+            boolean solved = propagate() && search();
+            if (solved) {
+                for (int cell = 0; cell < g.cells; cell++) {
+                    board[g.cellRow[cell]][g.cellCol[cell]] = values[cell];
+                }
+            }
+            return solved;
+        } finally {
+            this.listener = null;
+        }
+    }
+
+    /** Sizes the working buffers for a board geometry. */
+    private void allocate(BoardGeometry geometry) {
+        g = geometry;
+        candidates = new int[g.cells];
+        values = new int[g.cells];
+        trailCell = new int[g.cells * (g.size + 1)];
+        trailValue = new int[trailCell.length];
+        trailMask = new int[trailCell.length];
+        singles = new int[g.cells];
+        positions = new int[g.size];
+    }
+
+    /**
+     * MRV backtracking over the propagated state. Every tried placement counts
+     * as a visited node, including those refuted by propagation alone.
+     */
+    private boolean search() {
+        if (listener != null && listener.isCancelled()) {
+            return false;
+        }
+
+        int best = -1;
+        int bestCount = g.size + 1;
+        for (int cell = 0; cell < g.cells; cell++) {
+            if (values[cell] != 0) continue;
+            int count = Integer.bitCount(candidates[cell]);
+            if (count < bestCount) {
+                best = cell;
+                bestCount = count;
+                if (count <= 2) {
+                    break;
+                }
+            }
+        }
+        if (best < 0) {
+            return true;  // solved
+        }
+
+        int remaining = candidates[best];
+        while (remaining != 0) {
+            int bit = remaining & -remaining;
+            remaining ^= bit;
+
+            nodesVisitedCount++;
+            int mark = trailSize;
+            singlesHead = 0;
+            singlesTail = 0;
+            if (assign(best, Integer.numberOfTrailingZeros(bit) + 1) && propagate() && search()) {
+                return true;
+            }
+            if (listener != null && listener.isCancelled()) {
+                undo(mark);
+                return false;
+            }
+
+            // Backtrack
+            undo(mark);
+            backtrackCount++;
+        }
+        return false;
+    }
+
+    /** Restores every cell changed since the trail had {@code mark} entries. */
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            int cell = trailCell[trailSize];
+            int oldValue = trailValue[trailSize];
+            if (values[cell] != 0 && oldValue == 0 && listener != null) {
+                listener.onStep(g.cellRow[cell], g.cellCol[cell], 0);
+            }
+            values[cell] = oldValue;
+            candidates[cell] = trailMask[trailSize];
+        }
+    }
+
+    private void save(int cell) {
+        trailCell[trailSize] = cell;
+        trailValue[trailSize] = values[cell];
+        trailMask[trailSize] = candidates[cell];
+        trailSize++;
+    }
+
+    /** Places a digit and removes it from all peers. Returns false on contradiction. */
+    private boolean assign(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        save(cell);
+        values[cell] = digit;
+        candidates[cell] = bit;
+        if (listener != null) {
+            listener.onStep(g.cellRow[cell], g.cellCol[cell], digit);
+        }
+
+        for (int peer : g.peers[cell]) {
+            if (values[peer] != 0) {
+                if (values[peer] == digit) {
+                    return false;
+                }
+            } else if (!remove(peer, bit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Removes candidates from an empty cell. Returns false if none remain. */
+    private boolean remove(int cell, int mask) {
+        int current = candidates[cell];
+        if ((current & mask) == 0) {
+            return true;
+        }
+        save(cell);
+        current &= ~mask;
+        candidates[cell] = current;
+        if (current == 0) {
+            return false;
+        }
+        if ((current & (current - 1)) == 0) {
+            singles[singlesTail++] = cell;
+        }
+        return true;
+    }
+
+    /** Applies the inference rules until a fixpoint. Returns false on contradiction. */
+    private boolean propagate() {
+        while (true) {
+            while (singlesHead < singlesTail) {
+                int cell = singles[singlesHead++];
+                if (values[cell] != 0) continue;
+                techniqueCounts[Technique.NAKED_SINGLE.ordinal()]++;
+                if (!assign(cell, Integer.numberOfTrailingZeros(candidates[cell]) + 1)) {
+                    return false;
+                }
+            }
+            singlesHead = 0;
+            singlesTail = 0;
+
+            int result = hiddenSingles();
+            if (result < 0) return false;
+            if (result > 0) continue;
+
+            result = lockedCandidates();
+            if (result < 0) return false;
+            if (result > 0) continue;
+
+            result = pairs();
+            if (result < 0) return false;
+            if (result > 0) continue;
+
+            return true;
+        }
+    }
+
+    /** Returns -1 on contradiction, 1 if progress was made, 0 otherwise. */
+    private int hiddenSingles() {
+        int progress = 0;
+        for (int[] unit : g.units) {
+            int once = 0;
+            int twice = 0;
+            int placed = 0;
+            for (int cell : unit) {
+                if (values[cell] != 0) {
+                    placed |= candidates[cell];
+                } else {
+                    twice |= once & candidates[cell];
+                    once |= candidates[cell];
+                }
+            }
+            if ((once | placed) != g.allDigits) {
+                return -1;  // some digit has no place left in this unit
+            }
+
+            int hidden = once & ~twice & ~placed;
+            while (hidden != 0) {
+                int bit = hidden & -hidden;
+                hidden ^= bit;
+                for (int cell : unit) {
+                    if (values[cell] == 0 && (candidates[cell] & bit) != 0) {
+                        techniqueCounts[Technique.HIDDEN_SINGLE.ordinal()]++;
+                        if (!assign(cell, Integer.numberOfTrailingZeros(bit) + 1)) {
+                            return -1;
+                        }
+                        break;
+                    }
+                }
+                progress = 1;
+            }
+            if (progress != 0) {
+                return progress;  // let naked singles run first
+            }
+        }
+        return progress;
+    }
+
+    /** Pointing and claiming. Returns -1 on contradiction, 1 on progress, 0 otherwise. */
+    private int lockedCandidates() {
+        int progress = 0;
+        for (int s = 0; s < g.segment.length; s++) {
+            int shared = unsolvedMask(g.segment[s]);
+            if (shared == 0) continue;
+            int lineRest = unsolvedMask(g.segmentLineRest[s]);
+            int boxRest = unsolvedMask(g.segmentBoxRest[s]);
+
+            // Pointing: digit confined to the segment within the box
+            int pointing = shared & ~boxRest & lineRest;
+            if (pointing != 0) {
+                techniqueCounts[Technique.POINTING.ordinal()]++;
+                if (!removeFrom(g.segmentLineRest[s], pointing)) return -1;
+                progress = 1;
+            }
+
+            // Claiming: digit confined to the segment within the line
+            int claiming = shared & ~lineRest & boxRest;
+            if (claiming != 0) {
+                techniqueCounts[Technique.CLAIMING.ordinal()]++;
+                if (!removeFrom(g.segmentBoxRest[s], claiming)) return -1;
+                progress = 1;
+            }
+        }
+        return progress;
+    }
+
+    /** Naked and hidden pairs. Returns -1 on contradiction, 1 on progress, 0 otherwise. */
+    private int pairs() {
+        int progress = 0;
+        for (int[] unit : g.units) {
+            // Naked pairs: two cells with the same two candidates
+            for (int i = 0; i < g.size; i++) {
+                int a = unit[i];
+                int mask = candidates[a];
+                if (values[a] != 0 || Integer.bitCount(mask) != 2) continue;
+                for (int j = i + 1; j < g.size; j++) {
+                    int b = unit[j];
+                    if (values[b] != 0 || candidates[b] != mask) continue;
+                    boolean changed = false;
+                    for (int cell : unit) {
+                        if (cell == a || cell == b || values[cell] != 0) continue;
+                        if ((candidates[cell] & mask) != 0) {
+                            changed = true;
+                            if (!remove(cell, mask)) return -1;
+                        }
+                    }
+                    if (changed) {
+                        techniqueCounts[Technique.NAKED_PAIR.ordinal()]++;
+                        progress = 1;
+                    }
+                }
+            }
+
+            // Hidden pairs: two digits confined to the same two cells
+            for (int d = 0; d < g.size; d++) {
+                positions[d] = 0;
+            }
+            for (int i = 0; i < g.size; i++) {
+                int cell = unit[i];
+                if (values[cell] != 0) continue;
+                int mask = candidates[cell];
+                while (mask != 0) {
+                    int bit = mask & -mask;
+                    mask ^= bit;
+                    positions[Integer.numberOfTrailingZeros(bit)] |= 1 << i;
+                }
+            }
+            for (int d1 = 0; d1 < g.size; d1++) {
+                if (Integer.bitCount(positions[d1]) != 2) continue;
+                for (int d2 = d1 + 1; d2 < g.size; d2++) {
+                    if (positions[d2] != positions[d1]) continue;
+                    int keep = (1 << d1) | (1 << d2);
+                    int pos = positions[d1];
+                    boolean changed = false;
+                    while (pos != 0) {
+                        int cell = unit[Integer.numberOfTrailingZeros(pos)];
+                        pos &= pos - 1;
+                        if ((candidates[cell] & ~keep) != 0) {
+                            changed = true;
+                            if (!remove(cell, ~keep & g.allDigits)) return -1;
+                        }
+                    }
+                    if (changed) {
+                        techniqueCounts[Technique.HIDDEN_PAIR.ordinal()]++;
+                        progress = 1;
+                    }
+                }
+            }
+            if (progress != 0) {
+                return progress;
+            }
+        }
+        return progress;
+    }
+
+    /** Union of the candidates of the empty cells among {@code cells}. */
+    private int unsolvedMask(int[] cells) {
+        int mask = 0;
+        for (int cell : cells) {
+            if (values[cell] == 0) {
+                mask |= candidates[cell];
+            }
+        }
+        return mask;
+    }
+
+    private boolean removeFrom(int[] cells, int mask) {
+        for (int cell : cells) {
+            if (values[cell] == 0 && !remove(cell, mask)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
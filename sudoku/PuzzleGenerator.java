@@ -0,0 +1,339 @@
+package sudoku;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates puzzles with a unique solution.
+ * <p>
+ * Each puzzle starts from a random full grid: the diagonal boxes (which do not
+ * constrain each other) are filled with random permutations, the rest is
+ * completed by the {@link PropagatingSolver} and the digits are relabelled at
+ * random. Clues are then removed in random order, and a removal is kept only
+ * if the solution stays unique, until the target clue count is reached or no
+ * further clue can be removed. Since the puzzle was unique before the removal,
+ * the check only asks whether any other digit of the emptied cell is solvable,
+ * which is cheaper than {@link SudokuSolver#countSolutions(int[][], int)} on the
+ * whole board.
+ * <p>
+ * Puzzle {@code i} of a run with seed {@code s} depends only on {@code s + i},
+ * so the output is reproducible regardless of the number of threads. An
+ * instance keeps its solvers and scratch buffers between puzzles and is not
+ * thread-safe; {@link #generate(int, long, int)} uses one instance per worker.
+ */
+public class PuzzleGenerator {
+
+    /** Clue targets for common difficulty levels, given for a 9x9 board. */
+    public enum Difficulty {
+        EASY(36),
+        MEDIUM(30),
+        HARD(26),
+        /** Remove clues until none can be removed without losing uniqueness. */
+        MINIMAL(0);
+
+        private final int clues;
+
+        Difficulty(int clues) {
+            this.clues = clues;
+        }
+
+        /** Returns the target clue count for a board of the given size, scaled from 9x9. */
+        public int cluesFor(int size) {
+            return (int) Math.round(clues * (double) (size * size) / (SudokuSolver.SIZE * SudokuSolver.SIZE));
+        }
+    }
+
+    private final BoardGeometry geometry;
+    private final int targetClues;
+
+    private final SudokuEngine checker;
+    private final PropagatingSolver filler = new PropagatingSolver();
+    private final int[][] scratch;
+    private final int[] order;
+    private final int[] digits;
+
+    private long uniquenessChecks = 0;
+
+    /**
+     * @param size        board side length (4, 9, 16 or 25)
+     * @param targetClues stop removing clues at this count; 0 or less produces minimal puzzles
+     */
+    public PuzzleGenerator(int size, int targetClues) {
+        this.geometry = BoardGeometry.forSize(size);
+        this.targetClues = Math.max(0, targetClues);
+        this.order = new int[geometry.cells];
+        this.digits = new int[size + 1];
+        this.scratch = new int[size][size];
+        // Plain MRV is fastest up to 9x9 but has heavy-tailed runs on larger boards
+        this.checker = size <= SudokuSolver.SIZE
+                ? new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV)
+                : new DancingLinksSolver();
+    }
+
+    /**
+     * @param size       board side length (4, 9, 16 or 25)
+     * @param difficulty clue target, scaled to the board size
+     */
+    public PuzzleGenerator(int size, Difficulty difficulty) {
+        this(size, difficulty.cluesFor(size));
+    }
+
+    /** Returns the number of uniqueness checks made by this generator so far. */
+    public long getUniquenessChecks() {
+        return uniquenessChecks;
+    }
+
+    /**
+     * Generates one puzzle.
+     *
+     * @param seed seed of the random choices; equal seeds give equal puzzles
+     * @return a new board with a unique solution, 0 for empty cells
+     */
+    public int[][] generate(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[][] board = fullGrid(random);
+        removeClues(board, random);
+        return board;
+    }
+
+    /** Returns a random complete, valid grid. */
+    public int[][] fullGrid(SplittableRandom random) {
+        BoardGeometry g = geometry;
+        int size = g.size;
+        int[][] board = new int[size][size];
+
+        // Boxes on the diagonal share no row or column, so any permutations are
+        // consistent; on small boards a few cannot be completed and are redrawn
+        do {
+            for (int b = 0; b < g.boxSize; b++) {
+                shuffleDigits(random);
+                int[] box = g.units[2 * size + b * (g.boxSize + 1)];
+                for (int i = 0; i < size; i++) {
+                    board[g.cellRow[box[i]]][g.cellCol[box[i]]] = digits[i + 1];
+                }
+            }
+        } while (!filler.solve(board, null));
+
+        // The completion is deterministic, so relabel digits to randomize it further
+        shuffleDigits(random);
+        for (int[] row : board) {
+            for (int c = 0; c < size; c++) {
+                row[c] = digits[row[c]];
+            }
+        }
+        return board;
+    }
+
+    /** Removes clues in random order while the solution stays unique. */
+    private void removeClues(int[][] board, SplittableRandom random) {
+        BoardGeometry g = geometry;
+        for (int i = 0; i < g.cells; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+
+        int clues = g.cells;
+        for (int i = 0; i < g.cells && clues > targetClues; i++) {
+            int r = g.cellRow[order[i]];
+            int c = g.cellCol[order[i]];
+            int value = board[r][c];
+            board[r][c] = 0;
+            uniquenessChecks++;
+            if (isStillUnique(board, r, c, value)) {
+                clues--;
+            } else {
+                board[r][c] = value;
+            }
+        }
+    }
+
+    /**
+     * Returns true if {@code board}, uniquely solvable before {@code value} was
+     * removed from (r, c), still has a unique solution. Any second solution
+     * must differ at (r, c), so it is enough to show that no other digit legal
+     * there leads to a solution.
+     */
+    private boolean isStillUnique(int[][] board, int r, int c, int value) {
+        BoardGeometry g = geometry;
+        int used = 0;
+        for (int peer : g.peers[r * g.size + c]) {
+            int v = board[g.cellRow[peer]][g.cellCol[peer]];
+            if (v != 0) {
+                used |= 1 << (v - 1);
+            }
+        }
+        int alternatives = ~used & g.allDigits & ~(1 << (value - 1));
+        boolean unique = true;
+        while (alternatives != 0 && unique) {
+            int bit = alternatives & -alternatives;
+            alternatives ^= bit;
+            board[r][c] = Integer.numberOfTrailingZeros(bit) + 1;
+            for (int row = 0; row < g.size; row++) {
+                System.arraycopy(board[row], 0, scratch[row], 0, g.size);
+            }
+            unique = !checker.solve(scratch, null);
+        }
+        board[r][c] = 0;
+        return unique;
+    }
+
+    /** Fills {@code digits[1..size]} with a random permutation of 1..size. */
+    private void shuffleDigits(SplittableRandom random) {
+        for (int i = 1; i < digits.length; i++) {
+            int j = 1 + random.nextInt(i);
+            digits[i] = digits[j];
+            digits[j] = i;
+        }
+    }
+
+    /**
+     * Generates {@code count} puzzles on a pool of worker threads.
+     *
+     * @param count   number of puzzles
+     * @param seed    base seed; puzzle {@code i} uses {@code seed + i}
+     * @param threads number of worker threads (at least 1)
+     * @return the puzzles in index order
+     */
+    public List<int[][]> generate(int count, long seed, int threads) {
+        List<int[][]> puzzles = new ArrayList<>(count);
+        try {
+            generate(count, seed, threads, puzzles::add);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);  // not thrown by List.add
+        }
+        return puzzles;
+    }
+
+    /** Receives generated puzzles in index order. */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(int[][] puzzle) throws IOException;
+    }
+
+    /**
+     * Streaming variant of {@link #generate(int, long, int)}: puzzles are
+     * handed to {@code sink} in index order as they complete, with at most a
+     * bounded window in flight.
+     */
+    public void generate(long count, long seed, int threads, Sink sink) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+        }
+        int size = geometry.size;
+        ThreadLocal<PuzzleGenerator> generators = ThreadLocal.withInitial(() -> new PuzzleGenerator(size, targetClues));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<int[][]>> window = new ArrayDeque<>();
+        int maxInFlight = threads * 16;
+        try {
+            for (long i = 0; i < count; i++) {
+                long puzzleSeed = seed + i;
+                window.addLast(pool.submit(() -> generators.get().generate(puzzleSeed)));
+                if (window.size() >= maxInFlight) {
+                    sink.accept(await(window.removeFirst()));
+                }
+            }
+            while (!window.isEmpty()) {
+                sink.accept(await(window.removeFirst()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static int[][] await(Future<int[][]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for puzzles", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Worker failed: " + ex.getCause(), ex.getCause());
+        }
+    }
+
+    /**
+     * Command-line entry point; writes one puzzle per line in single-line format.
+     * <pre>
+     * java sudoku.PuzzleGenerator [-n count] [-s seed] [-c clues | -d easy|medium|hard|minimal]
+     *                             [-z size] [-t threads] [-o output]
+     * </pre>
+     * Throughput and the average clue count are printed to standard error.
+     */
+    public static void main(String[] args) throws IOException {
+        long count = 100;
+        long seed = System.nanoTime();
+        int size = SudokuSolver.SIZE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Integer clues = null;
+        Difficulty difficulty = Difficulty.MINIMAL;
+        String output = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-n":
+                    count = Long.parseLong(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-s":
+                    seed = Long.parseLong(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-c":
+                    clues = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-d":
+                    difficulty = Difficulty.valueOf(CommandLine.requireValue(args, ++i).toUpperCase(Locale.ROOT));
+                    break;
+                case "-z":
+                    size = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-t":
+                    threads = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-o":
+                    output = CommandLine.requireValue(args, ++i);
+                    break;
+                default:
+                    System.err.println("Usage: java sudoku.PuzzleGenerator [-n count] [-s seed]"
+                            + " [-c clues | -d easy|medium|hard|minimal] [-z size] [-t threads] [-o output]");
+                    System.exit(2);
+            }
+        }
+
+        PuzzleGenerator generator = clues != null
+                ? new PuzzleGenerator(size, clues)
+                : new PuzzleGenerator(size, difficulty);
+        long[] totalClues = new long[1];
+        long start = System.nanoTime();
+        try (Writer out = new BufferedWriter(output == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : new FileWriter(output, StandardCharsets.UTF_8), 1 << 16)) {
+            generator.generate(count, seed, threads, puzzle -> {
+                String line = PuzzleReader.format(puzzle);
+                for (int i = 0; i < line.length(); i++) {
+                    if (line.charAt(i) != '0') {
+                        totalClues[0]++;
+                    }
+                }
+                out.write(line);
+                out.write('\n');
+            });
+        }
+        long elapsed = System.nanoTime() - start;
+        System.err.printf("Seed: %d | Threads: %d | Target clues: %d%n", seed, threads, generator.targetClues);
+        System.err.printf("Puzzles: %d | %.1f s | %.1f puzzles/s | Average clues: %.1f%n",
+                count, elapsed / 1e9, count * 1e9 / Math.max(1, elapsed), (double) totalClues[0] / Math.max(1, count));
+    }
+}
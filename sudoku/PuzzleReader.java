@@ -0,0 +1,226 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming reader for Sudoku puzzles in the two supported text formats:
+ * <ul>
+ *     <li>one puzzle per line as n⁴ characters (81 for 9x9, 256 for 16x16,
+ *         625 for 25x25), {@code 0} or {@code .} for empty cells</li>
+ *     <li>n² lines of n² tokens separated by commas or whitespace (the CSV/TXT
+ *         format used by {@link SudokuGUI}), {@code 0} or an empty token for empty cells;
+ *         the board size is taken from the number of tokens on the first line</li>
+ * </ul>
+ * Values above 9 are written either as numbers ({@code 10}, {@code 16}) in the
+ * token format or as letters ({@code A} = 10, {@code B} = 11, ...) in both formats.
+ * Both formats and all sizes may be mixed in one file. Blank lines and lines
+ * starting with {@code #} between puzzles are skipped.
+ */
+public class PuzzleReader implements Closeable {
+
+    /**
+     * Thrown for a malformed puzzle. The offending lines are consumed, so the
+     * caller may report the record and go on reading.
+     */
+    public static final class FormatException extends IOException {
+        FormatException(String message) {
+            super(message);
+        }
+    }
+
+    private final BufferedReader in;
+    private int lineNumber = 0;
+
+    public PuzzleReader(Reader reader) {
+        this.in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /** Returns the number of lines consumed so far (1-based line of the last read). */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Reads the next puzzle.
+     *
+     * @return a new board (0 = empty), or {@code null} at end of input
+     * @throws FormatException if the next puzzle is malformed
+     * @throws IOException if reading fails
+     */
+    public int[][] next() throws IOException {
+        String line;
+        do {
+            line = readLine();
+            if (line == null) {
+                return null;
+            }
+            line = line.trim();
+        } while (line.isEmpty() || line.startsWith("#"));
+
+        int size = singleLineSize(line);
+        if (size > 0) {
+            int[][] board = new int[size][size];
+            parseSingleLine(line, board);
+            return board;
+        }
+
+        String[] first = splitRow(line);
+        size = rowSize(first.length);
+        if (size == 0) {
+            throw new FormatException("Not enough columns in line " + lineNumber);
+        }
+        int[][] board = new int[size][size];
+        parseRow(first, board, 0);
+        for (int r = 1; r < size; r++) {
+            String row = readLine();
+            if (row == null) {
+                throw new FormatException("Not enough lines in puzzle (expected " + size + ") at line " + lineNumber);
+            }
+            row = row.trim();
+            if (row.isEmpty()) {
+                throw new FormatException("Empty line at row " + (r + 1) + " (line " + lineNumber + ")");
+            }
+            parseRow(splitRow(row), board, r);
+        }
+        return board;
+    }
+
+    /**
+     * Parses a single cell token: a number, a letter ({@code A} = 10) or
+     * {@code 0}/{@code .}/empty for an empty cell.
+     *
+     * @return the value (0 for empty), or -1 if the token is not a valid symbol
+     */
+    public static int parseToken(String token) {
+        if (token.isEmpty() || "0".equals(token) || ".".equals(token)) {
+            return 0;
+        }
+        if (token.length() == 1) {
+            return parseSymbol(token.charAt(0));
+        }
+        try {
+            int val = Integer.parseInt(token);
+            return val >= 0 ? val : -1;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /** Parses a single-character symbol; returns 0 for empty, -1 if invalid. */
+    public static int parseSymbol(char ch) {
+        if (ch == '0' || ch == '.') {
+            return 0;
+        }
+        if (ch >= '1' && ch <= '9') {
+            return ch - '0';
+        }
+        char upper = Character.toUpperCase(ch);
+        if (upper >= 'A' && upper <= 'Z') {
+            return upper - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /** Returns the single-character symbol of a value: {@code 0}, {@code 1}-{@code 9}, then {@code A}... */
+    public static char toSymbol(int value) {
+        return value < 10 ? (char) ('0' + value) : (char) ('A' + value - 10);
+    }
+
+    /** Formats a board as a single line of symbols, the inverse of the single-line format. */
+    public static String format(int[][] board) {
+        int size = board.length;
+        char[] chars = new char[size * size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                chars[r * size + c] = toSymbol(board[r][c]);
+            }
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String readLine() throws IOException {
+        String line = in.readLine();
+        if (line != null) {
+            lineNumber++;
+        }
+        return line;
+    }
+
+    /**
+     * Returns the board size if the line is a whole puzzle (n⁴ characters
+     * without separators), otherwise 0.
+     */
+    private static int singleLineSize(String line) {
+        int size = (int) Math.round(Math.sqrt(line.length()));
+        if (size * size != line.length() || !BoardGeometry.isSupportedSize(size)) {
+            return 0;
+        }
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == ',' || Character.isWhitespace(ch)) {
+                return 0;
+            }
+        }
+        return size;
+    }
+
+    /** Returns the largest supported board size not above {@code tokens}, or 0. */
+    private static int rowSize(int tokens) {
+        for (int size = BoardGeometry.MAX_BOX_SIZE * BoardGeometry.MAX_BOX_SIZE; size > 1; size--) {
+            if (size <= tokens && BoardGeometry.isSupportedSize(size)) {
+                return size;
+            }
+        }
+        return 0;
+    }
+
+    private void parseSingleLine(String line, int[][] board) throws IOException {
+        int size = board.length;
+        for (int i = 0; i < size * size; i++) {
+            char ch = line.charAt(i);
+            int val = parseSymbol(ch);
+            if (val < 0 || val > size) {
+                throw new FormatException("Invalid character '" + ch + "' at line " + lineNumber + ", column " + (i + 1));
+            }
+            board[i / size][i % size] = val;
+        }
+    }
+
+    /** Splits one row of the multi-line format into tokens. */
+    private static String[] splitRow(String line) {
+        // Determine separator type: comma or whitespace
+        if (line.contains(",")) {
+            return line.split(",", -1);
+        }
+        return line.split("\\s+");
+    }
+
+    /** Parses one row of the multi-line format into {@code board[r]}. */
+    private void parseRow(String[] row, int[][] board, int r) throws IOException {
+        int size = board.length;
+        if (row.length < size) {
+            throw new FormatException("Not enough columns in line " + lineNumber);
+        }
+
+        for (int c = 0; c < size; c++) {
+            String token = row[c].trim();
+            int val = parseToken(token);
+            if (val < 0) {
+                throw new FormatException("Invalid token \"" + token + "\" at (" + (r + 1) + "," + (c + 1) + ")");
+            }
+            if (val > size) {
+                throw new FormatException("Invalid number " + val + " at (" + (r + 1) + "," + (c + 1) +
+                        "), only 0 or 1-" + size + " allowed.");
+            }
+            board[r][c] = val;
+        }
+    }
+}
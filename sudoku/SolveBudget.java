@@ -0,0 +1,67 @@
+package sudoku;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node and time budget enforced through the cancellation hook, optionally
+ * wrapping the caller's listener (steps are forwarded, and its cancellation
+ * is honoured). Every node below the root is entered through exactly one
+ * placement, so placements plus one count the visited nodes; the clock is
+ * read every 256 polls. Thread-safe, so engines that search on several
+ * threads (such as {@link ParallelSolver}) can share one budget.
+ */
+final class SolveBudget implements SudokuSolver.StepListener {
+
+    /** Budget meaning "no limit". */
+    static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final long maxPlacements;
+    private final boolean countPlacements;
+    private final long deadline;
+    private final SudokuSolver.StepListener delegate;
+    private final AtomicLong placements = new AtomicLong();
+    private final AtomicInteger polls = new AtomicInteger();
+    private volatile boolean exceeded;
+
+    /**
+     * @param maxNodes node budget, {@link #UNLIMITED} for none
+     * @param deadline {@link System#nanoTime()} deadline, {@link #UNLIMITED} for none
+     * @param delegate listener to forward to, or null
+     */
+    SolveBudget(long maxNodes, long deadline, SudokuSolver.StepListener delegate) {
+        this.maxPlacements = maxNodes - 1;
+        this.countPlacements = maxNodes != UNLIMITED;
+        this.deadline = deadline;
+        this.delegate = delegate;
+    }
+
+    /** Returns the {@link System#nanoTime()} deadline {@code timeoutMillis} from now, or UNLIMITED. */
+    static long deadlineIn(long timeoutMillis) {
+        return timeoutMillis >= UNLIMITED / 1_000_000L ? UNLIMITED : System.nanoTime() + timeoutMillis * 1_000_000L;
+    }
+
+    /** Returns true once the node or time budget ran out. */
+    boolean isExceeded() {
+        return exceeded;
+    }
+
+    @Override
+    public void onStep(int row, int col, int value) {
+        if (value != 0 && countPlacements && placements.incrementAndGet() > maxPlacements) {
+            exceeded = true;
+        }
+        if (delegate != null) {
+            delegate.onStep(row, col, value);
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        if (!exceeded && (polls.incrementAndGet() & 255) == 0 && deadline != UNLIMITED
+                && System.nanoTime() - deadline > 0) {
+            exceeded = true;
+        }
+        return exceeded || (delegate != null && delegate.isCancelled());
+    }
+}
@@ -0,0 +1,151 @@
+package sudoku;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for {@link SolveService}.
+ * <p>
+ * {@code concurrency} client threads each send one request, wait for the
+ * response and send the next, cycling through the puzzles of the input file,
+ * until {@code requests} have been sent in total. With {@code -b} each request
+ * carries that many puzzles to {@code /batch} instead of one to {@code /solve}.
+ * Throughput, latency percentiles and the count of rejected ({@code 503})
+ * requests are printed at the end; only accepted requests contribute to the
+ * latency percentiles.
+ */
+public class SolveLoadClient {
+
+    /**
+     * Command-line entry point.
+     * <pre>
+     * java sudoku.SolveLoadClient [-u url] [-c concurrency] [-n requests] [-b batch] [-q query] puzzles.txt
+     * </pre>
+     * {@code -q} appends a query string such as {@code maxNodes=10000&timeoutMs=50}.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String url = "http://localhost:8080";
+        int concurrency = 16;
+        int requests = 10_000;
+        int batch = 0;
+        String query = null;
+        String input = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-u":
+                    url = CommandLine.requireValue(args, ++i);
+                    break;
+                case "-c":
+                    concurrency = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-n":
+                    requests = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-b":
+                    batch = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-q":
+                    query = CommandLine.requireValue(args, ++i);
+                    break;
+                default:
+                    input = args[i];
+            }
+        }
+        if (input == null || concurrency < 1 || requests < 1) {
+            System.err.println("Usage: java sudoku.SolveLoadClient [-u url] [-c concurrency] [-n requests]"
+                    + " [-b batch] [-q query] puzzles.txt");
+            System.exit(2);
+        }
+
+        List<String> puzzles = new ArrayList<>();
+        try (PuzzleReader reader = new PuzzleReader(new FileReader(input, StandardCharsets.UTF_8))) {
+            int[][] board;
+            while ((board = reader.next()) != null) {
+                puzzles.add(PuzzleReader.format(board));
+            }
+        }
+        if (puzzles.isEmpty()) {
+            throw new IOException("Input contains no puzzle.");
+        }
+
+        URI uri = URI.create(url + (batch > 0 ? "/batch" : "/solve") + (query == null ? "" : "?" + query));
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        long[] latencies = new long[requests];
+        AtomicLong next = new AtomicLong();
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        int perRequest = Math.max(1, batch);
+        int total = requests;
+
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int t = 0; t < concurrency; t++) {
+            pool.execute(() -> {
+                long i;
+                while ((i = next.getAndIncrement()) < total) {
+                    StringBuilder body = new StringBuilder();
+                    for (int k = 0; k < perRequest; k++) {
+                        body.append(puzzles.get((int) ((i * perRequest + k) % puzzles.size()))).append('\n');
+                    }
+                    HttpRequest request = HttpRequest.newBuilder(uri)
+                            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                            .build();
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() == 200) {
+                            latencies[(int) accepted.getAndIncrement()] = System.nanoTime() - sent;
+                        } else if (response.statusCode() == 503) {
+                            rejected.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    } catch (IOException ex) {
+                        failed.incrementAndGet();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        long elapsed = System.nanoTime() - start;
+
+        int ok = (int) accepted.get();
+        long[] sorted = Arrays.copyOf(latencies, ok);
+        Arrays.sort(sorted);
+        System.err.printf("Requests: %d (ok %d, rejected %d, failed %d) | Concurrency: %d | %.1f s"
+                        + " | %.0f requests/s | %.0f puzzles/s%n",
+                requests, ok, rejected.get(), failed.get(), concurrency, elapsed / 1e9,
+                ok * 1e9 / elapsed, (double) ok * perRequest * 1e9 / elapsed);
+        System.err.printf("Latency: p50 %.2f ms | p99 %.2f ms | p99.9 %.2f ms | max %.2f ms%n",
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6,
+                percentile(sorted, 0.999) / 1e6, percentile(sorted, 1.0) / 1e6);
+    }
+
+    /** Returns the nearest-rank percentile of sorted values. */
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,97 @@
+package sudoku;
+
+/**
+ * Immutable outcome of one solve: the status, the solution (if any) and the
+ * search statistics. Safe to share between threads.
+ */
+public final class SolveResult {
+
+    /** How a solve ended. */
+    public enum Status {
+        /** A solution was found. */
+        SOLVED,
+        /** The search space was exhausted; the puzzle has no solution. */
+        UNSOLVABLE,
+        /** The caller's listener requested cancellation. */
+        CANCELLED,
+        /** The node budget ran out before the search finished. */
+        BUDGET_EXCEEDED
+    }
+
+    private final Status status;
+    private final int[][] solution;
+    private final long nodes;
+    private final long backtracks;
+    private final long nanos;
+
+    /**
+     * @param status     how the solve ended
+     * @param solution   the solved board if {@code status} is SOLVED, otherwise null; not copied
+     * @param nodes      search nodes visited
+     * @param backtracks placements undone
+     * @param nanos      wall-clock time of the solve
+     */
+    SolveResult(Status status, int[][] solution, long nodes, long backtracks, long nanos) {
+        if ((status == Status.SOLVED) != (solution != null)) {
+            throw new IllegalArgumentException("A solution must be given exactly for SOLVED results.");
+        }
+        this.status = status;
+        this.solution = solution;
+        this.nodes = nodes;
+        this.backtracks = backtracks;
+        this.nanos = nanos;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** Returns true if a solution was found. */
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    /** Returns a copy of the solution, or null if the puzzle was not solved. */
+    public int[][] getSolution() {
+        if (solution == null) {
+            return null;
+        }
+        int[][] copy = new int[solution.length][];
+        for (int r = 0; r < solution.length; r++) {
+            copy[r] = solution[r].clone();
+        }
+        return copy;
+    }
+
+    /** Copies the solution into {@code board}; returns false (board untouched) if not solved. */
+    public boolean copySolutionTo(int[][] board) {
+        if (solution == null) {
+            return false;
+        }
+        for (int r = 0; r < solution.length; r++) {
+            System.arraycopy(solution[r], 0, board[r], 0, solution[r].length);
+        }
+        return true;
+    }
+
+    /** Returns the number of search nodes visited. */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /** Returns the number of placements undone. */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /** Returns the wall-clock time of the solve in nanoseconds. */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s in %.3f ms | Visited nodes: %d | Backtracks: %d",
+                status, nanos / 1e6, nodes, backtracks);
+    }
+}
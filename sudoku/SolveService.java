@@ -0,0 +1,396 @@
+package sudoku;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP solve service built on the JDK's embedded {@link HttpServer}.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *     <li>{@code POST /solve} — one puzzle in any {@link PuzzleReader} text format;
+ *         answers a JSON object with status, solution and statistics</li>
+ *     <li>{@code POST /batch} — any number of puzzles (up to {@code maxBatch});
+ *         answers one line per puzzle like {@link BatchSolver}, solved with a
+ *         single pooled solver to amortize the request overhead</li>
+ *     <li>{@code GET /metrics} — request counters, latency percentiles of the
+ *         admitted requests (rejections would make overload look fast) and the
+ *         summed {@link SolverMetrics} of all pooled solvers, as name/value lines</li>
+ * </ul>
+ * Every request runs on its own thread: a virtual thread when the runtime has
+ * them (Java 21+, looked up reflectively), a cached platform thread otherwise.
+ * Solving is limited to {@code workers} pooled {@link SudokuSolver}s, taken
+ * only after the body has been read and given back before the response is
+ * written, so slow clients do not hold one; up to
+ * {@code queue} further requests wait for a solver, and anything beyond that is
+ * rejected at once with {@code 503 Service Unavailable}, so overload turns into
+ * fast rejections instead of unbounded queueing.
+ * <p>
+ * Each request runs under one node budget and one time budget (query
+ * parameters {@code maxNodes} and {@code timeoutMs}, capped by the server
+ * limits), shared by all its puzzles and enforced through
+ * {@link SudokuSolver.StepListener#isCancelled()}; the clock starts when the
+ * request gets its solver. Puzzles of a batch left once the budget has run
+ * out are reported as {@code budget exceeded}. The server binds to the
+ * loopback interface only.
+ */
+public class SolveService {
+
+    /** Latencies kept for the percentiles reported by {@code /metrics}. */
+    private static final int LATENCY_WINDOW = 4096;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Semaphore admission;
+    private final BlockingQueue<SudokuSolver> solvers;
+    private final SudokuSolver[] allSolvers;
+    private final long maxNodes;
+    private final long maxTimeoutMillis;
+    private final int maxBatch;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private long latencyCount = 0;
+
+    /** Outcome of one puzzle, counted for {@code /metrics}. */
+    private enum Outcome {
+        SOLVED, UNSOLVABLE, BUDGET_EXCEEDED, INVALID
+    }
+
+    /**
+     * Creates the service; call {@link #start()} to accept requests.
+     *
+     * @param port             TCP port on the loopback interface, 0 for any free port
+     * @param workers          number of puzzles solved concurrently
+     * @param queue            number of requests allowed to wait for a solver
+     * @param maxNodes         upper bound of the per-request node budget
+     * @param maxTimeoutMillis upper bound of the per-request time budget
+     * @param maxBatch         maximum number of puzzles per {@code /batch} request
+     */
+    public SolveService(int port, int workers, int queue, long maxNodes, long maxTimeoutMillis, int maxBatch)
+            throws IOException {
+        if (workers < 1 || queue < 0 || maxNodes < 1 || maxTimeoutMillis < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("Workers, budgets and batch size must be positive, queue non-negative.");
+        }
+        this.maxNodes = maxNodes;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        this.maxBatch = maxBatch;
+        this.admission = new Semaphore(workers + queue);
+        this.solvers = new ArrayBlockingQueue<>(workers);
+        this.allSolvers = new SudokuSolver[workers];
+        for (int i = 0; i < workers; i++) {
+            SudokuSolver solver = new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV);
+            solver.setMetrics(new SolverMetrics());
+            allSolvers[i] = solver;
+            solvers.add(solver);
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/solve", exchange -> handle(exchange, false));
+        server.createContext("/batch", exchange -> handle(exchange, true));
+        server.createContext("/metrics", this::metrics);
+    }
+
+    /** Returns a virtual-thread-per-task executor, or null before Java 21. */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stops accepting requests, waiting up to {@code delaySeconds} for running ones. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdownNow();
+    }
+
+    /** Returns the bound port (useful when created with port 0). */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Returns true if requests run on virtual threads. */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    private void handle(HttpExchange exchange, boolean batch) throws IOException {
+        long start = System.nanoTime();
+        requests.increment();
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "text/plain", "Use POST.\n");
+                return;
+            }
+            if (!admission.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, "text/plain", "Too many requests in flight.\n");
+                return;
+            }
+            try {
+                Map<String, String> query = parseQuery(exchange.getRequestURI());
+                long nodes = Math.min(maxNodes, parseLong(query.get("maxNodes"), maxNodes));
+                long timeout = Math.min(maxTimeoutMillis, parseLong(query.get("timeoutMs"), maxTimeoutMillis));
+                if (nodes < 1 || timeout < 1) {
+                    send(exchange, 400, "text/plain", "Budgets must be positive.\n");
+                    return;
+                }
+
+                // Read the whole body before taking a solver, so slow uploads do not hold one
+                List<int[][]> boards = new ArrayList<>();
+                try (PuzzleReader reader = new PuzzleReader(
+                        new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                    int limit = batch ? maxBatch + 1 : 1;
+                    int[][] board;
+                    while (boards.size() < limit && (board = reader.next()) != null) {
+                        boards.add(board);
+                    }
+                }
+                if (!batch && boards.isEmpty()) {
+                    send(exchange, 400, "text/plain", "Body contains no puzzle.\n");
+                    return;
+                }
+                if (boards.size() > maxBatch) {
+                    send(exchange, 413, "text/plain", "At most " + maxBatch + " puzzles per batch.\n");
+                    return;
+                }
+
+                String body;
+                SudokuSolver solver = solvers.take();
+                try {
+                    // One budget for the whole request, started once it holds a solver
+                    SolveBudget budget = new SolveBudget(nodes, SolveBudget.deadlineIn(timeout), null);
+                    body = batch ? solveBatch(boards, solver, budget) : solveSingle(boards.get(0), solver, budget);
+                } finally {
+                    solvers.add(solver);
+                }
+                send(exchange, 200, batch ? "text/plain" : "application/json", body);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                send(exchange, 503, "text/plain", "Interrupted.\n");
+            } catch (IOException | NumberFormatException ex) {
+                send(exchange, 400, "text/plain", "Bad request: " + ex.getMessage() + "\n");
+            } finally {
+                admission.release();
+                recordLatency(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /** Solves one puzzle and returns the JSON response body. */
+    private String solveSingle(int[][] board, SudokuSolver solver, SolveBudget budget) {
+        long start = System.nanoTime();
+        StringBuilder json = new StringBuilder("{\"status\":\"");
+        try {
+            SolveResult.Status status = solve(solver, board, budget);
+            json.append(status).append('"');
+            if (status == SolveResult.Status.SOLVED) {
+                json.append(",\"solution\":\"").append(PuzzleReader.format(board)).append('"');
+            }
+            json.append(",\"nodes\":").append(solver.getNodesVisitedCount())
+                    .append(",\"backtracks\":").append(solver.getBacktrackCount());
+        } catch (IllegalArgumentException ex) {
+            outcomes[Outcome.INVALID.ordinal()].increment();
+            json.append("INVALID\",\"error\":\"").append(ex.getMessage().replace("\"", "'")).append('"');
+        }
+        json.append(",\"micros\":").append((System.nanoTime() - start) / 1000).append("}\n");
+        return json.toString();
+    }
+
+    /**
+     * Solves a batch of puzzles and returns the response body, one line per puzzle.
+     * Once the budget has run out, the remaining puzzles are reported as exceeded
+     * without being solved.
+     */
+    private String solveBatch(List<int[][]> boards, SudokuSolver solver, SolveBudget budget) {
+        StringBuilder out = new StringBuilder();
+        for (int[][] board : boards) {
+            try {
+                SolveResult.Status status = budget.isExceeded() ? exceeded() : solve(solver, board, budget);
+                out.append(status == SolveResult.Status.SOLVED ? PuzzleReader.format(board)
+                        : status == SolveResult.Status.UNSOLVABLE ? "unsolvable" : "budget exceeded");
+            } catch (IllegalArgumentException ex) {
+                outcomes[Outcome.INVALID.ordinal()].increment();
+                out.append("invalid: ").append(ex.getMessage());
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    /** Solves one board in place under the request's budget and counts the outcome. */
+    private SolveResult.Status solve(SudokuSolver solver, int[][] board, SolveBudget budget) {
+        boolean solved = solver.solve(board, budget);
+        SolveResult.Status status = solved ? SolveResult.Status.SOLVED
+                : budget.isExceeded() ? SolveResult.Status.BUDGET_EXCEEDED : SolveResult.Status.UNSOLVABLE;
+        Outcome outcome = status == SolveResult.Status.SOLVED ? Outcome.SOLVED
+                : status == SolveResult.Status.UNSOLVABLE ? Outcome.UNSOLVABLE : Outcome.BUDGET_EXCEEDED;
+        outcomes[outcome.ordinal()].increment();
+        return status;
+    }
+
+    /** Counts a puzzle skipped because the request's budget ran out. */
+    private SolveResult.Status exceeded() {
+        outcomes[Outcome.BUDGET_EXCEEDED.ordinal()].increment();
+        return SolveResult.Status.BUDGET_EXCEEDED;
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            SolverMetrics.Snapshot total = null;
+            for (SudokuSolver solver : allSolvers) {
+                SolverMetrics.Snapshot s = solver.getMetrics().snapshot();
+                total = total == null ? s : total.plus(s);
+            }
+            long[] sorted;
+            synchronized (latencies) {
+                int n = (int) Math.min(latencyCount, LATENCY_WINDOW);
+                sorted = Arrays.copyOf(latencies, n);
+            }
+            Arrays.sort(sorted);
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("service_requests ").append(requests.sum()).append('\n');
+            sb.append("service_rejected ").append(rejected.sum()).append('\n');
+            sb.append("service_in_flight ").append(allSolvers.length - solvers.size()).append('\n');
+            sb.append("service_virtual_threads ").append(virtualThreads ? 1 : 0).append('\n');
+            for (Outcome outcome : Outcome.values()) {
+                sb.append("service_puzzles{outcome=\"").append(outcome.name().toLowerCase(Locale.ROOT))
+                        .append("\"} ").append(outcomes[outcome.ordinal()].sum()).append('\n');
+            }
+            sb.append("service_latency_p50_micros ").append(percentile(sorted, 0.50) / 1000).append('\n');
+            sb.append("service_latency_p99_micros ").append(percentile(sorted, 0.99) / 1000).append('\n');
+            sb.append(total.toText());
+            send(exchange, 200, "text/plain", sb.toString());
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        synchronized (latencies) {
+            latencies[(int) (latencyCount++ % LATENCY_WINDOW)] = nanos;
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> query = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return query;
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    /**
+     * Command-line entry point.
+     * <pre>
+     * java sudoku.SolveService [-p port] [-w workers] [-q queue] [-n maxNodes] [-m timeoutMs] [-b maxBatch]
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int queue = 256;
+        long maxNodes = 10_000_000;
+        long timeout = 10_000;
+        int maxBatch = 100_000;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-p":
+                    port = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-w":
+                    workers = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-q":
+                    queue = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-n":
+                    maxNodes = Long.parseLong(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-m":
+                    timeout = Long.parseLong(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-b":
+                    maxBatch = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                default:
+                    System.err.println("Usage: java sudoku.SolveService [-p port] [-w workers] [-q queue]"
+                            + " [-n maxNodes] [-m timeoutMs] [-b maxBatch]");
+                    System.exit(2);
+            }
+        }
+
+        SolveService service = new SolveService(port, workers, queue, maxNodes, timeout, maxBatch);
+        service.start();
+        System.err.println("Listening on http://localhost:" + service.getPort() + " | Workers: " + workers
+                + " | Queue: " + queue + " | " + (service.usesVirtualThreads() ? "virtual" : "platform") + " threads");
+    }
+}
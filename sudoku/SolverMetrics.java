@@ -0,0 +1,326 @@
+package sudoku;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Cumulative search metrics of one solver, safe to read while it is solving.
+ * <p>
+ * A metrics object has a single writer: attach it to one engine (see
+ * {@link SudokuSolver#setMetrics(SolverMetrics)}) and use that engine from one
+ * thread at a time. Counters are plain {@code long}s published with opaque
+ * stores, which cost the same as ordinary stores on common hardware, and
+ * {@link #snapshot()} reads them with opaque loads from any thread, so a
+ * monitoring thread can scrape live values during a long solve. Snapshots of
+ * several solvers can be added up with {@link Snapshot#plus(Snapshot)}.
+ * <p>
+ * Nodes and backtracks are also kept per search depth (number of placements
+ * below the root); the effective branching factor at depth d is the number of
+ * nodes at depth d + 1 divided by the nodes at depth d. Engines without
+ * metrics attached pay a single null check per node.
+ * <p>
+ * If enabled, every finished solve is also emitted as a JDK Flight Recorder
+ * event ({@code sudoku.Solve}), which costs nothing unless a recording with
+ * that event is running.
+ */
+public final class SolverMetrics {
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Indices into the scalar counter array
+    private static final int SOLVES = 0;
+    private static final int SOLVED = 1;
+    private static final int CANCELLED = 2;
+    private static final int PROPAGATION_HITS = 3;
+    private static final int FIRST_SOLUTIONS = 4;
+    private static final int FIRST_SOLUTION_NANOS = 5;
+    private static final int LAST_FIRST_SOLUTION_NANOS = 6;
+    private static final int SOLVE_NANOS = 7;
+    private static final int COUNTERS = 8;
+
+    private final long[] counters = new long[COUNTERS];
+    private final long[] nodesByDepth;
+    private final long[] backtracksByDepth;
+    private final boolean jfrEvents;
+
+    // Writer-only state of the current solve
+    private long solveStart;
+    private boolean firstSolutionSeen;
+    private long solveNodes;
+    private long solveBacktracks;
+
+    /** Creates metrics without Flight Recorder events. */
+    public SolverMetrics() {
+        this(false);
+    }
+
+    /**
+     * @param jfrEvents if true, emit a {@code sudoku.Solve} Flight Recorder event per solve
+     */
+    public SolverMetrics(boolean jfrEvents) {
+        int maxDepth = BoardGeometry.MAX_BOX_SIZE * BoardGeometry.MAX_BOX_SIZE;
+        this.nodesByDepth = new long[maxDepth * maxDepth + 1];
+        this.backtracksByDepth = new long[maxDepth * maxDepth + 1];
+        this.jfrEvents = jfrEvents;
+    }
+
+    /** Called by the engine when a solve starts. */
+    void startSolve() {
+        solveStart = System.nanoTime();
+        firstSolutionSeen = false;
+        solveNodes = 0;
+        solveBacktracks = 0;
+    }
+
+    /** Called by the engine for every search node. */
+    void node(int depth) {
+        LONGS.setOpaque(nodesByDepth, depth, nodesByDepth[depth] + 1);
+        solveNodes++;
+    }
+
+    /** Called by the engine when a placement at {@code depth} is undone. */
+    void backtrack(int depth) {
+        LONGS.setOpaque(backtracksByDepth, depth, backtracksByDepth[depth] + 1);
+        solveBacktracks++;
+    }
+
+    /** Called by the engine when inference fixed {@code hits} values without branching. */
+    void propagation(long hits) {
+        add(PROPAGATION_HITS, hits);
+    }
+
+    /** Called by the engine when it reaches a complete solution; only the first per solve counts. */
+    void solution() {
+        if (firstSolutionSeen) {
+            return;
+        }
+        firstSolutionSeen = true;
+        long nanos = System.nanoTime() - solveStart;
+        add(FIRST_SOLUTIONS, 1);
+        add(FIRST_SOLUTION_NANOS, nanos);
+        LONGS.setOpaque(counters, LAST_FIRST_SOLUTION_NANOS, nanos);
+    }
+
+    /** Called by the engine when a solve ends. */
+    void endSolve(String engine, boolean solved, boolean cancelled) {
+        long nanos = System.nanoTime() - solveStart;
+        add(SOLVES, 1);
+        add(SOLVED, solved ? 1 : 0);
+        add(CANCELLED, cancelled ? 1 : 0);
+        add(SOLVE_NANOS, nanos);
+
+        if (jfrEvents) {
+            SolveEvent event = new SolveEvent();
+            if (event.shouldCommit()) {
+                event.engine = engine;
+                event.nodes = solveNodes;
+                event.backtracks = solveBacktracks;
+                event.solved = solved;
+                event.cancelled = cancelled;
+                event.solveNanos = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    private void add(int index, long delta) {
+        LONGS.setOpaque(counters, index, counters[index] + delta);
+    }
+
+    /** Returns a consistent-enough copy of the counters; may be called from any thread. */
+    public Snapshot snapshot() {
+        long[] c = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            c[i] = (long) LONGS.getOpaque(counters, i);
+        }
+        int depths = 0;
+        long[] nodes = new long[nodesByDepth.length];
+        long[] backtracks = new long[backtracksByDepth.length];
+        for (int d = 0; d < nodes.length; d++) {
+            nodes[d] = (long) LONGS.getOpaque(nodesByDepth, d);
+            backtracks[d] = (long) LONGS.getOpaque(backtracksByDepth, d);
+            if (nodes[d] != 0 || backtracks[d] != 0) {
+                depths = d + 1;
+            }
+        }
+        return new Snapshot(c, Arrays.copyOf(nodes, depths), Arrays.copyOf(backtracks, depths));
+    }
+
+    /** Immutable view of the metrics at one point in time. */
+    public static final class Snapshot {
+        private final long[] counters;
+        private final long[] nodesByDepth;
+        private final long[] backtracksByDepth;
+
+        private Snapshot(long[] counters, long[] nodesByDepth, long[] backtracksByDepth) {
+            this.counters = counters;
+            this.nodesByDepth = nodesByDepth;
+            this.backtracksByDepth = backtracksByDepth;
+        }
+
+        /** Returns the number of finished solves. */
+        public long getSolves() {
+            return counters[SOLVES];
+        }
+
+        /** Returns the number of solves that found a solution. */
+        public long getSolved() {
+            return counters[SOLVED];
+        }
+
+        /** Returns the number of solves stopped by cancellation. */
+        public long getCancelled() {
+            return counters[CANCELLED];
+        }
+
+        /** Returns the number of values fixed by inference (forced cells) instead of branching. */
+        public long getPropagationHits() {
+            return counters[PROPAGATION_HITS];
+        }
+
+        /** Returns the total time spent in finished solves, in nanoseconds. */
+        public long getSolveNanos() {
+            return counters[SOLVE_NANOS];
+        }
+
+        /** Returns the average time from the start of a solve to its first solution, in nanoseconds. */
+        public long getAverageFirstSolutionNanos() {
+            long n = counters[FIRST_SOLUTIONS];
+            return n == 0 ? 0 : counters[FIRST_SOLUTION_NANOS] / n;
+        }
+
+        /** Returns the time to the first solution of the most recent solve that found one. */
+        public long getLastFirstSolutionNanos() {
+            return counters[LAST_FIRST_SOLUTION_NANOS];
+        }
+
+        /** Returns the total number of search nodes, including those of a running solve. */
+        public long getNodes() {
+            return sum(nodesByDepth);
+        }
+
+        /** Returns the total number of backtracks, including those of a running solve. */
+        public long getBacktracks() {
+            return sum(backtracksByDepth);
+        }
+
+        /** Returns the number of depths with at least one node. */
+        public int getMaxDepth() {
+            return nodesByDepth.length;
+        }
+
+        /** Returns the number of nodes visited at the given depth. */
+        public long getNodes(int depth) {
+            return depth < nodesByDepth.length ? nodesByDepth[depth] : 0;
+        }
+
+        /** Returns the number of backtracks at the given depth. */
+        public long getBacktracks(int depth) {
+            return depth < backtracksByDepth.length ? backtracksByDepth[depth] : 0;
+        }
+
+        /** Returns the average number of children of a node at the given depth. */
+        public double getBranchingFactor(int depth) {
+            long nodes = getNodes(depth);
+            return nodes == 0 ? 0 : (double) getNodes(depth + 1) / nodes;
+        }
+
+        /** Returns the element-wise sum of this snapshot and another one. */
+        public Snapshot plus(Snapshot other) {
+            long[] c = new long[COUNTERS];
+            for (int i = 0; i < COUNTERS; i++) {
+                c[i] = counters[i] + other.counters[i];
+            }
+            c[LAST_FIRST_SOLUTION_NANOS] = Math.max(counters[LAST_FIRST_SOLUTION_NANOS],
+                    other.counters[LAST_FIRST_SOLUTION_NANOS]);
+            return new Snapshot(c, addArrays(nodesByDepth, other.nodesByDepth),
+                    addArrays(backtracksByDepth, other.backtracksByDepth));
+        }
+
+        /**
+         * Formats the snapshot as {@code name value} lines, one counter per line
+         * and one line per depth for the histograms.
+         */
+        public String toText() {
+            StringBuilder sb = new StringBuilder();
+            line(sb, "sudoku_solves", getSolves());
+            line(sb, "sudoku_solved", getSolved());
+            line(sb, "sudoku_cancelled", getCancelled());
+            line(sb, "sudoku_nodes", getNodes());
+            line(sb, "sudoku_backtracks", getBacktracks());
+            line(sb, "sudoku_propagation_hits", getPropagationHits());
+            line(sb, "sudoku_solve_nanos", getSolveNanos());
+            line(sb, "sudoku_first_solution_nanos_avg", getAverageFirstSolutionNanos());
+            for (int d = 0; d < nodesByDepth.length; d++) {
+                line(sb, "sudoku_nodes_by_depth{depth=\"" + d + "\"}", nodesByDepth[d]);
+            }
+            for (int d = 0; d < backtracksByDepth.length; d++) {
+                line(sb, "sudoku_backtracks_by_depth{depth=\"" + d + "\"}", backtracksByDepth[d]);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Solves: %d (solved %d, cancelled %d) | Nodes: %d | Backtracks: %d"
+                            + " | Propagation hits: %d | First solution avg: %.1f us | Max depth: %d",
+                    getSolves(), getSolved(), getCancelled(), getNodes(), getBacktracks(),
+                    getPropagationHits(), getAverageFirstSolutionNanos() / 1e3, getMaxDepth());
+        }
+
+        private static void line(StringBuilder sb, String name, long value) {
+            sb.append(name).append(' ').append(value).append('\n');
+        }
+
+        private static long sum(long[] values) {
+            long total = 0;
+            for (long v : values) {
+                total += v;
+            }
+            return total;
+        }
+
+        private static long[] addArrays(long[] a, long[] b) {
+            long[] sum = Arrays.copyOf(a.length >= b.length ? a : b, Math.max(a.length, b.length));
+            long[] shorter = a.length >= b.length ? b : a;
+            for (int i = 0; i < shorter.length; i++) {
+                sum[i] += shorter[i];
+            }
+            return sum;
+        }
+    }
+
+    /** Flight Recorder event for one finished solve. */
+    @Name("sudoku.Solve")
+    @Label("Sudoku Solve")
+    @Category("Sudoku")
+    @Description("One finished solve of a Sudoku engine")
+    static final class SolveEvent extends Event {
+        @Label("Engine")
+        String engine;
+
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Backtracks")
+        long backtracks;
+
+        @Label("Solved")
+        boolean solved;
+
+        @Label("Cancelled")
+        boolean cancelled;
+
+        @Label("Solve Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long solveNanos;
+    }
+}
@@ -0,0 +1,198 @@
+package sudoku;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Hands solver steps from the solving thread to the Swing Event Dispatch
+ * Thread without locks and without ever blocking the solver.
+ * <p>
+ * The solver thread (the single producer) stores every step in a latest-value
+ * array and pushes the cell index into a bounded single-producer,
+ * single-consumer ring. The EDT (the single consumer) drains the ring once per
+ * frame and reports each changed cell once with its latest value, so any
+ * number of steps between two frames costs at most one update per cell. When
+ * the ring is full the step is not queued; the producer raises an overflow
+ * flag instead and the next drain resynchronizes every cell from the
+ * latest-value array.
+ * <p>
+ * The step sequence can also be recorded for replay (at most
+ * {@link #MAX_TRACE} steps). The trace is written by the producer only and
+ * may be read once the solve has returned.
+ */
+final class StepPipeline implements SudokuSolver.StepListener {
+
+    /** Maximum number of recorded steps (16 MB of trace). */
+    static final int MAX_TRACE = 1 << 22;
+
+    /** Default ring capacity, a power of two. */
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** Receives cell updates on the consumer thread. */
+    interface CellSink {
+        void set(int row, int col, int value);
+    }
+
+    private final int size;
+    private final BooleanSupplier cancelled;
+    private final boolean record;
+
+    /** Latest value of every cell, written by the producer. */
+    private final AtomicIntegerArray latest;
+
+    private final int[] ring;
+    private final int mask;
+    /** Next ring slot to write; only the producer advances it. */
+    private final AtomicLong head = new AtomicLong();
+    /** Next ring slot to read; only the consumer advances it. */
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicBoolean overflow = new AtomicBoolean();
+    private final AtomicLong published = new AtomicLong();
+
+    // Producer-only state
+    private long cachedTail;
+    private long stepCount;
+    private int[] trace;
+    private int traceLength;
+    private boolean traceTruncated;
+
+    // Consumer-only scratch for coalescing
+    private final boolean[] dirty;
+    private final int[] dirtyCells;
+
+    /**
+     * @param board     initial board; its values seed the latest-value array
+     * @param cancelled cancellation flag polled by the solver
+     * @param record    if true, keep the step sequence for {@link #getTrace()}
+     */
+    StepPipeline(int[][] board, BooleanSupplier cancelled, boolean record) {
+        this(board, cancelled, record, DEFAULT_CAPACITY);
+    }
+
+    StepPipeline(int[][] board, BooleanSupplier cancelled, boolean record, int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two.");
+        }
+        this.size = board.length;
+        this.cancelled = cancelled;
+        this.record = record;
+        this.latest = new AtomicIntegerArray(size * size);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                latest.set(r * size + c, board[r][c]);
+            }
+        }
+        this.ring = new int[capacity];
+        this.mask = capacity - 1;
+        this.trace = record ? new int[1024] : null;
+        this.dirty = new boolean[size * size];
+        this.dirtyCells = new int[size * size];
+    }
+
+    /** Returns the side length of the board this pipeline was created for. */
+    int size() {
+        return size;
+    }
+
+    @Override
+    public void onStep(int row, int col, int value) {
+        int cell = row * size + col;
+        latest.lazySet(cell, value);
+
+        long h = head.get();
+        if (h - cachedTail == ring.length) {
+            cachedTail = tail.get();
+        }
+        if (h - cachedTail < ring.length) {
+            ring[(int) h & mask] = cell;
+            head.lazySet(h + 1);
+        } else {
+            overflow.set(true);  // consumer resynchronizes from the latest values
+        }
+        published.lazySet(++stepCount);
+
+        if (record) {
+            if (traceLength == trace.length) {
+                if (traceLength == MAX_TRACE) {
+                    traceTruncated = true;
+                    return;
+                }
+                trace = Arrays.copyOf(trace, Math.min(MAX_TRACE, traceLength * 2));
+            }
+            trace[traceLength++] = encode(cell, value);
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled.getAsBoolean();
+    }
+
+    /** Returns the number of steps published so far; safe to call from any thread. */
+    long getStepCount() {
+        return published.get();
+    }
+
+    /**
+     * Reports every cell changed since the last drain, once, with its latest
+     * value. Must only be called from the consumer thread.
+     *
+     * @return the number of cells reported
+     */
+    int drain(CellSink sink) {
+        int cells = size * size;
+        if (overflow.getAndSet(false)) {
+            tail.lazySet(head.get());
+            for (int cell = 0; cell < cells; cell++) {
+                sink.set(cell / size, cell % size, latest.get(cell));
+            }
+            return cells;
+        }
+
+        long h = head.get();
+        int n = 0;
+        for (long t = tail.get(); t < h; t++) {
+            int cell = ring[(int) t & mask];
+            if (!dirty[cell]) {
+                dirty[cell] = true;
+                dirtyCells[n++] = cell;
+            }
+        }
+        tail.lazySet(h);
+
+        for (int i = 0; i < n; i++) {
+            int cell = dirtyCells[i];
+            dirty[cell] = false;
+            sink.set(cell / size, cell % size, latest.get(cell));
+        }
+        return n;
+    }
+
+    /** Returns the recorded steps (see {@link #cellOf} and {@link #valueOf}); only valid after the solve. */
+    int[] getTrace() {
+        return record ? Arrays.copyOf(trace, traceLength) : new int[0];
+    }
+
+    /** Returns true if steps beyond {@link #MAX_TRACE} were not recorded. */
+    boolean isTraceTruncated() {
+        return traceTruncated;
+    }
+
+    /** Packs a step; values fit in 5 bits for every supported size. */
+    private static int encode(int cell, int value) {
+        return cell << 5 | value;
+    }
+
+    /** Returns the cell index (row * size + col) of a recorded step. */
+    static int cellOf(int step) {
+        return step >>> 5;
+    }
+
+    /** Returns the value of a recorded step, 0 for a clear. */
+    static int valueOf(int step) {
+        return step & 31;
+    }
+}
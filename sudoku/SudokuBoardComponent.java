@@ -0,0 +1,336 @@
+package sudoku;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+
+import javax.swing.JComponent;
+
+/**
+ * Editable Sudoku grid painted by a single component.
+ * <p>
+ * The board is a {@code byte[]} of cell values with a candidate mask and a
+ * conflict flag per cell; there are no child components. Changing a cell
+ * repaints only its rectangle, and painting visits only the cells inside the
+ * clip, so an update costs the same on a 25x25 board as on a 9x9 one.
+ * <p>
+ * The component handles its own input: a click selects a cell, the arrow keys
+ * move the selection, a symbol key ({@code 1}-{@code 9}, then {@code A}...,
+ * see {@link PuzzleReader#parseSymbol}) enters a value, and Backspace, Delete,
+ * {@code 0}, {@code .} or space clears it. On boards larger than 9x9 two
+ * digits typed in a row combine ({@code 1}, {@code 2} enters 12). Values set
+ * by the user are reported to the {@link EditListener}; values set through
+ * {@link #setValue(int, int)} are not. Only used on the EDT.
+ */
+final class SudokuBoardComponent extends JComponent {
+
+    /** Receives the cell edits made by the user. */
+    interface EditListener {
+        void cellEdited(int cell, int value);
+    }
+
+    /** Text foreground and background of conflicting cells. */
+    private static final Color CONFLICT_FG = new Color(200, 0, 0);
+    private static final Color CONFLICT_BG = new Color(255, 215, 215);
+
+    private static final Color SHADED_BG = new Color(235, 235, 235);
+    private static final Color SELECTED_BG = new Color(200, 220, 255);
+    private static final Color CELL_LINE = new Color(190, 190, 190);
+    private static final BasicStroke CELL_STROKE = new BasicStroke(1f);
+    private static final BasicStroke BOX_STROKE = new BasicStroke(2f);
+
+    private final int size;
+    private final int boxSize;
+    private final byte[] values;
+    private final int[] candidates;
+    private final boolean[] conflicts;
+    private boolean showCandidates;
+    private int selected = 0;
+
+    /** Cell whose value the last key entered, so that a second digit can extend it. */
+    private int typedCell = -1;
+
+    private EditListener editListener;
+
+    // Layout of the last paint or event, recomputed when the component is resized
+    private int layoutWidth = -1;
+    private int layoutHeight = -1;
+    private int cellSize;
+    private int originX;
+    private int originY;
+    private Font valueFont;
+    private Font candidateFont;
+
+    /**
+     * Creates an empty board with every digit as candidate of every cell.
+     *
+     * @param size board side length (4, 9, 16 or 25)
+     */
+    SudokuBoardComponent(int size) {
+        this.size = size;
+        this.boxSize = BoardGeometry.forSize(size).boxSize;
+        this.values = new byte[size * size];
+        this.candidates = new int[size * size];
+        this.conflicts = new boolean[size * size];
+        Arrays.fill(candidates, (1 << size) - 1);
+
+        setOpaque(true);
+        setFocusable(true);
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(40 * size, 40 * size));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                int cell = cellAt(e.getX(), e.getY());
+                if (cell >= 0) {
+                    select(cell);
+                }
+            }
+        });
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                onKeyPressed(e);
+            }
+
+            @Override
+            public void keyTyped(KeyEvent e) {
+                onKeyTyped(e.getKeyChar());
+            }
+        });
+    }
+
+    void setEditListener(EditListener listener) {
+        this.editListener = listener;
+    }
+
+    /** Returns the value of a cell, 0 if empty. */
+    int getValue(int cell) {
+        return values[cell];
+    }
+
+    /** Sets the value of a cell, 0 to clear, without notifying the edit listener. */
+    void setValue(int cell, int value) {
+        if (values[cell] != value) {
+            values[cell] = (byte) value;
+            repaintCell(cell);
+        }
+    }
+
+    void setConflict(int cell, boolean conflict) {
+        if (conflicts[cell] != conflict) {
+            conflicts[cell] = conflict;
+            repaintCell(cell);
+        }
+    }
+
+    /** Sets the candidate mask of a cell (bit d-1 for digit d). */
+    void setCandidates(int cell, int mask) {
+        if (candidates[cell] != mask) {
+            candidates[cell] = mask;
+            if (showCandidates && values[cell] == 0) {
+                repaintCell(cell);
+            }
+        }
+    }
+
+    /** Shows or hides the candidates of empty cells as small pencil marks. */
+    void setShowCandidates(boolean show) {
+        if (showCandidates != show) {
+            showCandidates = show;
+            repaint();
+        }
+    }
+
+    private void select(int cell) {
+        if (selected != cell) {
+            int old = selected;
+            selected = cell;
+            typedCell = -1;
+            if (old >= 0) {
+                repaintCell(old);
+            }
+            repaintCell(cell);
+        }
+    }
+
+    private void onKeyPressed(KeyEvent e) {
+        int row = selected / size;
+        int col = selected % size;
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_UP:
+                row = (row + size - 1) % size;
+                break;
+            case KeyEvent.VK_DOWN:
+                row = (row + 1) % size;
+                break;
+            case KeyEvent.VK_LEFT:
+                col = (col + size - 1) % size;
+                break;
+            case KeyEvent.VK_RIGHT:
+                col = (col + 1) % size;
+                break;
+            case KeyEvent.VK_BACK_SPACE:
+            case KeyEvent.VK_DELETE:
+                edit(selected, 0);
+                e.consume();
+                return;
+            default:
+                return;
+        }
+        e.consume();
+        select(row * size + col);
+    }
+
+    private void onKeyTyped(char ch) {
+        if (ch == KeyEvent.CHAR_UNDEFINED || Character.isISOControl(ch)) {
+            return;
+        }
+        int value = ch == ' ' ? 0 : PuzzleReader.parseSymbol(ch);
+        boolean digit = ch >= '0' && ch <= '9';
+        if (digit && typedCell == selected && values[selected] * 10 + (ch - '0') <= size) {
+            value = values[selected] * 10 + (ch - '0');
+        }
+        if (value < 0 || value > size) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        edit(selected, value);
+        typedCell = digit && value > 0 && value < 10 && size > 9 ? selected : -1;
+    }
+
+    private void edit(int cell, int value) {
+        typedCell = -1;
+        if (values[cell] == value) {
+            return;
+        }
+        setValue(cell, value);
+        if (editListener != null) {
+            editListener.cellEdited(cell, value);
+        }
+    }
+
+    /** Returns the cell under a point, or -1 outside the grid. */
+    private int cellAt(int x, int y) {
+        updateLayout();
+        int col = Math.floorDiv(x - originX, cellSize);
+        int row = Math.floorDiv(y - originY, cellSize);
+        return row >= 0 && row < size && col >= 0 && col < size ? row * size + col : -1;
+    }
+
+    private void repaintCell(int cell) {
+        updateLayout();
+        repaint(originX + (cell % size) * cellSize, originY + (cell / size) * cellSize, cellSize + 1, cellSize + 1);
+    }
+
+    /** Centers the largest square grid of whole cells that fits the component. */
+    private void updateLayout() {
+        if (layoutWidth == getWidth() && layoutHeight == getHeight()) {
+            return;
+        }
+        layoutWidth = getWidth();
+        layoutHeight = getHeight();
+        cellSize = Math.max(1, (Math.min(layoutWidth, layoutHeight) - 3) / size);
+        originX = (layoutWidth - cellSize * size) / 2;
+        originY = (layoutHeight - cellSize * size) / 2;
+        valueFont = new Font("Arial", Font.BOLD, Math.max(8, cellSize * 11 / 20));
+        candidateFont = new Font("Arial", Font.PLAIN, Math.max(6, cellSize * 7 / (10 * boxSize)));
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        updateLayout();
+        Graphics2D g = (Graphics2D) graphics;
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        // Only the cells intersecting the clip
+        int firstCol = Math.max(0, Math.floorDiv(clip.x - originX, cellSize));
+        int lastCol = Math.min(size - 1, Math.floorDiv(clip.x + clip.width - originX, cellSize));
+        int firstRow = Math.max(0, Math.floorDiv(clip.y - originY, cellSize));
+        int lastRow = Math.min(size - 1, Math.floorDiv(clip.y + clip.height - originY, cellSize));
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                paintCell(g, r * size + c, originX + c * cellSize, originY + r * cellSize);
+            }
+        }
+        paintLines(g, firstRow, lastRow, firstCol, lastCol);
+    }
+
+    private void paintCell(Graphics2D g, int cell, int x, int y) {
+        int r = cell / size;
+        int c = cell % size;
+        // Light background for alternating boxes for better readability
+        Color bg = conflicts[cell] ? CONFLICT_BG : cell == selected ? SELECTED_BG
+                : (r / boxSize + c / boxSize) % 2 == 0 ? SHADED_BG : getBackground();
+        g.setColor(bg);
+        g.fillRect(x, y, cellSize, cellSize);
+
+        int value = values[cell];
+        if (value != 0) {
+            g.setFont(valueFont);
+            g.setColor(conflicts[cell] ? CONFLICT_FG : Color.BLACK);
+            drawCentered(g, PuzzleReader.toSymbol(value), x, y, cellSize);
+        } else if (showCandidates && candidates[cell] != 0) {
+            g.setFont(candidateFont);
+            g.setColor(Color.GRAY);
+            int mark = cellSize / boxSize;
+            for (int mask = candidates[cell]; mask != 0; mask &= mask - 1) {
+                int d = Integer.numberOfTrailingZeros(mask);
+                drawCentered(g, PuzzleReader.toSymbol(d + 1), x + (d % boxSize) * mark, y + (d / boxSize) * mark, mark);
+            }
+        }
+    }
+
+    private static void drawCentered(Graphics2D g, char symbol, int x, int y, int extent) {
+        String text = String.valueOf(symbol);
+        FontMetrics fm = g.getFontMetrics();
+        g.drawString(text, x + (extent - fm.stringWidth(text)) / 2,
+                y + (extent + fm.getAscent() - fm.getDescent()) / 2);
+    }
+
+    /** Draws the cell lines, and thicker box lines, bounding the given cells. */
+    private void paintLines(Graphics2D g, int firstRow, int lastRow, int firstCol, int lastCol) {
+        if (firstRow > lastRow || firstCol > lastCol) {
+            return;
+        }
+        int left = originX + firstCol * cellSize;
+        int right = originX + (lastCol + 1) * cellSize;
+        int top = originY + firstRow * cellSize;
+        int bottom = originY + (lastRow + 1) * cellSize;
+        for (int i = firstCol; i <= lastCol + 1; i++) {
+            setLine(g, i);
+            int x = originX + i * cellSize;
+            g.drawLine(x, top, x, bottom);
+        }
+        for (int i = firstRow; i <= lastRow + 1; i++) {
+            setLine(g, i);
+            int y = originY + i * cellSize;
+            g.drawLine(left, y, right, y);
+        }
+    }
+
+    private void setLine(Graphics2D g, int index) {
+        boolean box = index % boxSize == 0;
+        g.setColor(box ? Color.DARK_GRAY : CELL_LINE);
+        g.setStroke(box ? BOX_STROKE : CELL_STROKE);
+    }
+}
@@ -0,0 +1,79 @@
+package sudoku;
+
+/**
+ * A rule of a Sudoku variant, enforced by {@link VariantSolver}.
+ * <p>
+ * Most rules only say that certain cells hold different digits: the rows,
+ * columns and boxes, the diagonals of Sudoku X, the extra windows of Windoku,
+ * or the knight-move pairs of anti-knight Sudoku. Such a rule only returns
+ * its {@link #houses(int)}; the solver compiles all houses into one peer list
+ * per cell before the search, so they cost no virtual call per node.
+ * <p>
+ * Rules with further logic, such as the sums of killer cages, also return
+ * {@link #watchedCells(int)} and keep their own incremental state: the solver
+ * calls {@link #onAssign} when a watched cell gets a digit and {@link #onUndo}
+ * when that placement is taken back, in reverse order. Candidate removals made
+ * through {@link Domains} are undone by the solver itself. Implementations
+ * must not allocate in these callbacks; an instance belongs to one solver.
+ *
+ * @see Constraints
+ */
+public interface SudokuConstraint {
+
+    /** Candidate masks of the board being solved, as seen by a constraint. */
+    interface Domains {
+
+        /** Returns the candidates of a cell (bit d-1 for digit d; a single bit once assigned). */
+        int candidates(int cell);
+
+        /** Returns true if the cell holds a digit. */
+        boolean isAssigned(int cell);
+
+        /**
+         * Keeps only the candidates in {@code mask}. The change is recorded and
+         * undone by the solver on backtracking.
+         *
+         * @return false if the cell has no candidate left
+         */
+        boolean restrict(int cell, int mask);
+    }
+
+    /**
+     * Returns groups of cells (row-major indices) whose digits must all differ
+     * on a board of the given side length; a group may have just two cells.
+     *
+     * @throws IllegalArgumentException if the rule does not fit the board size
+     */
+    int[][] houses(int size);
+
+    /** Returns the cells whose placements must be reported; none for pure house rules. */
+    default int[] watchedCells(int size) {
+        return new int[0];
+    }
+
+    /** Resets the incremental state before a solve, with every cell empty. */
+    default void reset(int size) {
+    }
+
+    /**
+     * Called once after the givens are placed, before the search.
+     *
+     * @return false if the rule can no longer be satisfied
+     */
+    default boolean start(Domains domains) {
+        return true;
+    }
+
+    /**
+     * Called when a watched cell gets a digit.
+     *
+     * @return false if the rule can no longer be satisfied
+     */
+    default boolean onAssign(int cell, int digit, Domains domains) {
+        return true;
+    }
+
+    /** Called when the placement reported by {@link #onAssign} is taken back. */
+    default void onUndo(int cell, int digit) {
+    }
+}
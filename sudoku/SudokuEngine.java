@@ -0,0 +1,31 @@
+package sudoku;
+
+/**
+ * Common interface of the Sudoku solving strategies.
+ * <p>
+ * An engine solves an n²×n² board (9x9 by default; 4x4, 16x16 and 25x25 are
+ * also supported) in-place and keeps the statistics of its last solve.
+ * Engines hold mutable working state, so an instance must not
+ * be shared between threads; create one per thread via {@link SudokuEngines}.
+ */
+public interface SudokuEngine {
+
+    /** Returns the registry name of this engine (e.g. {@code "bbcp"}). */
+    String getName();
+
+    /**
+     * Solves the given Sudoku board in-place.
+     *
+     * @param board     n²×n² board, 0 for empty cells, 1..size for givens.
+     * @param listener  optional step listener (can be null) for visualization and cancellation.
+     * @return true if a solution was found, false otherwise.
+     * @throws IllegalArgumentException if the initial board is invalid.
+     */
+    boolean solve(int[][] board, SudokuSolver.StepListener listener);
+
+    /** Returns the number of backtracks performed in the last solve. */
+    long getBacktrackCount();
+
+    /** Returns the number of nodes visited during the last solve. */
+    long getNodesVisitedCount();
+}
@@ -0,0 +1,59 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the available {@link SudokuEngine} implementations, looked up by name.
+ * <p>
+ * Every call to {@link #create(String)} returns a fresh engine, so callers that
+ * solve on several threads simply create one engine per thread.
+ */
+public final class SudokuEngines {
+
+    /** Name of the default engine (classic BBCP backtracking). */
+    public static final String DEFAULT = "bbcp";
+
+    private static final Map<String, Supplier<SudokuEngine>> FACTORIES = new LinkedHashMap<>();
+
+    static {
+        FACTORIES.put("bbcp", () -> new SudokuSolver(SudokuSolver.Mode.BBCP));
+        FACTORIES.put("mrv", () -> new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV));
+        FACTORIES.put("dlx", DancingLinksSolver::new);
+        FACTORIES.put("propagate", PropagatingSolver::new);
+        FACTORIES.put("parallel", ParallelSolver::new);
+        FACTORIES.put("iterative", IterativeSolver::new);
+        FACTORIES.put("learn", LearningSolver::new);
+        FACTORIES.put("variant", VariantSolver::new);
+        FACTORIES.put("portfolio", SudokuPortfolio::new);
+        FACTORIES.put("lanes", LaneSolver::new);
+        FACTORIES.put("grade", DifficultyGrader::new);
+    }
+
+    private SudokuEngines() {
+    }
+
+    /** Returns the names of all registered engines, in registration order. */
+    public static List<String> names() {
+        return Collections.unmodifiableList(new ArrayList<>(FACTORIES.keySet()));
+    }
+
+    /**
+     * Creates a new engine instance.
+     *
+     * @param name engine name as returned by {@link #names()}
+     * @return a new, independent engine
+     * @throws IllegalArgumentException if no engine with this name exists
+     */
+    public static SudokuEngine create(String name) {
+        Supplier<SudokuEngine> factory = FACTORIES.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown engine \"" + name + "\". Available: " + FACTORIES.keySet());
+        }
+        return factory.get();
+    }
+}
@@ -3,35 +3,67 @@ package sudoku;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Font;
-import java.awt.GridLayout;
 import java.io.File;
-import java.util.Scanner;
+import java.io.FileReader;
+import java.io.IOException;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.JTextField;
+import javax.swing.JSlider;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 
 /**
  * Graphical user interface for the Sudoku BBCP solver.
  * <p>
- * This class builds a 9x9 editable grid using Swing, provides controls
- * for solving, clearing, and loading puzzles from CSV/TXT files, and
- * visualizes the solving process using a {@link SudokuSolver.StepListener}.
+ * This class shows an editable grid (9x9 by default, 4x4 to 25x25 selectable)
+ * painted by a single {@link SudokuBoardComponent}, provides controls for
+ * solving, clearing, and loading puzzles from CSV/TXT files, and visualizes
+ * the solving process using a {@link SudokuSolver.StepListener}.
+ * <p>
+ * Steps are published through a {@link StepPipeline} and painted by a Swing
+ * timer at a fixed frame rate, so the solver runs at full speed while steps
+ * are shown. The recorded steps of the last solve can be replayed afterwards
+ * at an adjustable speed.
+ * <p>
+ * Edits are mirrored into a {@link LiveBoard}, which updates unit masks and
+ * candidates in constant time per keystroke: conflicting entries are marked
+ * at once, pencil marks (remaining candidates of empty cells) can be shown,
+ * and a background {@link LiveBoard.Checker} reports whether the board is
+ * still solvable and unique, cancelling any check made stale by a newer edit.
  */
 public class SudokuGUI extends JFrame {
 
-    /** Sudoku board size (9x9), taken from {@link SudokuSolver}. */
-    private static final int SIZE = SudokuSolver.SIZE;
+    /** Interval between two painted frames (about 30 frames per second). */
+    private static final int FRAME_MS = 33;
+
+    /** Selectable board sizes, as side lengths. */
+    private static final int[] SIZES = {4, 9, 16, 25};
+
+    /** Current board side length; the grid is rebuilt when it changes. */
+    private volatile int size = SudokuSolver.SIZE;
+
+    /** The Sudoku grid, {@code size x size}. */
+    private SudokuBoardComponent grid;
+
+    /** Model of the grid, updated on every edit. Only used on the EDT. */
+    private LiveBoard live;
 
-    /** 9x9 text fields representing the Sudoku grid. */
-    private final JTextField[][] cells = new JTextField[SIZE][SIZE];
+    /** Checks solvability and uniqueness of the edited board in the background. */
+    private final LiveBoard.Checker checker = new LiveBoard.Checker();
+
+    /** Incremented for every check, so results of superseded checks are dropped. Only used on the EDT. */
+    private int checkGeneration;
+
+    /** Label showing the result of the background check. */
+    private final JLabel checkLabel = new JLabel(" ");
 
     /** Label at the bottom used to display status and performance metrics. */
     private final JLabel infoLabel = new JLabel(" ");
@@ -39,8 +71,18 @@ public class SudokuGUI extends JFrame {
     /** Checkbox to enable or disable step-by-step visualization. */
     private final JCheckBox showStepsCheckBox = new JCheckBox("Show steps", true);
 
-    /** Core BBCP solver instance. */
-    private final SudokuSolver solver = new SudokuSolver();
+    /** Checkbox to show the remaining candidates in empty cells. */
+    private final JCheckBox pencilMarksCheckBox = new JCheckBox("Pencil marks", false);
+
+    /** Drop-down to choose the board size. */
+    private final JComboBox<String> sizeBox = new JComboBox<>(new String[]{"4x4", "9x9", "16x16", "25x25"});
+
+    /** Drop-down to choose the solving engine by name (see {@link SudokuEngines}). */
+    private final JComboBox<String> engineBox =
+            new JComboBox<>(SudokuEngines.names().toArray(new String[0]));
+
+    /** Drop-down to choose the time limit of a solve. */
+    private final JComboBox<String> limitBox = new JComboBox<>(new String[]{"No limit", "1 s", "10 s", "60 s"});
 
     /** Flag indicating whether a solving process is currently running. */
     private volatile boolean solving = false;
@@ -48,12 +90,37 @@ public class SudokuGUI extends JFrame {
     /** Flag indicating that the user has requested cancellation. */
     private volatile boolean cancelRequested = false;
 
+    /** Steps of the running solve, painted by {@link #frameTimer}; null when not visualizing. */
+    private volatile StepPipeline pipeline;
+
+    /** Repaints the cells changed by the running solve once per frame. */
+    private final Timer frameTimer = new Timer(FRAME_MS, e -> paintSteps());
+
+    /** Button starting or stopping the replay of the last solve. */
+    private final JButton replayBtn = new JButton("Replay");
+
+    /** Replay speed on a logarithmic scale: 10^(value/10) steps per second. */
+    private final JSlider speedSlider = new JSlider(0, 60, 20);
+
+    /** Plays back {@link #replayTrace} while running. */
+    private final Timer replayTimer = new Timer(FRAME_MS, e -> replayFrame());
+
+    // Replay state of the last visualized solve, only used on the EDT
+    private int[][] replayStart;
+    private int[] replayTrace = new int[0];
+    private boolean replayTruncated;
+    private int replayPos;
+    private double replayBudget;
+    private int[] replayValues = new int[0];
+    private boolean[] replayDirty = new boolean[0];
+    private int[] replayDirtyCells = new int[0];
+
     /**
      * Constructs the Sudoku GUI window, initializes layout and components.
      */
     public SudokuGUI() {
         setTitle("Sudoku Solver (BBCP)");
-        setSize(600, 700);
+        setSize(windowWidth(size), windowWidth(size) + 130);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
@@ -61,100 +128,245 @@ public class SudokuGUI extends JFrame {
 
         // Initialize board and control panel
         initBoardUI();
-
-        // Configure info label at the bottom
-        infoLabel.setOpaque(true);
-        infoLabel.setBackground(new Color(250, 250, 250));
-        infoLabel.setForeground(new Color(80, 80, 80));
-        infoLabel.setFont(new Font("Microsoft YaHei", Font.PLAIN, 12));
+        JPanel south = new JPanel(new BorderLayout());
+        south.add(infoLabel, BorderLayout.CENTER);
+        south.add(checkLabel, BorderLayout.EAST);
+        add(south, BorderLayout.SOUTH);
+
+        // Configure info and check labels at the bottom
+        for (JLabel label : new JLabel[]{infoLabel, checkLabel}) {
+            label.setOpaque(true);
+            label.setBackground(new Color(250, 250, 250));
+            label.setForeground(new Color(80, 80, 80));
+            label.setFont(new Font("Microsoft YaHei", Font.PLAIN, 12));
+        }
 
         initControlPanel();
     }
 
     /**
-     * Initializes the 9x9 board UI, creating text fields and styling the grid.
+     * Initializes the board UI for the current size, creating the grid
+     * component and starting an empty {@link LiveBoard}.
      */
     private void initBoardUI() {
-        JPanel gridPanel = new JPanel(new GridLayout(SIZE, SIZE));
-        Font f = new Font("Arial", Font.BOLD, 20);
-
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
-                JTextField tf = new JTextField();
-                tf.setHorizontalAlignment(JTextField.CENTER);
-                tf.setFont(f);
-
-                // Light background for alternating 3x3 subgrids for better readability
-                if ((r / 3 + c / 3) % 2 == 0) {
-                    tf.setBackground(new Color(235, 235, 235));
-                }
+        grid = new SudokuBoardComponent(size);
+        live = new LiveBoard(size);
+        grid.setShowCandidates(pencilMarksCheckBox.isSelected());
+        grid.setEditListener(this::onEdit);
+        add(grid, BorderLayout.CENTER);
+    }
 
-                cells[r][c] = tf;
-                gridPanel.add(tf);
+    /**
+     * Applies a user edit of one cell to the live model and restarts the
+     * background check. Runs on the EDT.
+     */
+    private void onEdit(int cell, int value) {
+        live.set(cell, value);
+        refreshAround(cell);
+        scheduleCheck();
+    }
+
+    /** Updates conflict marking and pencil marks of a cell and its peers. */
+    private void refreshAround(int cell) {
+        refreshCell(cell);
+        for (int peer : live.peers(cell)) {
+            refreshCell(peer);
+        }
+    }
+
+    private void refreshCell(int cell) {
+        grid.setConflict(cell, live.isConflict(cell));
+        grid.setCandidates(cell, live.candidates(cell));
+    }
+
+    /**
+     * Starts a background solvability/uniqueness check of the current grid,
+     * superseding any running one. Skipped while a solve is running.
+     */
+    private void scheduleCheck() {
+        int generation = ++checkGeneration;
+        if (solving) {
+            return;
+        }
+        if (live.getFilledCount() == 0 && !live.hasInvalidEntries()) {
+            checker.cancel();
+            checkLabel.setText(" ");
+            return;
+        }
+        if (!live.isConsistent()) {
+            checker.cancel();
+            checkLabel.setText("Conflicts ");
+            return;
+        }
+        checkLabel.setText("Checking... ");
+        checker.check(live.toBoard(), result -> SwingUtilities.invokeLater(() -> {
+            if (generation != checkGeneration) {
+                return;
             }
+            String verdict = result.verdict == LiveBoard.Verdict.UNIQUE ? "Unique solution"
+                    : result.verdict == LiveBoard.Verdict.MULTIPLE ? "Multiple solutions" : "No solution";
+            checkLabel.setText(String.format("%s (%.1f ms, %d nodes) ", verdict, result.nanos / 1e6, result.nodes));
+        }));
+    }
+
+    /**
+     * Switches the grid to a new side length, cancelling any running solve.
+     * Must be called on the Event Dispatch Thread.
+     *
+     * @param newSize board side length (4, 9, 16 or 25)
+     */
+    private void setBoardSize(int newSize) {
+        for (int i = 0; i < SIZES.length; i++) {
+            if (SIZES[i] == newSize && sizeBox.getSelectedIndex() != i) {
+                sizeBox.setSelectedIndex(i);  // fires the listener, which calls back here
+                return;
+            }
+        }
+        if (newSize == size) {
+            return;
         }
+        cancelRequested = true;
+        solving = false;
+        stopReplay();
+        checker.cancel();
+        checkLabel.setText(" ");
+
+        remove(grid);
+        size = newSize;
+        initBoardUI();
+        setSize(windowWidth(size), windowWidth(size) + 130);
+        revalidate();
+        repaint();
+        setInfoText(" ");
+    }
 
-        add(gridPanel, BorderLayout.CENTER);
-        add(infoLabel, BorderLayout.SOUTH);
+    /** Returns a window width that keeps cells readable for the given board size. */
+    private static int windowWidth(int size) {
+        return size <= 9 ? 600 : size <= 16 ? 800 : 1000;
     }
 
     /**
-     * Initializes the control panel with Solve, Load, Clear buttons
-     * and the "Show steps" checkbox.
+     * Initializes the control panel with Solve, Grade, Load, Clear buttons,
+     * the engine and time limit selectors, the "Show steps" checkbox and the
+     * replay controls.
      */
     private void initControlPanel() {
         JPanel btnPanel = new JPanel();
         JButton solveBtn = new JButton("Solve");
         JButton loadBtn = new JButton("Load CSV/TXT");
         JButton clearBtn = new JButton("Clear");
+        JButton gradeBtn = new JButton("Grade");
 
         btnPanel.add(solveBtn);
+        btnPanel.add(gradeBtn);
         btnPanel.add(loadBtn);
         btnPanel.add(clearBtn);
+        btnPanel.add(sizeBox);
+        btnPanel.add(engineBox);
+        btnPanel.add(limitBox);
         btnPanel.add(showStepsCheckBox);
 
+        JPanel replayPanel = new JPanel();
+        replayPanel.add(replayBtn);
+        replayPanel.add(new JLabel("Replay speed"));
+        replayPanel.add(speedSlider);
+        replayPanel.add(pencilMarksCheckBox);
+        replayBtn.setEnabled(false);
+        speedSlider.setToolTipText("1 to 1,000,000 steps per second");
+
         // Run solver in a background thread to keep UI responsive
-        solveBtn.addActionListener(e -> new Thread(this::solvePuzzle).start());
+        solveBtn.addActionListener(e -> {
+            if (!solving) {
+                stopReplay();
+                int[][] board = readBoard();
+                if (board == null) {
+                    // Invalid input already reported to user
+                    return;
+                }
+                solving = true;
+                cancelRequested = false;
+                checker.cancel();
+                new Thread(() -> solvePuzzle(board)).start();
+            }
+        });
+        gradeBtn.addActionListener(e -> {
+            if (!solving) {
+                stopReplay();
+                int[][] board = readBoard();
+                if (board == null) {
+                    return;
+                }
+                solving = true;
+                cancelRequested = false;
+                checker.cancel();
+                new Thread(() -> gradePuzzle(board)).start();
+            }
+        });
         loadBtn.addActionListener(e -> loadFromFile());
         clearBtn.addActionListener(e -> clearBoard());
+        pencilMarksCheckBox.addActionListener(e -> grid.setShowCandidates(pencilMarksCheckBox.isSelected()));
+        replayBtn.addActionListener(e -> {
+            if (replayTimer.isRunning()) {
+                stopReplay();
+            } else {
+                startReplay();
+            }
+        });
+        sizeBox.setSelectedIndex(1);
+        sizeBox.addActionListener(e -> setBoardSize(SIZES[sizeBox.getSelectedIndex()]));
 
-        add(btnPanel, BorderLayout.NORTH);
+        JPanel north = new JPanel(new BorderLayout());
+        north.add(btnPanel, BorderLayout.CENTER);
+        north.add(replayPanel, BorderLayout.SOUTH);
+        add(north, BorderLayout.NORTH);
     }
 
     /**
-     * Main solving flow:
+     * Main solving flow, run on a background thread after the Solve button
+     * has taken a snapshot of the board and set {@link #solving}:
      * <ol>
-     *     <li>Read the board from the UI</li>
-     *     <li>Call the solver with a {@link SudokuSolver.StepListener}</li>
+     *     <li>Call the selected engine with a {@link SudokuSolver.StepListener}</li>
      *     <li>Display the result and performance metrics</li>
      * </ol>
+     *
+     * @param board snapshot of the grid, solved in place
      */
-    private void solvePuzzle() {
-        if (solving) {
-            return;
-        }
-        solving = true;
-        cancelRequested = false;
-
-        int[][] board = readBoard();
-        if (board == null) {
-            // Invalid input already reported to user
-            solving = false;
-            return;
-        }
-
+    private void solvePuzzle(int[][] board) {
         setInfoText("Solving...");
 
+        // A fresh engine per solve, engines are not shared between threads
+        SudokuEngine solver = SudokuEngines.create((String) engineBox.getSelectedItem());
+
         long start = System.currentTimeMillis();
         boolean solved;
 
         // Listener for visualization and cancellation
-        SudokuSolver.StepListener listener = createStepListener();
+        int[][] puzzle = copyBoard(board);
+        StepPipeline steps = showStepsCheckBox.isSelected()
+                ? new StepPipeline(board, () -> cancelRequested || !solving, true)
+                : null;
+        SudokuSolver.StepListener listener = steps != null ? steps : createStepListener();
+        if (steps != null) {
+            pipeline = steps;
+            SwingUtilities.invokeLater(frameTimer::start);
+        }
 
+        // The portfolio enforces the limit itself, its racers poll from several threads
+        long limit = limitMillis();
+        boolean exceeded;
         try {
-            solved = solver.solve(board, listener);
+            if (solver instanceof SudokuPortfolio) {
+                SolveResult result = ((SudokuPortfolio) solver).solve(board, listener, SudokuPortfolio.UNLIMITED, limit);
+                solved = result.copySolutionTo(board);
+                exceeded = result.getStatus() == SolveResult.Status.BUDGET_EXCEEDED;
+            } else {
+                SolveBudget budget = new SolveBudget(SolveBudget.UNLIMITED, SolveBudget.deadlineIn(limit), listener);
+                solved = solver.solve(board, budget);
+                exceeded = !solved && budget.isExceeded();
+            }
         } catch (IllegalArgumentException ex) {
             // Initial puzzle is invalid (e.g., conflicting givens)
+            finishSteps(steps, null);
             showError(ex.getMessage());
             setInfoText("Initial puzzle is invalid.");
             solving = false;
@@ -162,6 +374,7 @@ public class SudokuGUI extends JFrame {
         }
 
         long end = System.currentTimeMillis();
+        finishSteps(steps, puzzle);
 
         if (cancelRequested) {
             setInfoText("Solving canceled.");
@@ -169,11 +382,16 @@ public class SudokuGUI extends JFrame {
             return;
         }
 
+        String name = solver instanceof SudokuPortfolio
+                ? "portfolio: " + ((SudokuPortfolio) solver).getWinner() : solver.getName();
         if (solved) {
             fillBoard(board);
             setInfoText("Solved in " + (end - start) +
-                    " ms | Visited nodes: " + solver.getNodesVisitedCount() +
+                    " ms (" + name + ") | Visited nodes: " + solver.getNodesVisitedCount() +
                     " | Backtracks: " + solver.getBacktrackCount());
+        } else if (exceeded) {
+            setInfoText("Time limit exceeded after " + (end - start) + " ms (" + solver.getName()
+                    + ") | Visited nodes: " + solver.getNodesVisitedCount());
         } else {
             showError("Puzzle has no solution.");
             setInfoText("No solution found.");
@@ -182,43 +400,71 @@ public class SudokuGUI extends JFrame {
         solving = false;
     }
 
+    /** Returns the selected time limit in milliseconds, or {@link SolveBudget#UNLIMITED}. */
+    private long limitMillis() {
+        String limit = (String) limitBox.getSelectedItem();
+        return limit == null || !limit.endsWith(" s") ? SolveBudget.UNLIMITED
+                : Long.parseLong(limit.substring(0, limit.length() - 2)) * 1000;
+    }
+
+    /**
+     * Rates the puzzle by the human techniques it requires (see
+     * {@link DifficultyGrader}) on a background thread and shows the hardest
+     * technique and score with the usual metrics. The grid is left unchanged.
+     *
+     * @param board snapshot of the grid
+     */
+    private void gradePuzzle(int[][] board) {
+        setInfoText("Grading...");
+        DifficultyGrader grader = new DifficultyGrader();
+        long start = System.currentTimeMillis();
+        try {
+            DifficultyGrader.Grade grade = grader.grade(board, createStepListener());
+            long end = System.currentTimeMillis();
+            if (cancelRequested) {
+                setInfoText("Grading canceled.");
+            } else if (!grade.isSolved()) {
+                setInfoText("No solution found.");
+            } else {
+                setInfoText("Graded in " + (end - start) + " ms (" + grader.getName() + ") | Hardest: "
+                        + (grade.getHardest() == null ? "none" : grade.getHardest().getDisplayName())
+                        + " | Score: " + grade.getScore()
+                        + " | Visited nodes: " + grade.getNodes() + " | Backtracks: " + grade.getBacktracks());
+            }
+        } catch (IllegalArgumentException ex) {
+            showError(ex.getMessage());
+            setInfoText("Initial puzzle is invalid.");
+        }
+        solving = false;
+    }
+
     /**
-     * Reads the Sudoku board from the UI text fields.
+     * Takes the board from the live model, which already holds the value of
+     * every cell. Must be called on the Event Dispatch Thread.
+     *
+     * Values may be numbers or letters ({@code A} = 10, see {@link PuzzleReader#parseToken}).
      *
-     * @return a 9x9 int array representing the board (0 = empty),
+     * @return a {@code size x size} int array representing the board (0 = empty),
      *         or {@code null} if the input is invalid.
      */
     private int[][] readBoard() {
-        int[][] board = new int[SIZE][SIZE];
-        try {
-            for (int r = 0; r < SIZE; r++) {
-                for (int c = 0; c < SIZE; c++) {
-                    String text = cells[r][c].getText().trim();
-                    if (text.isEmpty()) {
-                        board[r][c] = 0;
-                    } else {
-                        int val = Integer.parseInt(text);
-                        if (val < 1 || val > 9) {
-                            showError("Invalid number at (" + (r + 1) + "," + (c + 1) + "). Only 1-9 allowed.");
-                            return null;
-                        }
-                        board[r][c] = val;
-                    }
+        int n = size;
+        if (live.hasInvalidEntries()) {
+            for (int cell = 0; cell < n * n; cell++) {
+                if (live.get(cell) == LiveBoard.INVALID) {
+                    showError("Invalid number at (" + (cell / n + 1) + "," + (cell % n + 1)
+                            + "). Only 1-" + n + " allowed.");
+                    break;
                 }
             }
-        } catch (NumberFormatException ex) {
-            showError("Invalid input. Please enter digits 1-9 only.");
             return null;
         }
-        return board;
+        return live.toBoard();
     }
 
     /**
-     * Creates a {@link SudokuSolver.StepListener} that:
-     * <ul>
-     *     <li>Updates the UI grid during solving when "Show steps" is enabled</li>
-     *     <li>Checks for cancellation requests</li>
-     * </ul>
+     * Creates a {@link SudokuSolver.StepListener} used when "Show steps" is
+     * disabled: it ignores steps and only checks for cancellation requests.
      *
      * @return a {@link SudokuSolver.StepListener} instance used by the solver
      */
@@ -226,27 +472,6 @@ public class SudokuGUI extends JFrame {
         return new SudokuSolver.StepListener() {
             @Override
             public void onStep(int row, int col, int value) {
-                // Skip visualization when "Show steps" is unchecked
-                if (!showStepsCheckBox.isSelected()) {
-                    return;
-                }
-                if (cancelRequested || !solving) {
-                    return;
-                }
-
-                // Update UI on the Event Dispatch Thread
-                SwingUtilities.invokeLater(() -> {
-                    if (cancelRequested || !solving) {
-                        return;
-                    }
-                    cells[row][col].setText(value == 0 ? "" : String.valueOf(value));
-                });
-
-                // Small delay for smoother step-by-step animation
-                try {
-                    Thread.sleep(20);
-                } catch (InterruptedException ignored) {
-                }
             }
 
             @Override
@@ -257,17 +482,146 @@ public class SudokuGUI extends JFrame {
     }
 
     /**
-     * Fills the entire grid with values from the given board.
+     * Paints the cells changed since the last frame. Runs on the EDT, driven
+     * by {@link #frameTimer}.
+     */
+    private void paintSteps() {
+        StepPipeline p = pipeline;
+        if (p == null || p.size() != size || cancelRequested) {
+            return;
+        }
+        p.drain(this::setCell);
+        infoLabel.setText("Solving... " + p.getStepCount() + " steps");
+    }
+
+    /**
+     * Stops painting the steps of a finished solve, paints its final state and
+     * keeps its trace for replay.
      *
-     * @param b a 9x9 solved Sudoku board
+     * @param steps  pipeline of the solve, or null if steps were not shown
+     * @param puzzle initial board for replay, or null if the solve failed
+     */
+    private void finishSteps(StepPipeline steps, int[][] puzzle) {
+        if (steps == null) {
+            SwingUtilities.invokeLater(() -> {
+                replayStart = null;
+                replayBtn.setEnabled(false);
+            });
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            frameTimer.stop();
+            paintSteps();
+            pipeline = null;
+            if (puzzle != null && !cancelRequested) {
+                replayStart = puzzle;
+                replayTrace = steps.getTrace();
+                replayTruncated = steps.isTraceTruncated();
+                replayBtn.setEnabled(replayTrace.length > 0);
+            }
+        });
+    }
+
+    /**
+     * Starts replaying the recorded steps of the last solve from its initial board.
+     * Must be called on the Event Dispatch Thread.
+     */
+    private void startReplay() {
+        if (solving || replayStart == null) {
+            return;
+        }
+        setBoardSize(replayStart.length);
+        replayValues = new int[size * size];
+        replayDirty = new boolean[size * size];
+        replayDirtyCells = new int[size * size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                replayValues[r * size + c] = replayStart[r][c];
+                setCell(r, c, replayStart[r][c]);
+            }
+        }
+        replayPos = 0;
+        replayBudget = 0;
+        replayBtn.setText("Stop");
+        replayTimer.start();
+    }
+
+    /** Stops a running replay. Must be called on the Event Dispatch Thread. */
+    private void stopReplay() {
+        if (replayTimer.isRunning()) {
+            replayTimer.stop();
+            replayBtn.setText("Replay");
+            scheduleCheck();
+        }
+    }
+
+    /**
+     * Plays the steps due in this frame according to the replay speed, painting
+     * each changed cell once. Runs on the EDT, driven by {@link #replayTimer}.
+     */
+    private void replayFrame() {
+        replayBudget += Math.pow(10, speedSlider.getValue() / 10.0) * FRAME_MS / 1000.0;
+        int n = (int) Math.min(replayBudget, replayTrace.length - replayPos);
+        replayBudget -= n;
+        int dirtyCount = 0;
+        for (int i = 0; i < n; i++) {
+            int step = replayTrace[replayPos++];
+            int cell = StepPipeline.cellOf(step);
+            replayValues[cell] = StepPipeline.valueOf(step);
+            if (!replayDirty[cell]) {
+                replayDirty[cell] = true;
+                replayDirtyCells[dirtyCount++] = cell;
+            }
+        }
+        for (int i = 0; i < dirtyCount; i++) {
+            int cell = replayDirtyCells[i];
+            replayDirty[cell] = false;
+            setCell(cell / size, cell % size, replayValues[cell]);
+        }
+
+        if (replayPos == replayTrace.length) {
+            stopReplay();
+            infoLabel.setText("Replay finished: " + replayTrace.length + " steps"
+                    + (replayTruncated ? " (trace truncated)" : ""));
+        } else {
+            infoLabel.setText("Replay: step " + replayPos + " / " + replayTrace.length);
+        }
+    }
+
+    /**
+     * Shows one cell value, empty for 0, and applies it to the live model
+     * without starting a check. Must be called on the Event Dispatch Thread.
+     */
+    private void setCell(int row, int col, int value) {
+        int cell = row * size + col;
+        grid.setValue(cell, value);
+        live.set(cell, value);
+        refreshAround(cell);
+    }
+
+    private static int[][] copyBoard(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int r = 0; r < board.length; r++) {
+            copy[r] = board[r].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Fills the entire grid with values from the given board, switching the
+     * grid size first if the board has a different size.
+     *
+     * @param b a square Sudoku board, 0 for empty cells
      */
     private void fillBoard(int[][] b) {
         SwingUtilities.invokeLater(() -> {
-            for (int r = 0; r < SIZE; r++) {
-                for (int c = 0; c < SIZE; c++) {
-                    cells[r][c].setText(String.valueOf(b[r][c]));
+            setBoardSize(b.length);
+            for (int r = 0; r < b.length; r++) {
+                for (int c = 0; c < b.length; c++) {
+                    setCell(r, c, b[r][c]);
                 }
             }
+            scheduleCheck();
         });
     }
 
@@ -278,12 +632,14 @@ public class SudokuGUI extends JFrame {
     private void clearBoard() {
         cancelRequested = true;
         solving = false;
+        stopReplay();
 
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
-                cells[r][c].setText("");
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                setCell(r, c, 0);
             }
         }
+        scheduleCheck();
         setInfoText(" ");
     }
 
@@ -291,8 +647,11 @@ public class SudokuGUI extends JFrame {
      * Loads a Sudoku puzzle from a CSV or TXT file into the UI grid.
      * <p>
      * Expected format: 9 lines, each containing at least 9 tokens
-     * separated by commas or whitespace. The value {@code 0} or an empty
-     * token is interpreted as an empty cell.
+     * separated by commas or whitespace, or a single 81-character line
+     * (and likewise 16 or 25 lines/tokens for larger boards).
+     * The value {@code 0} or an empty token is interpreted as an empty cell.
+     * See {@link PuzzleReader} for details. Files ending in {@code .sdk} are
+     * read as packed binary files instead.
      */
     private void loadFromFile() {
         JFileChooser chooser = new JFileChooser();
@@ -301,57 +660,29 @@ public class SudokuGUI extends JFrame {
         }
 
         File file = chooser.getSelectedFile();
-        try (Scanner sc = new Scanner(file)) {
-            for (int r = 0; r < SIZE; r++) {
-                if (!sc.hasNextLine()) {
-                    throw new RuntimeException("Not enough lines in file (expected 9).");
-                }
-                String line = sc.nextLine();
-                if (line == null) {
-                    throw new RuntimeException("Unexpected end of file at row " + (r + 1));
-                }
-                line = line.trim();
-                if (line.isEmpty()) {
-                    throw new RuntimeException("Empty line at row " + (r + 1));
-                }
-
-                // Determine separator type: comma or whitespace
-                String[] row;
-                if (line.contains(",")) {
-                    row = line.split(",", -1);
-                } else {
-                    row = line.split("\\s+");
-                }
-
-                if (row.length < SIZE) {
-                    throw new RuntimeException("Not enough columns in line " + (r + 1));
-                }
+        if (file.getName().endsWith(".sdk")) {
+            loadPacked(file);
+            return;
+        }
+        try (PuzzleReader reader = new PuzzleReader(new FileReader(file))) {
+            int[][] board = reader.next();
+            if (board == null) {
+                throw new IOException("File contains no puzzle.");
+            }
+            fillBoard(board);
+        } catch (Exception e) {
+            showError("File format error: " + e.getMessage());
+        }
+    }
 
-                for (int c = 0; c < SIZE; c++) {
-                    String token = row[c].trim();
-
-                    if (token.isEmpty() || "0".equals(token)) {
-                        // Treat empty or 0 as an empty cell
-                        cells[r][c].setText("");
-                    } else {
-                        int val;
-                        try {
-                            val = Integer.parseInt(token);
-                        } catch (NumberFormatException ex) {
-                            throw new RuntimeException(
-                                    "Invalid token \"" + token + "\" at (" + (r + 1) + "," + (c + 1) + ")");
-                        }
-
-                        if (val >= 1 && val <= 9) {
-                            cells[r][c].setText(String.valueOf(val));
-                        } else {
-                            throw new RuntimeException(
-                                    "Invalid number " + val + " at (" + (r + 1) + "," + (c + 1) +
-                                            "), only 0 or 1-9 allowed.");
-                        }
-                    }
-                }
+    /** Loads the first puzzle of a packed binary file (see {@link PackedPuzzleFormat}). */
+    private void loadPacked(File file) {
+        try (PackedPuzzleReader reader = new PackedPuzzleReader(file.toPath())) {
+            int[][] board = new int[reader.getSize()][reader.getSize()];
+            if (!reader.next(board)) {
+                throw new IOException("File contains no puzzle.");
             }
+            fillBoard(board);
         } catch (Exception e) {
             showError("File format error: " + e.getMessage());
         }
@@ -396,5 +727,4 @@ public class SudokuGUI extends JFrame {
         // Create and show GUI on the EDT
         SwingUtilities.invokeLater(() -> new SudokuGUI().setVisible(true));
     }
-
 }
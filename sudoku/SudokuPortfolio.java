@@ -0,0 +1,328 @@
+package sudoku;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Portfolio engine that races several engines on the same puzzle.
+ * <p>
+ * No single strategy wins on every puzzle, so each racer (by default MRV
+ * backtracking, dancing links, constraint propagation and two differently
+ * seeded learning searches with different restart schedules) solves its own
+ * copy of the board on its own thread. The first racer that finishes decides
+ * the outcome: a solution, or a proof that there is none. The others are then
+ * cancelled through their {@link SudokuSolver.StepListener#isCancelled()}, and
+ * the solve returns once they have stopped.
+ * <p>
+ * Racers of all portfolios share one pool of
+ * {@code max(DEFAULT_RACERS, cores)} threads. When more racers are pending
+ * than there are threads, as with many portfolios solving at once, later
+ * racers wait for a thread; those of an already decided race then stop at
+ * their first poll.
+ * <p>
+ * {@link #solve(int[][], SudokuSolver.StepListener, long, long)} runs under a
+ * node budget (per racer, counted by placements) and a deadline shared by all
+ * racers, and returns {@link SolveResult.Status#BUDGET_EXCEEDED} when every
+ * racer ran out before any finished. Node and backtrack counts are summed over
+ * all racers, the cost of the race. The caller's listener only serves to
+ * cancel the race, which every racer polls; it receives no steps, as each
+ * racer works on its own copy of the board and all but the winner's moves are
+ * thrown away.
+ */
+public final class SudokuPortfolio implements SudokuEngine {
+
+    /** Budget meaning "no limit". */
+    public static final long UNLIMITED = SolveBudget.UNLIMITED;
+
+    /** Number of distinct default racers: MRV, DLX, propagation and two learning searches. */
+    public static final int DEFAULT_RACERS = 5;
+
+    private static final int RACER_THREADS = Math.max(DEFAULT_RACERS, Runtime.getRuntime().availableProcessors());
+
+    private static final ExecutorService RACERS = Executors.newFixedThreadPool(RACER_THREADS, r -> {
+        Thread t = new Thread(r, "sudoku-portfolio");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<String, Supplier<SudokuEngine>> racers;
+
+    private long backtrackCount = 0;
+    private long nodesVisitedCount = 0;
+    private String winner;
+
+    /** Creates a portfolio of the default racers, one per core but at least two and at most five. */
+    public SudokuPortfolio() {
+        this(defaultRacers(defaultRacerCount()));
+    }
+
+    /** Returns the default racer count: one per core, between 2 and {@link #DEFAULT_RACERS}. */
+    static int defaultRacerCount() {
+        return Math.max(2, Math.min(DEFAULT_RACERS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Creates a portfolio of the given racers. Each solve creates fresh engines
+     * from the factories, so they are never shared between threads.
+     *
+     * @param racers engine factories by display name, in start order
+     * @throws IllegalArgumentException if there is no racer
+     */
+    public SudokuPortfolio(Map<String, Supplier<SudokuEngine>> racers) {
+        if (racers.isEmpty()) {
+            throw new IllegalArgumentException("A portfolio needs at least one racer.");
+        }
+        this.racers = Collections.unmodifiableMap(new LinkedHashMap<>(racers));
+    }
+
+    /**
+     * Returns the first {@code count} default racers: MRV, dancing links,
+     * propagation, then learning searches with seeds 1, 2, ... alternating
+     * Luby and geometric restarts.
+     */
+    public static Map<String, Supplier<SudokuEngine>> defaultRacers(int count) {
+        Map<String, Supplier<SudokuEngine>> racers = new LinkedHashMap<>();
+        racers.put("mrv", () -> new SudokuSolver(SudokuSolver.Mode.BITMASK_MRV));
+        racers.put("dlx", DancingLinksSolver::new);
+        racers.put("propagate", PropagatingSolver::new);
+        for (int seed = 1; racers.size() < Math.max(count, DEFAULT_RACERS); seed++) {
+            long s = seed;
+            LearningSolver.Restarts restarts = seed % 2 == 1 ? LearningSolver.Restarts.LUBY
+                    : LearningSolver.Restarts.GEOMETRIC;
+            racers.put("learn-" + seed, () -> new LearningSolver(s, restarts, LearningSolver.DEFAULT_CAPACITY));
+        }
+        Map<String, Supplier<SudokuEngine>> first = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<SudokuEngine>> e : racers.entrySet()) {
+            if (first.size() == count) break;
+            first.put(e.getKey(), e.getValue());
+        }
+        return first;
+    }
+
+    @Override
+    public String getName() {
+        return "portfolio";
+    }
+
+    /** Returns the names of the racers, in start order. */
+    public List<String> getRacerNames() {
+        return new ArrayList<>(racers.keySet());
+    }
+
+    /** Returns the name of the racer that decided the last solve, or null if none did. */
+    public String getWinner() {
+        return winner;
+    }
+
+    @Override
+    public long getBacktrackCount() {
+        return backtrackCount;
+    }
+
+    @Override
+    public long getNodesVisitedCount() {
+        return nodesVisitedCount;
+    }
+
+    @Override
+    public boolean solve(int[][] board, SudokuSolver.StepListener listener) {
+        return solve(board, listener, UNLIMITED, UNLIMITED).copySolutionTo(board);
+    }
+
+    /**
+     * Races the engines on a board; the board itself is left unchanged.
+     *
+     * @param board         n²×n² board, 0 for empty cells, 1..size for givens
+     * @param listener      optional listener (can be null), only its cancellation is honoured
+     * @param nodeBudget    maximum search nodes per racer, {@link #UNLIMITED} for no limit
+     * @param timeoutMillis time limit of the whole race, {@link #UNLIMITED} for no limit
+     * @return the outcome; SOLVED results carry a new board with the solution
+     * @throws IllegalArgumentException if the initial board is invalid or a budget is not positive
+     * @throws IllegalStateException    if a racer failed, once the others have stopped
+     */
+    public SolveResult solve(int[][] board, SudokuSolver.StepListener listener, long nodeBudget, long timeoutMillis) {
+        if (nodeBudget < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Budgets must be positive.");
+        }
+        if (!BoardGeometry.of(board).isConsistent(board)) {
+            throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+        }
+        long start = System.nanoTime();
+        long deadline = SolveBudget.deadlineIn(timeoutMillis);
+        Race race = new Race(listener);
+        winner = null;
+
+        CompletionService<Lap> laps = new ExecutorCompletionService<>(RACERS);
+        for (Map.Entry<String, Supplier<SudokuEngine>> entry : racers.entrySet()) {
+            String name = entry.getKey();
+            SudokuEngine engine = entry.getValue().get();
+            int[][] work = new int[board.length][];
+            for (int r = 0; r < board.length; r++) {
+                work[r] = board[r].clone();
+            }
+            laps.submit(() -> {
+                SolveBudget budget = new SolveBudget(nodeBudget, deadline, race);
+                boolean solved = engine.solve(work, budget);
+                return new Lap(name, engine, solved ? work : null, budget.isExceeded());
+            });
+        }
+
+        SolveResult.Status status = null;
+        int[][] solution = null;
+        long nodes = 0;
+        long backtracks = 0;
+        IllegalStateException failure = null;
+        try {
+            for (int i = 0; i < racers.size(); i++) {
+                Lap lap;
+                try {
+                    lap = laps.take().get();
+                } catch (ExecutionException ex) {
+                    // Stop the others and rethrow once they have finished
+                    race.over = true;
+                    if (failure == null) {
+                        failure = new IllegalStateException("Racer failed", ex.getCause());
+                    } else {
+                        failure.addSuppressed(ex.getCause());
+                    }
+                    continue;
+                }
+                nodes += lap.engine.getNodesVisitedCount();
+                backtracks += lap.engine.getBacktrackCount();
+                if (status != null) {
+                    continue;  // already decided, this racer was cancelled
+                }
+                if (lap.solution != null) {
+                    status = SolveResult.Status.SOLVED;
+                    solution = lap.solution;
+                } else if (!lap.exceeded && !race.isCancelled()) {
+                    status = SolveResult.Status.UNSOLVABLE;  // exhausted its search space
+                } else {
+                    continue;
+                }
+                winner = lap.name;
+                race.over = true;
+            }
+        } catch (InterruptedException ex) {
+            race.over = true;
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (status == null) {
+            status = listener != null && listener.isCancelled() || Thread.currentThread().isInterrupted()
+                    ? SolveResult.Status.CANCELLED : SolveResult.Status.BUDGET_EXCEEDED;
+        }
+        nodesVisitedCount = nodes;
+        backtrackCount = backtracks;
+        return new SolveResult(status, solution, nodes, backtracks, System.nanoTime() - start);
+    }
+
+    /** Cancellation shared by all racers of one solve. */
+    private static final class Race implements SudokuSolver.StepListener {
+        final SudokuSolver.StepListener caller;
+        volatile boolean over;
+
+        Race(SudokuSolver.StepListener caller) {
+            this.caller = caller;
+        }
+
+        @Override
+        public void onStep(int row, int col, int value) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return over || (caller != null && caller.isCancelled());
+        }
+    }
+
+    /** How one racer ended. */
+    private static final class Lap {
+        final String name;
+        final SudokuEngine engine;
+        final int[][] solution;
+        final boolean exceeded;
+
+        Lap(String name, SudokuEngine engine, int[][] solution, boolean exceeded) {
+            this.name = name;
+            this.engine = engine;
+            this.solution = solution;
+            this.exceeded = exceeded;
+        }
+    }
+
+    /**
+     * Races the portfolio on every puzzle of a file and prints how often each
+     * racer won, with the totals, to show that no single engine wins everywhere.
+     * <pre>
+     * java sudoku.SudokuPortfolio [-r racers] [-n maxNodes] [-m timeoutMs] puzzles.txt
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        int count = defaultRacerCount();
+        long maxNodes = UNLIMITED;
+        long timeout = UNLIMITED;
+        String input = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-r":
+                    count = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-n":
+                    maxNodes = Long.parseLong(CommandLine.requireValue(args, ++i));
+                    break;
+                case "-m":
+                    timeout = Long.parseLong(CommandLine.requireValue(args, ++i));
+                    break;
+                default:
+                    input = args[i];
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: java sudoku.SudokuPortfolio [-r racers] [-n maxNodes] [-m timeoutMs] puzzles.txt");
+            System.exit(2);
+        }
+
+        SudokuPortfolio portfolio = new SudokuPortfolio(defaultRacers(count));
+        Map<String, Integer> wins = new TreeMap<>();
+        Map<SolveResult.Status, Integer> statuses = new TreeMap<>();
+        long nanos = 0;
+        long nodes = 0;
+        int invalid = 0;
+        try (PuzzleReader reader = new PuzzleReader(new FileReader(input, StandardCharsets.UTF_8))) {
+            int[][] board;
+            while ((board = reader.next()) != null) {
+                try {
+                    SolveResult result = portfolio.solve(board, null, maxNodes, timeout);
+                    statuses.merge(result.getStatus(), 1, Integer::sum);
+                    if (portfolio.getWinner() != null) {
+                        wins.merge(portfolio.getWinner(), 1, Integer::sum);
+                    }
+                    nanos += result.getNanos();
+                    nodes += result.getNodes();
+                } catch (IllegalArgumentException ex) {
+                    invalid++;
+                }
+            }
+        }
+        System.err.println("Racers: " + String.join(", ", portfolio.getRacerNames()));
+        System.err.println("Results: " + statuses + " | Invalid: " + invalid);
+        System.err.println("Wins: " + wins);
+        System.err.printf("%.1f ms | Visited nodes (all racers): %d%n", nanos / 1e6, nodes);
+    }
+}
@@ -1,20 +1,78 @@
 package sudoku;
 
-public class SudokuSolver {
+/**
+ * Backtracking Sudoku solver for n²×n² boards (4x4, 9x9, 16x16, 25x25).
+ * <p>
+ * The board size is taken from the board passed to {@link #solve}; working
+ * buffers are sized on the first solve of a given size and reused afterwards.
+ */
+public class SudokuSolver implements SudokuEngine {
 
+    /** Default (classic) board size. */
     public static final int SIZE = 9;
-    private static final int SUBGRID_SIZE = 3;
+
+    /** Search strategies supported by the solver. */
+    public enum Mode {
+        /** Backtracking with basic constraint pruning, visiting cells in row-major order. */
+        BBCP,
+        /** Bitmask candidate sets with minimum-remaining-values (MRV) cell selection. */
+        BITMASK_MRV
+    }
+
+    private final Mode mode;
 
     private long backtrackCount = 0;
     private long nodesVisitedCount = 0;
 
+    /** Geometry of the board being solved. */
+    private BoardGeometry geometry = BoardGeometry.forSize(SIZE);
+
+    // Working state for BITMASK_MRV, reused by every solve of the same size.
+    // Digit d is bit d-1 of the row/column/box masks.
+    private int[] rowMask = new int[SIZE];
+    private int[] colMask = new int[SIZE];
+    private int[] boxMask = new int[SIZE];
+    private int[] emptyCells = new int[SIZE * SIZE];
+    private int emptyCount;
+    private int solutionCount;
+
+    /** Optional cumulative metrics, null when disabled. */
+    private SolverMetrics metrics;
+
+    /** Creates a solver using the classic BBCP search. */
+    public SudokuSolver() {
+        this(Mode.BBCP);
+    }
+
+    /**
+     * Creates a solver using the given search strategy.
+     *
+     * @param mode search strategy, must not be null
+     */
+    public SudokuSolver(Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Mode must not be null.");
+        }
+        this.mode = mode;
+    }
+
+    /** Returns the search strategy used by this solver. */
+    public Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public String getName() {
+        return mode == Mode.BBCP ? "bbcp" : "mrv";
+    }
+
     /** Listener used to visualize solving steps or support cancellation. */
     public interface StepListener {
         /**
          * Called when a number is placed or removed.
          * @param row row index (0-based)
          * @param col column index (0-based)
-         * @param value value placed (1-9) or 0 when clearing the cell
+         * @param value value placed (1..size) or 0 when clearing the cell
          */
         void onStep(int row, int col, int value);
 
@@ -24,12 +82,28 @@ public class SudokuSolver {
         boolean isCancelled();
     }
 
+    /**
+     * Attaches cumulative metrics updated during every solve and solution
+     * count, or detaches them with {@code null}. The metrics must not be
+     * shared with another solver.
+     */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Returns the attached metrics, or null. */
+    public SolverMetrics getMetrics() {
+        return metrics;
+    }
+
     /** Returns the number of backtracks performed in the last solve. */
+    @Override
     public long getBacktrackCount() {
         return backtrackCount;
     }
 
     /** Returns the number of nodes visited during the last solve. */
+    @Override
     public long getNodesVisitedCount() {
         return nodesVisitedCount;
     }
@@ -37,19 +111,23 @@ public class SudokuSolver {
     /**
      * Solves the given Sudoku board in-place.
      *
-     * @param board     9x9 board, 0 for empty cells, 1-9 for givens.
+     * @param board     n²×n² board (e.g. 9x9), 0 for empty cells, 1..size for givens.
      * @param listener  optional step listener (can be null) for visualization and cancellation.
      * @return true if a solution was found, false otherwise.
      * @throws IllegalArgumentException if the initial board is invalid.
      */
+    @Override
     public boolean solve(int[][] board, StepListener listener) {
-        if (board == null || board.length != SIZE || board[0].length != SIZE) {
-            throw new IllegalArgumentException("Board must be 9x9.");
+        useGeometry(BoardGeometry.of(board));
+
+        if (mode == Mode.BITMASK_MRV) {
+            return solveBitmask(board, listener);
         }
 
-        boolean[][] rowUsed = new boolean[SIZE][SIZE + 1];
-        boolean[][] colUsed = new boolean[SIZE][SIZE + 1];
-        boolean[][] boxUsed = new boolean[SIZE][SIZE + 1];
+        int size = geometry.size;
+        boolean[][] rowUsed = new boolean[size][size + 1];
+        boolean[][] colUsed = new boolean[size][size + 1];
+        boolean[][] boxUsed = new boolean[size][size + 1];
 
         if (!initConstraintsAndValidate(board, rowUsed, colUsed, boxUsed)) {
             throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
@@ -57,7 +135,54 @@ public class SudokuSolver {
 
         backtrackCount = 0;
         nodesVisitedCount = 0;
-        return backtrack(board, rowUsed, colUsed, boxUsed, listener);
+        startMetrics();
+        return endMetrics(backtrack(board, rowUsed, colUsed, boxUsed, 0, listener), listener);
+    }
+
+    /**
+     * Counts the solutions of a puzzle, stopping as soon as {@code limit} are found.
+     * <p>
+     * Uses the bitmask MRV search regardless of the solver mode and explores
+     * the tree in place: every placement is undone, so the board is returned
+     * unchanged and no copy is made per solution. The node and backtrack
+     * counters describe this count afterwards. A typical well-formedness check
+     * is {@code countSolutions(board, 2) == 1}.
+     *
+     * @param board  n²×n² board, 0 for empty cells; left unchanged
+     * @param limit  stop after this many solutions (at least 1)
+     * @return the number of solutions found, at most {@code limit}
+     * @throws IllegalArgumentException if the initial board is invalid.
+     */
+    public int countSolutions(int[][] board, int limit) {
+        return countSolutions(board, limit, null);
+    }
+
+    /**
+     * Same as {@link #countSolutions(int[][], int)}, with a listener whose
+     * {@code isCancelled} can stop the count early (steps are not reported).
+     * When cancelled, the number of solutions found so far is returned.
+     */
+    public int countSolutions(int[][] board, int limit, StepListener listener) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1.");
+        }
+        useGeometry(BoardGeometry.of(board));
+        if (!initMasks(board)) {
+            throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+        }
+
+        backtrackCount = 0;
+        nodesVisitedCount = 0;
+        solutionCount = 0;
+        startMetrics();
+        countMrv(board, 0, limit, listener);
+        endMetrics(solutionCount > 0, listener);
+        return solutionCount;
+    }
+
+    /** Returns true if the puzzle has exactly one solution. */
+    public boolean hasUniqueSolution(int[][] board) {
+        return countSolutions(board, 2) == 1;
     }
 
     /**
@@ -67,10 +192,14 @@ public class SudokuSolver {
                                                boolean[][] rowUsed,
                                                boolean[][] colUsed,
                                                boolean[][] boxUsed) {
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
+        int size = geometry.size;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
                 int val = board[r][c];
                 if (val == 0) continue;
+                if (val < 0 || val > size) {
+                    return false;
+                }
 
                 int boxIndex = getBoxIndex(r, c);
                 if (rowUsed[r][val] || colUsed[c][val] || boxUsed[boxIndex][val]) {
@@ -86,8 +215,9 @@ public class SudokuSolver {
 
     /** Finds the next empty cell (0). Returns null if none left. */
     private int[] findEmptyCell(int[][] board) {
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
+        int size = geometry.size;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
                 if (board[r][c] == 0) {
                     return new int[]{r, c};
                 }
@@ -96,9 +226,22 @@ public class SudokuSolver {
         return null;
     }
 
-    /** Converts (row, col) to a 0..8 box index. */
+    /** Converts (row, col) to a 0..size-1 box index. */
     private int getBoxIndex(int r, int c) {
-        return (r / SUBGRID_SIZE) * SUBGRID_SIZE + (c / SUBGRID_SIZE);
+        int boxSize = geometry.boxSize;
+        return (r / boxSize) * boxSize + (c / boxSize);
+    }
+
+    /** Switches to the given board geometry, resizing the working buffers if needed. */
+    private void useGeometry(BoardGeometry g) {
+        if (g == geometry) {
+            return;
+        }
+        geometry = g;
+        rowMask = new int[g.size];
+        colMask = new int[g.size];
+        boxMask = new int[g.size];
+        emptyCells = new int[g.cells];
     }
 
     /**
@@ -108,9 +251,13 @@ public class SudokuSolver {
                               boolean[][] rowUsed,
                               boolean[][] colUsed,
                               boolean[][] boxUsed,
+                              int depth,
                               StepListener listener) {
 
         nodesVisitedCount++;
+        if (metrics != null) {
+            metrics.node(depth);
+        }
 
         if (listener != null && listener.isCancelled()) {
             return false;
@@ -118,6 +265,9 @@ public class SudokuSolver {
 
         int[] cell = findEmptyCell(board);
         if (cell == null) {
+            if (metrics != null) {
+                metrics.solution();
+            }
             return true;  // solved
         }
 
@@ -125,7 +275,7 @@ public class SudokuSolver {
         int col = cell[1];
         int boxIndex = getBoxIndex(row, col);
 
-        for (int num = 1; num <= 9; num++) {
+        for (int num = 1; num <= geometry.size; num++) {
             if (!rowUsed[row][num] && !colUsed[col][num] && !boxUsed[boxIndex][num]) {
 
                 // Place number
@@ -139,7 +289,7 @@ public class SudokuSolver {
                     if (listener.isCancelled()) return false;
                 }
 
-                if (backtrack(board, rowUsed, colUsed, boxUsed, listener)) {
+                if (backtrack(board, rowUsed, colUsed, boxUsed, depth + 1, listener)) {
                     return true;
                 }
 
@@ -150,6 +300,9 @@ public class SudokuSolver {
                 boxUsed[boxIndex][num] = false;
 
                 backtrackCount++;
+                if (metrics != null) {
+                    metrics.backtrack(depth);
+                }
 
                 if (listener != null) {
                     listener.onStep(row, col, 0);
@@ -159,4 +312,244 @@ public class SudokuSolver {
         }
         return false;
     }
+
+    /**
+     * Loads the givens into the row/column/box masks and collects the empty cells.
+     *
+     * @return false if two givens conflict
+     */
+    private boolean initMasks(int[][] board) {
+        BoardGeometry g = geometry;
+        for (int i = 0; i < g.size; i++) {
+            rowMask[i] = 0;
+            colMask[i] = 0;
+            boxMask[i] = 0;
+        }
+        emptyCount = 0;
+
+        for (int cell = 0; cell < g.cells; cell++) {
+            int r = g.cellRow[cell];
+            int c = g.cellCol[cell];
+            int val = board[r][c];
+            if (val == 0) {
+                emptyCells[emptyCount++] = cell;
+                continue;
+            }
+            if (val < 1 || val > g.size) {
+                return false;
+            }
+
+            int bit = 1 << (val - 1);
+            int b = g.cellBox[cell];
+            if (((rowMask[r] | colMask[c] | boxMask[b]) & bit) != 0) {
+                return false;
+            }
+            rowMask[r] |= bit;
+            colMask[c] |= bit;
+            boxMask[b] |= bit;
+        }
+        return true;
+    }
+
+    /** Entry point of the BITMASK_MRV search. */
+    private boolean solveBitmask(int[][] board, StepListener listener) {
+        if (!initMasks(board)) {
+            throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+        }
+
+        backtrackCount = 0;
+        nodesVisitedCount = 0;
+        startMetrics();
+        return endMetrics(backtrackMrv(board, 0, listener), listener);
+    }
+
+    private void startMetrics() {
+        if (metrics != null) {
+            metrics.startSolve();
+        }
+    }
+
+    /** Records the end of a solve in the metrics and returns {@code solved}. */
+    private boolean endMetrics(boolean solved, StepListener listener) {
+        if (metrics != null) {
+            metrics.endSolve(getName(), solved, !solved && listener != null && listener.isCancelled());
+        }
+        return solved;
+    }
+
+    /**
+     * Backtracking search over bitmask candidates. At each depth the empty cell
+     * with the fewest candidates is swapped into {@code emptyCells[depth]}, so the
+     * cells still to be filled are always {@code emptyCells[depth..emptyCount)}.
+     * No objects are allocated per node.
+     */
+    private boolean backtrackMrv(int[][] board, int depth, StepListener listener) {
+        nodesVisitedCount++;
+        if (metrics != null) {
+            metrics.node(depth);
+        }
+
+        if (listener != null && listener.isCancelled()) {
+            return false;
+        }
+
+        if (depth == emptyCount) {
+            if (metrics != null) {
+                metrics.solution();
+            }
+            return true;  // solved
+        }
+
+        int bestCandidates = pickMrvCell(depth);
+        if (bestCandidates == 0) {
+            return false;  // dead end, some cell has no legal digit
+        }
+        if (metrics != null && (bestCandidates & (bestCandidates - 1)) == 0) {
+            metrics.propagation(1);  // forced cell
+        }
+
+        BoardGeometry g = geometry;
+        int cell = emptyCells[depth];
+        int row = g.cellRow[cell];
+        int col = g.cellCol[cell];
+        int boxIndex = g.cellBox[cell];
+
+        int candidates = bestCandidates;
+        while (candidates != 0) {
+            int bit = candidates & -candidates;
+            candidates ^= bit;
+            int num = Integer.numberOfTrailingZeros(bit) + 1;
+
+            // Place number
+            board[row][col] = num;
+            rowMask[row] |= bit;
+            colMask[col] |= bit;
+            boxMask[boxIndex] |= bit;
+
+            if (listener != null) {
+                listener.onStep(row, col, num);
+                if (listener.isCancelled()) return false;
+            }
+
+            if (backtrackMrv(board, depth + 1, listener)) {
+                return true;
+            }
+
+            // Backtrack
+            board[row][col] = 0;
+            rowMask[row] &= ~bit;
+            colMask[col] &= ~bit;
+            boxMask[boxIndex] &= ~bit;
+
+            backtrackCount++;
+            if (metrics != null) {
+                metrics.backtrack(depth);
+            }
+
+            if (listener != null) {
+                listener.onStep(row, col, 0);
+                if (listener.isCancelled()) return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Swaps the empty cell with the fewest candidates into {@code emptyCells[depth]}
+     * and returns its candidate mask, or 0 if some cell has no legal digit.
+     */
+    private int pickMrvCell(int depth) {
+        BoardGeometry g = geometry;
+        int bestIndex = depth;
+        int bestCandidates = 0;
+        int bestCount = g.size + 1;
+        for (int i = depth; i < emptyCount; i++) {
+            int cell = emptyCells[i];
+            int candidates = ~(rowMask[g.cellRow[cell]] | colMask[g.cellCol[cell]] | boxMask[g.cellBox[cell]])
+                    & g.allDigits;
+            int count = Integer.bitCount(candidates);
+            if (count < bestCount) {
+                bestIndex = i;
+                bestCandidates = candidates;
+                bestCount = count;
+                if (count <= 1) {
+                    break;
+                }
+            }
+        }
+
+        if (bestCount == 0) {
+            return 0;
+        }
+
+        int cell = emptyCells[bestIndex];
+        emptyCells[bestIndex] = emptyCells[depth];
+        emptyCells[depth] = cell;
+        return bestCandidates;
+    }
+
+    /**
+     * Solution-counting variant of {@link #backtrackMrv}: records a solution at
+     * full depth and keeps searching until {@code limit} solutions are found,
+     * undoing every placement on the way back.
+     *
+     * @return true if the search should stop (limit reached or cancelled)
+     */
+    private boolean countMrv(int[][] board, int depth, int limit, StepListener listener) {
+        nodesVisitedCount++;
+        if (metrics != null) {
+            metrics.node(depth);
+        }
+
+        if (listener != null && listener.isCancelled()) {
+            return true;
+        }
+
+        if (depth == emptyCount) {
+            if (metrics != null) {
+                metrics.solution();
+            }
+            return ++solutionCount >= limit;
+        }
+
+        int candidates = pickMrvCell(depth);
+        if (candidates == 0) {
+            return false;
+        }
+        if (metrics != null && (candidates & (candidates - 1)) == 0) {
+            metrics.propagation(1);  // forced cell
+        }
+
+        BoardGeometry g = geometry;
+        int cell = emptyCells[depth];
+        int row = g.cellRow[cell];
+        int col = g.cellCol[cell];
+        int boxIndex = g.cellBox[cell];
+
+        while (candidates != 0) {
+            int bit = candidates & -candidates;
+            candidates ^= bit;
+
+            board[row][col] = Integer.numberOfTrailingZeros(bit) + 1;
+            rowMask[row] |= bit;
+            colMask[col] |= bit;
+            boxMask[boxIndex] |= bit;
+
+            boolean stop = countMrv(board, depth + 1, limit, listener);
+
+            board[row][col] = 0;
+            rowMask[row] &= ~bit;
+            colMask[col] &= ~bit;
+            boxMask[boxIndex] &= ~bit;
+
+            if (stop) {
+                return true;
+            }
+            backtrackCount++;
+            if (metrics != null) {
+                metrics.backtrack(depth);
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,503 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sudoku engine for variants described by a set of {@link SudokuConstraint}s
+ * (rows, columns and boxes by default; see {@link Constraints} for diagonals,
+ * Windoku, anti-knight and killer cages).
+ * <p>
+ * The search is MRV backtracking with forward checking and hidden singles on
+ * bit-mask candidates and a preallocated trail, like {@link PropagatingSolver}. The houses of all
+ * constraints are compiled, once per board size, into a deduplicated peer list
+ * per cell, so the all-different rules are checked by the same tight loop as
+ * the standard rules. Only constraints that watch cells (killer cages) are
+ * called through the interface, and only when one of their cells is placed.
+ * The search itself allocates nothing.
+ */
+public class VariantSolver implements SudokuEngine {
+
+    private final SudokuConstraint[] constraints;
+
+    /** Board size the constraints were compiled for, 0 before the first solve. */
+    private int size;
+    private int cells;
+    private int allDigits;
+
+    /** Peers of each cell: every other cell sharing a house with it. */
+    private int[][] peers;
+
+    /** Houses with one cell per digit, where each digit must appear (hidden singles). */
+    private int[][] fullHouses;
+
+    /** Constraints watching each cell, empty for most cells. */
+    private SudokuConstraint[][] watchers;
+
+    /** Constraints with watched cells, reset and started on every solve. */
+    private SudokuConstraint[] stateful;
+
+    // Search state, allocated when the board size changes and reused afterwards
+    private int[] candidates;
+    private int[] values;
+
+    /**
+     * Trail of (cell, old candidates) entries; an assignment is stored as the
+     * complement of the cell. A cell changes at most size + 1 times along one
+     * search path, which bounds its length.
+     */
+    private int[] trailCell;
+    private int[] trailMask;
+    private int trailSize;
+
+    private final SudokuConstraint.Domains domains = new SudokuConstraint.Domains() {
+        @Override
+        public int candidates(int cell) {
+            return candidates[cell];
+        }
+
+        @Override
+        public boolean isAssigned(int cell) {
+            return values[cell] != 0;
+        }
+
+        @Override
+        public boolean restrict(int cell, int mask) {
+            int current = candidates[cell];
+            if (values[cell] != 0) {
+                return (current & mask) != 0;
+            }
+            int next = current & mask;
+            if (next != current) {
+                save(cell);
+                candidates[cell] = next;
+            }
+            return next != 0;
+        }
+    };
+
+    private long backtrackCount = 0;
+    private long nodesVisitedCount = 0;
+
+    private SudokuSolver.StepListener listener;
+
+    /** Creates a solver for classic Sudoku, i.e. with {@link Constraints#standard()} only. */
+    public VariantSolver() {
+        this(Constraints.standard());
+    }
+
+    /**
+     * Creates a solver enforcing exactly the given constraints; include
+     * {@link Constraints#standard()} to keep the classic rules.
+     */
+    public VariantSolver(SudokuConstraint... constraints) {
+        if (constraints.length == 0) {
+            throw new IllegalArgumentException("At least one constraint is required.");
+        }
+        this.constraints = constraints.clone();
+    }
+
+    @Override
+    public String getName() {
+        return "variant";
+    }
+
+    @Override
+    public long getBacktrackCount() {
+        return backtrackCount;
+    }
+
+    @Override
+    public long getNodesVisitedCount() {
+        return nodesVisitedCount;
+    }
+
+    @Override
+    public boolean solve(int[][] board, SudokuSolver.StepListener listener) {
+        BoardGeometry g = BoardGeometry.of(board);
+        if (g.size != size) {
+            compile(g);
+        }
+
+        for (int cell = 0; cell < cells; cell++) {
+            candidates[cell] = allDigits;
+            values[cell] = 0;
+        }
+        for (SudokuConstraint c : stateful) {
+            c.reset(size);
+        }
+        trailSize = 0;
+        backtrackCount = 0;
+        nodesVisitedCount = 0;
+
+        // Givens must not repeat a digit within a house
+        for (int cell = 0; cell < cells; cell++) {
+            int val = board[cell / size][cell % size];
+            if (val == 0) continue;
+            if (val < 1 || val > size) {
+                throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+            }
+            for (int peer : peers[cell]) {
+                if (board[peer / size][peer % size] == val) {
+                    throw new IllegalArgumentException("Initial puzzle is invalid (conflicting givens).");
+                }
+            }
+        }
+
+        // Givens are placed silently; a contradiction now means no solution
+        this.listener = null;
+        boolean consistent = true;
+        for (int cell = 0; cell < cells && consistent; cell++) {
+            int val = board[cell / size][cell % size];
+            if (val != 0) {
+                consistent = (candidates[cell] & (1 << (val - 1))) != 0 && assign(cell, val);
+            }
+        }
+        for (int i = 0; i < stateful.length && consistent; i++) {
+            consistent = stateful[i].start(domains);
+        }
+        trailSize = 0;
+
+        this.listener = listener;
+        nodesVisitedCount = 1;  // the root
+        try {
+            boolean solved = consistent && hiddenSingles() && search();
+            if (solved) {
+                for (int cell = 0; cell < cells; cell++) {
+                    board[cell / size][cell % size] = values[cell];
+                }
+            }
+            return solved;
+        } finally {
+            this.listener = null;
+        }
+    }
+
+    /** Builds the peer and watcher tables for a board size and sizes the buffers. */
+    private void compile(BoardGeometry g) {
+        int n = g.cells;
+        boolean[][] linked = new boolean[n][n];
+        int[] peerCount = new int[n];
+        List<List<SudokuConstraint>> watching = new ArrayList<>();
+        for (int cell = 0; cell < n; cell++) {
+            watching.add(new ArrayList<>());
+        }
+        List<SudokuConstraint> withState = new ArrayList<>();
+        List<int[]> full = new ArrayList<>();
+
+        for (SudokuConstraint constraint : constraints) {
+            for (int[] house : constraint.houses(g.size)) {
+                if (house.length == g.size) {
+                    full.add(house.clone());
+                }
+                for (int a : house) {
+                    if (a < 0 || a >= n) {
+                        throw new IllegalArgumentException("Constraint cell " + a + " is outside a "
+                                + g.size + "x" + g.size + " board.");
+                    }
+                    for (int b : house) {
+                        if (a != b && !linked[a][b]) {
+                            linked[a][b] = true;
+                            peerCount[a]++;
+                        }
+                    }
+                }
+            }
+            int[] watched = constraint.watchedCells(g.size);
+            if (watched.length > 0) {
+                withState.add(constraint);
+                for (int cell : watched) {
+                    watching.get(cell).add(constraint);
+                }
+            }
+        }
+
+        peers = new int[n][];
+        watchers = new SudokuConstraint[n][];
+        for (int cell = 0; cell < n; cell++) {
+            peers[cell] = new int[peerCount[cell]];
+            int k = 0;
+            for (int other = 0; other < n; other++) {
+                if (linked[cell][other]) {
+                    peers[cell][k++] = other;
+                }
+            }
+            watchers[cell] = watching.get(cell).toArray(new SudokuConstraint[0]);
+        }
+        stateful = withState.toArray(new SudokuConstraint[0]);
+        fullHouses = full.toArray(new int[0][]);
+
+        size = g.size;
+        cells = n;
+        allDigits = g.allDigits;
+        candidates = new int[n];
+        values = new int[n];
+        trailCell = new int[n * (g.size + 1)];
+        trailMask = new int[trailCell.length];
+    }
+
+    /** MRV backtracking; every tried placement counts as a visited node. */
+    private boolean search() {
+        if (listener != null && listener.isCancelled()) {
+            return false;
+        }
+
+        int best = -1;
+        int bestCount = size + 1;
+        for (int cell = 0; cell < cells; cell++) {
+            if (values[cell] != 0) continue;
+            int count = Integer.bitCount(candidates[cell]);
+            if (count < bestCount) {
+                best = cell;
+                bestCount = count;
+                if (count <= 1) {
+                    break;
+                }
+            }
+        }
+        if (best < 0) {
+            return true;  // solved
+        }
+
+        int remaining = candidates[best];
+        while (remaining != 0) {
+            int bit = remaining & -remaining;
+            remaining ^= bit;
+
+            nodesVisitedCount++;
+            int mark = trailSize;
+            if (assign(best, Integer.numberOfTrailingZeros(bit) + 1) && hiddenSingles() && search()) {
+                return true;
+            }
+            undo(mark);
+            if (listener != null && listener.isCancelled()) {
+                return false;
+            }
+            backtrackCount++;
+        }
+        return false;
+    }
+
+    /**
+     * Places digits that have a single place left in a full house, until
+     * nothing changes. Returns false if a digit has no place left.
+     */
+    private boolean hiddenSingles() {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (int[] house : fullHouses) {
+                int once = 0;
+                int twice = 0;
+                int placed = 0;
+                for (int cell : house) {
+                    if (values[cell] != 0) {
+                        placed |= candidates[cell];
+                    } else {
+                        twice |= once & candidates[cell];
+                        once |= candidates[cell];
+                    }
+                }
+                if ((once | placed) != allDigits) {
+                    return false;
+                }
+
+                int hidden = once & ~twice & ~placed;
+                while (hidden != 0) {
+                    int bit = hidden & -hidden;
+                    hidden ^= bit;
+                    int target = -1;
+                    for (int cell : house) {
+                        if (values[cell] == 0 && (candidates[cell] & bit) != 0) {
+                            target = cell;
+                            break;
+                        }
+                    }
+                    // The only place may have just taken another hidden digit
+                    if (target < 0 || !assign(target, Integer.numberOfTrailingZeros(bit) + 1)) {
+                        return false;
+                    }
+                    progress = true;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Restores every cell changed since the trail had {@code mark} entries. */
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            int cell = trailCell[trailSize];
+            if (cell < 0) {
+                cell = ~cell;
+                int digit = values[cell];
+                SudokuConstraint[] w = watchers[cell];
+                for (int i = w.length - 1; i >= 0; i--) {
+                    w[i].onUndo(cell, digit);
+                }
+                values[cell] = 0;
+                if (listener != null) {
+                    listener.onStep(cell / size, cell % size, 0);
+                }
+            }
+            candidates[cell] = trailMask[trailSize];
+        }
+    }
+
+    private void save(int cell) {
+        trailCell[trailSize] = cell;
+        trailMask[trailSize] = candidates[cell];
+        trailSize++;
+    }
+
+    /**
+     * Places a digit, reports it to the watching constraints and removes it
+     * from all peers. Returns false on contradiction.
+     */
+    private boolean assign(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        trailCell[trailSize] = ~cell;
+        trailMask[trailSize] = candidates[cell];
+        trailSize++;
+        values[cell] = digit;
+        candidates[cell] = bit;
+        if (listener != null) {
+            listener.onStep(cell / size, cell % size, digit);
+        }
+
+        // Every watcher sees the placement, so each one gets its onUndo
+        boolean consistent = true;
+        for (SudokuConstraint w : watchers[cell]) {
+            consistent &= w.onAssign(cell, digit, domains);
+        }
+        if (!consistent) {
+            return false;
+        }
+
+        for (int peer : peers[cell]) {
+            if (values[peer] != 0) {
+                if (values[peer] == digit) {
+                    return false;
+                }
+                continue;
+            }
+            int current = candidates[peer];
+            if ((current & bit) != 0) {
+                save(peer);
+                candidates[peer] = current ^ bit;
+                if (current == bit) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Solves a puzzle file under a variant and prints one line per puzzle
+     * ({@code unsolvable} or {@code invalid: <reason>} when there is no solution).
+     * <p>
+     * Options: {@code -x} diagonals, {@code -w} Windoku, {@code -k} anti-knight,
+     * {@code -c cages.txt} killer cages, one per line as a sum followed by its
+     * cells ({@code 15 r1c1 r1c2 r2c1}, 1-based) on a board of side {@code -n} (default 9).
+     */
+    public static void main(String[] args) throws IOException {
+        List<SudokuConstraint> rules = new ArrayList<>();
+        rules.add(Constraints.standard());
+        String cageFile = null;
+        int size = 9;
+        String input = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-x":
+                    rules.add(Constraints.diagonals());
+                    break;
+                case "-w":
+                    rules.add(Constraints.windoku());
+                    break;
+                case "-k":
+                    rules.add(Constraints.antiKnight());
+                    break;
+                case "-c":
+                    cageFile = CommandLine.requireValue(args, ++i);
+                    break;
+                case "-n":
+                    size = Integer.parseInt(CommandLine.requireValue(args, ++i));
+                    break;
+                default:
+                    input = args[i];
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: java sudoku.VariantSolver [-x] [-w] [-k] [-c cages.txt [-n size]] puzzles.txt");
+            System.exit(2);
+        }
+        if (cageFile != null) {
+            rules.addAll(readCages(cageFile, size));
+        }
+
+        VariantSolver solver = new VariantSolver(rules.toArray(new SudokuConstraint[0]));
+        PrintStream out = System.out;
+        long nanos = 0;
+        long nodes = 0;
+        long backtracks = 0;
+        int puzzles = 0;
+        int solved = 0;
+        try (PuzzleReader reader = new PuzzleReader(new FileReader(input, StandardCharsets.UTF_8))) {
+            int[][] board;
+            while ((board = reader.next()) != null) {
+                puzzles++;
+                long start = System.nanoTime();
+                try {
+                    boolean ok = solver.solve(board, null);
+                    out.println(ok ? PuzzleReader.format(board) : "unsolvable");
+                    solved += ok ? 1 : 0;
+                    nodes += solver.getNodesVisitedCount();
+                    backtracks += solver.getBacktrackCount();
+                } catch (IllegalArgumentException ex) {
+                    out.println("invalid: " + ex.getMessage());
+                }
+                nanos += System.nanoTime() - start;
+            }
+        }
+        out.flush();
+        System.err.printf("Puzzles: %d | Solved: %d | %.1f ms | Visited nodes: %d | Backtracks: %d%n",
+                puzzles, solved, nanos / 1e6, nodes, backtracks);
+    }
+
+    /** Reads killer cages, one per line: the sum, then cells as {@code r<row>c<col>} (1-based). */
+    private static List<SudokuConstraint> readCages(String file, int size) throws IOException {
+        List<SudokuConstraint> cages = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] tokens = line.trim().split("[\\s,]+");
+                if (tokens[0].isEmpty() || tokens[0].startsWith("#")) continue;
+                int[] cageCells = new int[tokens.length - 1];
+                for (int i = 1; i < tokens.length; i++) {
+                    String t = tokens[i].toLowerCase(Locale.ROOT);
+                    int c = t.indexOf('c');
+                    if (!t.startsWith("r") || c < 2) {
+                        throw new IllegalArgumentException("Bad cage cell '" + tokens[i] + "', expected r<row>c<col>.");
+                    }
+                    int row = Integer.parseInt(t.substring(1, c));
+                    int col = Integer.parseInt(t.substring(c + 1));
+                    if (row < 1 || row > size || col < 1 || col > size) {
+                        throw new IllegalArgumentException("Cage cell '" + tokens[i] + "' is outside a "
+                                + size + "x" + size + " board.");
+                    }
+                    cageCells[i - 1] = (row - 1) * size + col - 1;
+                }
+                cages.add(Constraints.cage(Integer.parseInt(tokens[0]), cageCells));
+            }
+        }
+        return cages;
+    }
+}
@@ -3,7 +3,8 @@ package run;
 public class demo {
 
     public static final int SIZE = 9;
-    private static final int SUBGRID_SIZE = 3;
+    private int size = SIZE;
+    private int subgridSize = 3;
     private long backtrackCount = 0;
     private long nodesVisitedCount = 0;
 
@@ -19,14 +20,17 @@ public class demo {
     public long getNodesVisitedCount() {
         return nodesVisitedCount;
     }
-    /** Solves the puzzle using backtracking with constraint tables. */
+    /** Solves an n²×n² puzzle (9x9, 16x16, ...) using backtracking with constraint tables. */
     public boolean solve(int[][] board, StepListener listener) {
-        if (board == null || board.length != SIZE || board[0].length != SIZE)
-            throw new IllegalArgumentException("Board must be 9x9.");
+        int n = board == null ? 0 : (int) Math.round(Math.sqrt(board.length));
+        if (n < 2 || n * n != board.length || board[0].length != board.length)
+            throw new IllegalArgumentException("Board must be n²×n² (e.g. 9x9).");
+        size = board.length;
+        subgridSize = n;
 
-        boolean[][] rowUsed = new boolean[SIZE][SIZE + 1];
-        boolean[][] colUsed = new boolean[SIZE][SIZE + 1];
-        boolean[][] boxUsed = new boolean[SIZE][SIZE + 1];
+        boolean[][] rowUsed = new boolean[size][size + 1];
+        boolean[][] colUsed = new boolean[size][size + 1];
+        boolean[][] boxUsed = new boolean[size][size + 1];
         if (!initConstraintsAndValidate(board, rowUsed, colUsed, boxUsed))
             throw new IllegalArgumentException("Invalid initial puzzle.");
 
@@ -39,10 +43,11 @@ public class demo {
     private boolean initConstraintsAndValidate(int[][] board,
         boolean[][] rowUsed, boolean[][] colUsed, boolean[][] boxUsed) {
 
-    for (int r = 0; r < SIZE; r++) {
-        for (int c = 0; c < SIZE; c++) {
+    for (int r = 0; r < size; r++) {
+        for (int c = 0; c < size; c++) {
             int v = board[r][c];
             if (v == 0) continue;
+            if (v < 0 || v > size) return false;
 
             int b = getBoxIndex(r, c);
             if (rowUsed[r][v] || colUsed[c][v] || boxUsed[b][v])
@@ -56,16 +61,16 @@ public class demo {
 
     /** Finds the next empty cell (0). */
     private int[] findEmptyCell(int[][] board) {
-        for (int r = 0; r < SIZE; r++)
-            for (int c = 0; c < SIZE; c++)
+        for (int r = 0; r < size; r++)
+            for (int c = 0; c < size; c++)
                 if (board[r][c] == 0)
                     return new int[]{r, c};
         return null;
     }
 
-    /** Returns 0–8 index of 3×3 subgrid. */
+    /** Returns 0–(size-1) index of the n×n subgrid (0–8 for 3×3). */
     private int getBoxIndex(int r, int c) {
-        return (r / SUBGRID_SIZE) * SUBGRID_SIZE + (c / SUBGRID_SIZE);
+        return (r / subgridSize) * subgridSize + (c / subgridSize);
     }
 
 
@@ -79,7 +84,7 @@ public class demo {
         if (cell == null) return true;
         int row = cell[0], col = cell[1];
         int box = getBoxIndex(row, col);
-        for (int num = 1; num <= 9; num++) {
+        for (int num = 1; num <= size; num++) {
             if (!rowUsed[row][num] && !colUsed[col][num] && !boxUsed[box][num]) {
                 // place
                 board[row][col] = num;